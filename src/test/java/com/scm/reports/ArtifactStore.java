@@ -0,0 +1,206 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed store for attachments embedded in Cucumber JSON
+ * Payloads are base64-decoded as a stream into artifacts/<sha256>.<ext>;
+ * identical payloads (e.g. the same failure screenshot) are stored only once.
+ */
+class ArtifactStore {
+    static final String DIR_NAME = "artifacts";
+
+    private final Path directory;
+    private final AtomicInteger stored = new AtomicInteger();
+    private final AtomicInteger deduplicated = new AtomicInteger();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * @param reportsDir Reports directory; artifacts are written to its artifacts/ subdirectory
+     */
+    ArtifactStore(Path reportsDir) {
+        this.directory = reportsDir.resolve(DIR_NAME);
+    }
+
+    /**
+     * Decode a base64 payload into the store
+     * @param base64Data Base64 payload as found in the JSON
+     * @param mimeType Media type of the decoded content
+     * @param name Attachment name given by the test
+     * @return Reference to the stored artifact
+     */
+    Attachment store(String base64Data, String mimeType, String name) throws IOException {
+        Files.createDirectories(directory);
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        long size;
+        try {
+            try (InputStream in = Base64.getMimeDecoder().wrap(new AsciiInputStream(base64Data));
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = in.transferTo(out);
+            }
+
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + extension(mimeType);
+            Path target = directory.resolve(fileName);
+            if (Files.exists(target)) {
+                // Same content already stored by an earlier scenario or run
+                deduplicated.incrementAndGet();
+            } else {
+                // A concurrent writer of the same content would produce identical bytes
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                stored.incrementAndGet();
+                bytesWritten.addAndGet(size);
+            }
+
+            Attachment attachment = new Attachment();
+            attachment.name = name;
+            attachment.mimeType = mimeType;
+            attachment.path = DIR_NAME + "/" + fileName;
+            attachment.size = size;
+            return attachment;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Decode a small UTF-8 payload that is kept in the report data instead of being stored,
+     * e.g. a span breakdown
+     */
+    static String decodeText(String base64Data) {
+        return new String(Base64.getMimeDecoder().decode(base64Data), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read an array of embedded attachments ({name, mime_type, data}) as both readers find them
+     * Span breakdowns, command logs and page logs of a step are kept on the step as text; anything
+     * else is stored as an artifact. Only one payload is held at a time; it is released once decoded.
+     * @param artifacts Store for artifacts, or null to skip the attachments
+     * @param step Step that receives its logs, null for scenario attachments
+     */
+    static void readAttachments(JsonReader json, ArtifactStore artifacts, List<Attachment> attachments,
+                                TestStep step) throws IOException {
+        if (artifacts == null) {
+            json.skipValue();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            String data = null;
+            String mimeType = null;
+            String name = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "data" -> data = nextStringOrNull(json);
+                    case "mime_type" -> mimeType = nextStringOrNull(json);
+                    case "name" -> name = nextStringOrNull(json);
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            if (data == null) {
+                continue;
+            }
+            if (step != null && SpanBreakdown.isBreakdown(mimeType)) {
+                step.spans = decodeText(data);
+            } else if (step != null && DriverCommandStats.isCommandLog(mimeType)) {
+                step.commands = decodeText(data);
+            } else if (step != null && PageTimings.isPageLog(mimeType)) {
+                step.pages = decodeText(data);
+            } else {
+                attachments.add(artifacts.store(data, mimeType, name));
+            }
+        }
+        json.endArray();
+    }
+
+    private static String nextStringOrNull(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    /**
+     * One-line summary of store activity, e.g. for console output
+     */
+    String summary() {
+        return String.format("Artifacts: %d stored (%d KB), %d deduplicated",
+            stored.get(), bytesWritten.get() / 1024, deduplicated.get());
+    }
+
+    static String extension(String mimeType) {
+        if (mimeType == null) {
+            return "bin";
+        }
+        return switch (mimeType) {
+            case "image/png" -> "png";
+            case "image/jpeg" -> "jpg";
+            case "image/gif" -> "gif";
+            case "image/svg+xml" -> "svg";
+            case "text/plain" -> "txt";
+            case "text/html" -> "html";
+            case "application/json" -> "json";
+            default -> "bin";
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Byte view of an ASCII string, so the decoder can consume it without a copy
+     */
+    private static final class AsciiInputStream extends InputStream {
+        private final String text;
+        private int position = 0;
+
+        AsciiInputStream(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read() {
+            return position < text.length() ? text.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int available = Math.min(length, text.length() - position);
+            if (available <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < available; i++) {
+                buffer[offset + i] = (byte) text.charAt(position++);
+            }
+            return available;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.scm.reports;
+
+/**
+ * An embedded attachment extracted into the artifact store
+ */
+class Attachment {
+    String name;
+    String mimeType;
+    // Path relative to the reports directory, e.g. artifacts/<sha256>.png
+    String path;
+    long size;
+
+    boolean isImage() {
+        return mimeType != null && mimeType.startsWith("image/");
+    }
+}
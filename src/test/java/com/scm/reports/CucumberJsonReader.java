@@ -0,0 +1,304 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Event-driven reader for Cucumber JSON output
+ * Scenarios are pulled one at a time so the file is never held in memory as a whole.
+ * Embedded attachments (screenshots, timing info) are either skipped without being materialized
+ * or, when an artifact store is given, decoded into it one attachment at a time.
+ */
+class CucumberJsonReader implements ScenarioSource {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Prefix of the line Hooks logs with the executing thread
+    static final String WORKER_PREFIX = "worker=";
+
+    private final JsonReader json;
+    private final ArtifactStore artifacts;
+    // Scenarios of the current feature; the feature name may follow its elements in the JSON
+    private final Deque<TestScenario> pending = new ArrayDeque<>();
+    private boolean finished = false;
+
+    CucumberJsonReader(Path jsonFile) throws IOException {
+        this(jsonFile, null);
+    }
+
+    /**
+     * @param jsonFile Cucumber JSON report
+     * @param artifacts Store for embedded attachments, or null to skip them
+     */
+    CucumberJsonReader(Path jsonFile, ArtifactStore artifacts) throws IOException {
+        this(Channels.newInputStream(FileChannel.open(jsonFile, StandardOpenOption.READ)), artifacts);
+    }
+
+    /**
+     * @param in Cucumber JSON content (a top-level array of features); closed with this reader
+     * @param artifacts Store for embedded attachments, or null to skip them
+     */
+    CucumberJsonReader(InputStream in, ArtifactStore artifacts) throws IOException {
+        this.artifacts = artifacts;
+        this.json = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+        try {
+            this.json.beginArray();
+        } catch (IOException | RuntimeException e) {
+            json.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next scenario in file order
+     * @return The next scenario, or null once all features have been consumed
+     */
+    @Override
+    public TestScenario next() throws IOException {
+        while (pending.isEmpty() && !finished) {
+            if (json.hasNext()) {
+                readFeature();
+            } else {
+                json.endArray();
+                finished = true;
+            }
+        }
+        return pending.poll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        json.close();
+    }
+
+    private void readFeature() throws IOException {
+        String featureName = null;
+        String featureUri = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name" -> featureName = nextStringOrNull();
+                case "uri" -> featureUri = nextStringOrNull();
+                case "elements" -> readElements();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        for (TestScenario scenario : pending) {
+            scenario.featureName = featureName;
+            scenario.featureUri = featureUri;
+        }
+    }
+
+    private void readElements() throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            TestScenario scenario = readElement();
+            if (scenario != null) {
+                pending.add(scenario);
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Read a feature element, returning null for anything that is not a scenario (e.g. backgrounds)
+     */
+    private TestScenario readElement() throws IOException {
+        TestScenario scenario = new TestScenario();
+        String type = null;
+        boolean hasSteps = false;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "type" -> type = nextStringOrNull();
+                case "name" -> scenario.name = nextStringOrNull();
+                case "line" -> scenario.line = json.nextInt();
+                case "start_timestamp" -> scenario.startTimestamp = parseTimestamp(nextStringOrNull());
+                case "tags" -> readTags(scenario.tags);
+                case "steps" -> {
+                    readSteps(scenario);
+                    hasSteps = true;
+                }
+                case "before" -> scenario.setupDuration = readHooks(scenario);
+                case "after" -> scenario.teardownDuration = readHooks(scenario);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (!"scenario".equals(type)) {
+            return null;
+        }
+        if (hasSteps) {
+            long totalDuration = 0;
+            for (TestStep step : scenario.steps) {
+                totalDuration += step.duration;
+            }
+            scenario.duration = totalDuration;
+        }
+        return scenario;
+    }
+
+    private void readTags(List<String> tags) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("name".equals(json.nextName())) {
+                    tags.add(nextStringOrNull());
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void readSteps(TestScenario scenario) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            TestStep step = new TestStep();
+            step.keyword = "";
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name" -> step.name = nextStringOrNull();
+                    case "keyword" -> step.keyword = nextStringOrNull();
+                    case "result" -> readResult(step);
+                    case "embeddings" -> ArtifactStore.readAttachments(json, artifacts, step.attachments, step);
+                    // Step hooks, of which the after hooks attach the step's span breakdown
+                    case "after" -> readStepHooks(step);
+                    // output, match, rows and doc strings are not rendered
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if ("failed".equals(step.status)) {
+                scenario.status = "failed";
+            } else {
+                // Error messages are only reported for failed steps
+                step.errorMessage = null;
+            }
+            scenario.steps.add(step);
+        }
+        json.endArray();
+    }
+
+    private void readResult(TestStep step) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                // Cucumber reports nanoseconds; convert to milliseconds
+                case "duration" -> step.duration = json.nextLong() / 1_000_000;
+                case "status" -> step.status = nextStringOrNull();
+                case "error_message" -> step.errorMessage = nextStringOrNull();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * Read before or after hooks: their attachments, the worker logged by Hooks and their duration
+     * @return Total duration of the hooks in milliseconds
+     */
+    private long readHooks(TestScenario scenario) throws IOException {
+        long duration = 0;
+        json.beginArray();
+        while (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "embeddings" -> ArtifactStore.readAttachments(json, artifacts, scenario.attachments, null);
+                    case "output" -> readOutput(scenario);
+                    case "result" -> duration += readHookDuration();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+        return duration;
+    }
+
+    private void readStepHooks(TestStep step) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("embeddings".equals(json.nextName())) {
+                    ArtifactStore.readAttachments(json, artifacts, step.attachments, step);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private long readHookDuration() throws IOException {
+        long duration = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            if ("duration".equals(json.nextName())) {
+                duration = json.nextLong() / 1_000_000;
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return duration;
+    }
+
+    /**
+     * Pick the worker out of hook log lines (scenario.log), e.g. "worker=ForkJoinPool-1-worker-3"
+     */
+    private void readOutput(TestScenario scenario) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            String line = nextStringOrNull();
+            if (line != null && line.startsWith(WORKER_PREFIX)) {
+                scenario.worker = line.substring(WORKER_PREFIX.length()).trim();
+            }
+        }
+        json.endArray();
+    }
+
+    private static long parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return 0;
+        }
+        try {
+            return Instant.parse(timestamp).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private String nextStringOrNull() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+}
@@ -0,0 +1,173 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.scm.utils.DriverCommandListener;
+import com.scm.utils.LatencyHistogram;
+import com.scm.utils.LatencySnapshot;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Latency of the WebDriver commands of a run, from the command logs Hooks attaches to each step
+ * when the driver is instrumented (see com.scm.utils.DriverCommandListener)
+ * Durations are recorded into a histogram per command like LatencyStats keeps per step, and the
+ * slowest calls are kept with the step that made them.
+ */
+final class DriverCommandStats {
+    static final String MEDIA_TYPE = DriverCommandListener.MEDIA_TYPE;
+    static final int SLOWEST = 20;
+
+    /**
+     * Latency histogram, total time and payload of one command
+     */
+    static final class Command {
+        final String name;
+        final LatencySnapshot latency;
+        final long total;
+        final long payload;
+
+        Command(String name, LatencySnapshot latency, long total, long payload) {
+            this.name = name;
+            this.latency = latency;
+            this.total = total;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * One command call of a step
+     */
+    static final class Call {
+        final String command;
+        final long duration;
+        final long payload;
+        // Locator, URL or script, null when not logged
+        final String detail;
+        final ScenarioView scenario;
+        final StepView step;
+
+        Call(String command, long duration, long payload, String detail, ScenarioView scenario, StepView step) {
+            this.command = command;
+            this.duration = duration;
+            this.payload = payload;
+            this.detail = detail;
+            this.scenario = scenario;
+            this.step = step;
+        }
+    }
+
+    // Ordered from the highest to the lowest total time
+    final List<Command> commands;
+    // Ordered from the slowest call
+    final List<Call> slowest;
+    final long calls;
+
+    private DriverCommandStats(List<Command> commands, List<Call> slowest, long calls) {
+        this.commands = Collections.unmodifiableList(commands);
+        this.slowest = Collections.unmodifiableList(slowest);
+        this.calls = calls;
+    }
+
+    /**
+     * Whether an attachment is a command log rather than an artifact
+     */
+    static boolean isCommandLog(String mimeType) {
+        return MEDIA_TYPE.equals(mimeType);
+    }
+
+    /**
+     * Summarize the command logs of all steps; empty when the driver was not instrumented
+     */
+    static DriverCommandStats of(ReportData data) {
+        Map<String, Durations> byCommand = new HashMap<>();
+        PriorityQueue<Call> slowest = new PriorityQueue<>(Comparator.comparingLong((Call call) -> call.duration));
+        long calls = 0;
+        for (int scenario = 0; scenario < data.names.length; scenario++) {
+            for (int step = data.stepOffsets[scenario]; step < data.stepOffsets[scenario + 1]; step++) {
+                int log = data.stepCommands[step];
+                if (log == 0) {
+                    continue;
+                }
+                try (JsonReader json = new JsonReader(new StringReader(data.strings.get(log)))) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        if (!"calls".equals(json.nextName())) {
+                            json.skipValue();
+                            continue;
+                        }
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            json.beginArray();
+                            String command = json.nextString();
+                            long duration = json.nextLong();
+                            long payload = json.nextLong();
+                            String detail = nextStringOrNull(json);
+                            json.endArray();
+
+                            byCommand.computeIfAbsent(command, key -> new Durations()).add(duration, payload);
+                            calls++;
+                            if (slowest.size() < SLOWEST || duration > slowest.peek().duration) {
+                                slowest.add(new Call(command, duration, payload, detail,
+                                    data.scenario(scenario), new StepView(data, step)));
+                                if (slowest.size() > SLOWEST) {
+                                    slowest.poll();
+                                }
+                            }
+                        }
+                        json.endArray();
+                    }
+                    json.endObject();
+                } catch (IOException | RuntimeException e) {
+                    // A damaged log only loses the calls after the damage
+                }
+            }
+        }
+
+        List<Command> commands = new ArrayList<>(byCommand.size());
+        for (Map.Entry<String, Durations> entry : byCommand.entrySet()) {
+            Durations durations = entry.getValue();
+            commands.add(new Command(entry.getKey(), durations.latency.snapshot(), durations.total, durations.payload));
+        }
+        commands.sort(Comparator.comparingLong((Command command) -> command.total).reversed()
+            .thenComparing(command -> command.name));
+        List<Call> ordered = new ArrayList<>(slowest);
+        ordered.sort(Comparator.comparingLong((Call call) -> call.duration).reversed());
+        return new DriverCommandStats(commands, ordered, calls);
+    }
+
+    boolean isEmpty() {
+        return calls == 0;
+    }
+
+    /**
+     * Histogram, total time and payload of one command while the logs are read
+     */
+    private static final class Durations {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long total;
+        long payload;
+
+        void add(long duration, long size) {
+            latency.record(duration);
+            total += duration;
+            payload += size;
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+}
@@ -0,0 +1,172 @@
+package com.scm.reports;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Failed steps grouped by normalized error signature
+ * The signature keeps the exception and message of each cause and the top stack frames, with
+ * ids, timestamps, session hashes, line numbers and other numbers replaced by placeholders and
+ * Selenium's environment lines dropped, so the same failure in different scenarios matches.
+ * Clusters are ordered by size, largest first; the hash of a signature is stable across runs.
+ */
+final class FailureClusters {
+    // Frames kept per exception; deeper frames are mostly framework code
+    private static final int MAX_FRAMES = 8;
+
+    private static final Pattern UUID = Pattern.compile(
+        "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    private static final Pattern TIMESTAMP = Pattern.compile(
+        "\\d{4}-\\d{2}-\\d{2}([T ]\\d{1,2}:\\d{2}(:\\d{2}([.,]\\d+)?)?(Z|[+-]\\d{2}:?\\d{2})?)?|\\b\\d{1,2}:\\d{2}:\\d{2}([.,]\\d+)?\\b");
+    private static final Pattern HASH = Pattern.compile("\\b(?=[0-9a-zA-Z]*\\d)[0-9a-fA-F]{16,}\\b");
+    private static final Pattern LINE_NUMBER = Pattern.compile(":\\d+\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern SPACES = Pattern.compile("[ \\t]+");
+    // Lines Selenium appends to its exception messages that describe the machine, not the failure
+    private static final List<String> ENVIRONMENT_LINES = List.of(
+        "Build info:", "System info:", "Driver info:", "Capabilities ", "Session ID:", "For documentation on this error");
+
+    /**
+     * Steps that failed with the same signature
+     */
+    static final class Cluster {
+        final String hash;
+        final String signature;
+        // First line of the signature, e.g. the exception and its message
+        final String title;
+        // Complete error of the first failed step, shown as the example
+        final String example;
+        final List<ScenarioView> scenarios = new ArrayList<>();
+        private int size;
+
+        Cluster(String hash, String signature, String example) {
+            this.hash = hash;
+            this.signature = signature;
+            int lineEnd = signature.indexOf('\n');
+            this.title = lineEnd < 0 ? signature : signature.substring(0, lineEnd);
+            this.example = example;
+        }
+
+        /**
+         * Number of failed steps
+         */
+        int size() {
+            return size;
+        }
+    }
+
+    final List<Cluster> clusters;
+    // Cluster of each step of ReportData, null for steps without error
+    private final Cluster[] byStep;
+
+    private FailureClusters(List<Cluster> clusters, Cluster[] byStep) {
+        this.clusters = Collections.unmodifiableList(clusters);
+        this.byStep = byStep;
+    }
+
+    /**
+     * Cluster the failed steps of a run
+     * Error messages are interned, so the signature is computed once per distinct message.
+     */
+    static FailureClusters of(ReportData data) {
+        Map<String, Cluster> bySignature = new LinkedHashMap<>();
+        Map<Integer, Cluster> byError = new HashMap<>();
+        Cluster[] byStep = new Cluster[data.stepCount()];
+        for (int scenario = 0; scenario < data.names.length; scenario++) {
+            for (int step = data.stepOffsets[scenario]; step < data.stepOffsets[scenario + 1]; step++) {
+                int error = data.stepErrors[step];
+                if (error == 0) {
+                    continue;
+                }
+                Cluster cluster = byError.get(error);
+                if (cluster == null) {
+                    String errorMessage = data.strings.get(error);
+                    if (errorMessage.isBlank()) {
+                        continue;
+                    }
+                    cluster = bySignature.computeIfAbsent(signature(errorMessage),
+                        key -> new Cluster(hash(key), key, errorMessage));
+                    byError.put(error, cluster);
+                }
+                cluster.size++;
+                List<ScenarioView> scenarios = cluster.scenarios;
+                if (scenarios.isEmpty() || scenarios.get(scenarios.size() - 1).index != scenario) {
+                    scenarios.add(data.scenario(scenario));
+                }
+                byStep[step] = cluster;
+            }
+        }
+        List<Cluster> clusters = new ArrayList<>(bySignature.values());
+        // Stable sort: equally large clusters stay in order of first occurrence
+        clusters.sort(Comparator.comparingInt(Cluster::size).reversed());
+        return new FailureClusters(clusters, byStep);
+    }
+
+    /**
+     * Cluster of a failed step, or null when the step has no error
+     */
+    Cluster of(StepView step) {
+        return byStep[step.index];
+    }
+
+    /**
+     * Normalized form of an error message that is equal for repetitions of the same failure
+     */
+    static String signature(String errorMessage) {
+        StringBuilder signature = new StringBuilder();
+        int frames = 0;
+        for (String rawLine : errorMessage.split("\\R")) {
+            String line = rawLine.strip();
+            if (line.isEmpty() || isEnvironmentLine(line) || line.startsWith("...")) {
+                continue;
+            }
+            if (line.startsWith("at ")) {
+                if (frames++ >= MAX_FRAMES) {
+                    continue;
+                }
+                line = LINE_NUMBER.matcher(line).replaceAll(")");
+            } else {
+                // Message line or "Caused by:" of the next exception
+                frames = 0;
+            }
+            line = UUID.matcher(line).replaceAll("<uuid>");
+            line = TIMESTAMP.matcher(line).replaceAll("<time>");
+            line = HASH.matcher(line).replaceAll("<hash>");
+            line = NUMBER.matcher(line).replaceAll("<n>");
+            line = SPACES.matcher(line).replaceAll(" ");
+            if (signature.length() > 0) {
+                signature.append('\n');
+            }
+            signature.append(line);
+        }
+        return signature.toString();
+    }
+
+    private static boolean isEnvironmentLine(String line) {
+        for (String prefix : ENVIRONMENT_LINES) {
+            if (line.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hash(String signature) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(signature.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Splits a Cucumber JSON report into per-feature byte ranges with a content hash
+ * This is a byte-level pass that only tracks nesting and string literals; nothing is decoded,
+ * so it is much cheaper than parsing and lets unchanged features be served from the cache.
+ * Compressed result logs are split by ResultLogBlocks instead.
+ */
+class FeatureScanner {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Byte ranges of one feature: a top-level feature object, or the blocks of a result log
+     */
+    static final class Slice {
+        final long[] offsets;
+        final long[] lengths;
+        final String hash;
+
+        Slice(long offset, long length, String hash) {
+            this(new long[] {offset}, new long[] {length}, hash);
+        }
+
+        Slice(long[] offsets, long[] lengths, String hash) {
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Features of a report or result log, in file order
+     * A result log without the block layout of ResultLogBlocks is a single slice.
+     */
+    static List<Slice> slices(Path file) throws IOException {
+        if (!ResultLogReader.isResultLog(file)) {
+            return scan(file);
+        }
+        List<Slice> blocks = ResultLogReader.isCompressed(file)
+            ? ResultLogBlocks.scan(file, ResultLogReader.isPart(file)) : null;
+        return blocks != null ? blocks : List.of(whole(file));
+    }
+
+    /**
+     * Scan the report and return its features in file order
+     */
+    static List<Slice> scan(Path jsonFile) throws IOException {
+        List<Slice> slices = new ArrayList<>();
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(jsonFile, StandardOpenOption.READ)) {
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            long position = 0;
+            long featureStart = -1;
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                byte[] bytes = buffer.array();
+                int limit = buffer.limit();
+                // Start of the part of this buffer that belongs to the current feature
+                int hashFrom = featureStart >= 0 ? 0 : -1;
+
+                for (int i = 0; i < limit; i++) {
+                    byte b = bytes[i];
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                        continue;
+                    }
+                    if (b == '"') {
+                        inString = true;
+                    } else if (b == '{' || b == '[') {
+                        depth++;
+                        if (depth == 2) {
+                            featureStart = position + i;
+                            hashFrom = i;
+                        }
+                    } else if (b == '}' || b == ']') {
+                        if (depth == 2) {
+                            digest.update(bytes, hashFrom, i + 1 - hashFrom);
+                            long end = position + i + 1;
+                            slices.add(new Slice(featureStart, end - featureStart, HexFormat.of().formatHex(digest.digest())));
+                            featureStart = -1;
+                            hashFrom = -1;
+                        }
+                        depth--;
+                    }
+                }
+                if (hashFrom >= 0) {
+                    digest.update(bytes, hashFrom, limit - hashFrom);
+                }
+                position += limit;
+                buffer.clear();
+            }
+            if (depth != 0 || inString) {
+                // A report cut off mid-feature would otherwise lose that feature without a trace
+                throw new IOException("Report is truncated or not valid JSON: " + jsonFile);
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * The whole file as a single slice, for result logs that are not split per feature
+     */
+    static Slice whole(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int read;
+            while ((read = channel.read(buffer)) != -1) {
+                digest.update(buffer.array(), 0, read);
+                size += read;
+                buffer.clear();
+            }
+        }
+        return new Slice(0, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Stream the bytes of one slice wrapped in a JSON array, as CucumberJsonReader expects
+     */
+    static InputStream open(Path jsonFile, Slice slice) throws IOException {
+        return new SliceInputStream(FileChannel.open(jsonFile, StandardOpenOption.READ), slice, true);
+    }
+
+    /**
+     * Stream the bytes of one slice as they are, e.g. the gzip members of a result log feature
+     */
+    static InputStream openRaw(Path file, Slice slice) throws IOException {
+        return new SliceInputStream(FileChannel.open(file, StandardOpenOption.READ), slice, false);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Reads the ranges of the slice directly from the file channel, optionally as "[" + bytes + "]"
+     */
+    private static final class SliceInputStream extends InputStream {
+        private final FileChannel channel;
+        private final Slice slice;
+        private int range = 0;
+        private long position;
+        private long end;
+        private boolean opened;
+        private boolean closed;
+
+        SliceInputStream(FileChannel channel, Slice slice, boolean asArray) {
+            this.channel = channel;
+            this.slice = slice;
+            this.position = slice.offsets[0];
+            this.end = slice.offsets[0] + slice.lengths[0];
+            this.opened = !asArray;
+            this.closed = !asArray;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!opened) {
+                opened = true;
+                target[offset] = '[';
+                return 1;
+            }
+            while (position == end && range + 1 < slice.offsets.length) {
+                range++;
+                position = slice.offsets[range];
+                end = position + slice.lengths[range];
+            }
+            if (position < end) {
+                ByteBuffer buffer = ByteBuffer.wrap(target, offset, (int) Math.min(length, end - position));
+                int read = channel.read(buffer, position);
+                if (read == -1) {
+                    throw new IOException("Report file was truncated while reading");
+                }
+                position += read;
+                return read;
+            }
+            if (!closed) {
+                closed = true;
+                target[offset] = ']';
+                return 1;
+            }
+            return -1;
+        }
+
+        /**
+         * Bytes left in the slice; GZIPInputStream only reads on past a member while this is positive
+         */
+        @Override
+        public int available() {
+            long remaining = end - position + (closed ? 0 : 1);
+            for (int i = range + 1; i < slice.lengths.length; i++) {
+                remaining += slice.lengths[i];
+            }
+            return (int) Math.min(Integer.MAX_VALUE, remaining + (opened ? 0 : 1));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,19 +1,27 @@
 package com.scm.reports;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.scm.utils.LatencySnapshot;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Generates interactive HTML reports from Cucumber JSON output
@@ -21,863 +29,1230 @@ import java.util.List;
  */
 public class HtmlReportGenerator {
     private static final String REPORTS_DIR = "target/html-reports";
-    private final Gson gson = new Gson();
+    // Report pages, by name of the page without .html
+    static final List<String> FORMATS = List.of("dashboard", "detailed", "timeline", "index");
+    // Runs shown in the dashboard latency trends
+    private static final int TREND_RUNS = Integer.getInteger("report.history.runs", 30);
+    private static final int TREND_STEPS = 15;
+    // Scenarios and steps listed in percentile tables, slowest p95 first
+    static final int PERCENTILE_ROWS = 25;
+    // Scenarios named per failure cluster
+    private static final int CLUSTER_SCENARIOS = 10;
+
+    private final Path reportsDir;
+    private final int parallelism;
+    private final List<String> formats;
+    private final List<String> exports;
+    // Outcome of the last regression check, null without a baseline
+    private RegressionGate.Result regressions;
+    private ReportTimings timings = new ReportTimings();
+
+    public HtmlReportGenerator() {
+        this(Paths.get(REPORTS_DIR));
+    }
+
+    /**
+     * @param reportsDir Directory that receives the pages, artifacts and parse cache
+     */
+    HtmlReportGenerator(Path reportsDir) {
+        // Parsing has a task per feature; rendering has one per page
+        this(reportsDir, Runtime.getRuntime().availableProcessors(), FORMATS, LatencyExports.selectedFormats());
+    }
+
+    /**
+     * @param parallelism Threads that parse features and render pages
+     * @param formats Pages to generate, a subset of FORMATS
+     * @param exports Latency exports to write, a subset of LatencyExports.FORMATS
+     */
+    HtmlReportGenerator(Path reportsDir, int parallelism, List<String> formats, List<String> exports) {
+        this.reportsDir = reportsDir;
+        this.parallelism = parallelism;
+        this.formats = formats;
+        this.exports = exports;
+    }
 
     /**
      * Generate all report formats from Cucumber JSON
      * @param jsonFilePath Path to Cucumber JSON report
+     * @throws IOException When an input cannot be read or parsed, or a page cannot be written
+     */
+    public void generateReports(String jsonFilePath) throws IOException {
+        generateReports(List.of(jsonFilePath));
+    }
+
+    /**
+     * Generate all report formats from the Cucumber JSON files of parallel shards
+     * Scenarios are merged in start order; a scenario retried in several files is reported once.
+     * @param jsonFilePaths Paths to Cucumber JSON reports or ResultLogPlugin logs, one per shard
+     * @throws IOException When an input cannot be read or parsed, or a page cannot be written
      */
-    public void generateReports(String jsonFilePath) {
+    public void generateReports(List<String> jsonFilePaths) throws IOException {
+        ReportTimings timings = new ReportTimings();
+        this.timings = timings;
+        long totalStart = System.nanoTime();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "report-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
             // Create reports directory
-            new File(REPORTS_DIR).mkdirs();
+            Files.createDirectories(reportsDir);
+
+            // Split each JSON file or result log into features and skip generation if none of them changed
+            long scanStart = System.nanoTime();
+            List<Path> jsonFiles = new ArrayList<>();
+            List<List<FeatureScanner.Slice>> shardFeatures = new ArrayList<>();
+            List<FeatureScanner.Slice> features = new ArrayList<>();
+            for (String jsonFilePath : jsonFilePaths) {
+                Path jsonFile = Paths.get(jsonFilePath);
+                List<FeatureScanner.Slice> slices = FeatureScanner.slices(jsonFile);
+                jsonFiles.add(jsonFile);
+                shardFeatures.add(slices);
+                features.addAll(slices);
+            }
+            ReportCache cache = new ReportCache(reportsDir);
+            RegressionGate gate = new RegressionGate();
+            String settings = outputSettings(exports, gate);
+            timings.record("scan", scanStart);
+            if (cache.isCurrent(features, settings) && formats.stream().allMatch(f -> Files.exists(reportsDir.resolve(f + ".html")))) {
+                System.out.println("HTML reports are up to date in: " + reportsDir);
+                regressions = RegressionGate.Result.read(reportsDir);
+                return;
+            }
+
+            // Parse changed features once, in parallel, into the columns of the report data; the result
+            // is shared read-only by all renderers. Embedded attachments are extracted into the
+            // artifact store while parsing.
+            long parseStart = System.nanoTime();
+            ArtifactStore artifacts = new ArtifactStore(reportsDir);
+            ReportData.Builder builder = new ReportData.Builder();
+            parseScenarios(jsonFiles, shardFeatures, artifacts, cache, executor, builder);
+            timings.record("parse", parseStart);
 
-            // Read and parse JSON
-            String jsonContent = new String(Files.readAllBytes(Paths.get(jsonFilePath)));
-            JsonArray features = gson.fromJson(jsonContent, JsonArray.class);
+            long aggregateStart = System.nanoTime();
+            ReportData data = builder.build();
+            timings.record("aggregate", aggregateStart);
 
-            // Generate different report formats
-            generateDashboardReport(features);
-            generateDetailedReport(features);
-            generateTimelineReport(features);
-            generateIndexPage();
+            // Append this run to the latency history and read back the recent trend
+            long historyStart = System.nanoTime();
+            LatencyHistory history = new LatencyHistory();
+            history.record(data);
+            LatencyHistory.Trends trends = history.read(TREND_RUNS);
+            timings.record("history", historyStart);
 
-            System.out.println("HTML reports generated successfully in: " + REPORTS_DIR);
-        } catch (Exception e) {
-            System.err.println("Error generating reports: " + e.getMessage());
-            e.printStackTrace();
+            // Compare step durations against the baseline run or the history
+            long regressionStart = System.nanoTime();
+            RegressionGate.Result regressions = gate.evaluate(data, history);
+            this.regressions = regressions;
+            Path regressionFile = reportsDir.resolve(RegressionGate.RESULT_FILE);
+            if (regressions != null) {
+                regressions.write(reportsDir);
+                System.out.println("Performance regressions: " + regressions.regressions.size() + " of "
+                    + regressions.checkedSteps + " steps (budget " + regressions.budget + ", baseline: "
+                    + regressions.baseline + ")");
+            } else {
+                Files.deleteIfExists(regressionFile);
+            }
+            timings.record("regressions", regressionStart);
+
+            // Shared stylesheets and scripts, linked by every page
+            ReportAssets.write(reportsDir);
+
+            // Generate the selected report formats in parallel
+            List<Callable<Void>> pages = new ArrayList<>();
+            if (formats.contains("dashboard")) {
+                pages.add(timed(timings, "render dashboard", () -> generateDashboardReport(data, trends, regressions)));
+            }
+            if (formats.contains("detailed")) {
+                pages.add(timed(timings, "render detailed", () -> generateDetailedReport(data, regressions)));
+            }
+            if (formats.contains("timeline")) {
+                pages.add(timed(timings, "render timeline", () -> generateTimelineReport(data)));
+            }
+            if (formats.contains("index")) {
+                pages.add(timed(timings, "render index", this::generateIndexPage));
+            }
+            // CSV, Prometheus and JUnit exports of the step and scenario durations
+            if (!exports.isEmpty()) {
+                pages.add(timed(timings, "render exports", () -> new LatencyExports(reportsDir, timings).write(data, exports)));
+            }
+            renderAll(executor, pages);
+            cache.commit(features, settings);
+            timings.record("total", totalStart);
+
+            System.out.println("HTML reports generated successfully in: " + reportsDir);
+            System.out.println(artifacts.summary());
+            timings.print();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating reports", e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    /**
+     * Everything besides the inputs that shapes the output, so that changing it regenerates the reports
+     */
+    private String outputSettings(List<String> exports, RegressionGate gate) {
+        return String.join(";", "formats=" + String.join(",", formats), LatencyExports.settings(exports),
+            ShardedDetailedReport.settings(), gate.settings(),
+            "history=" + new LatencyHistory().isEnabled() + "/" + TREND_RUNS);
+    }
+
+    /**
+     * Phase timings of the last generation
+     */
+    ReportTimings timings() {
+        return timings;
+    }
+
+    /**
+     * Whether the last generation found more regressed steps than the budget allows
+     */
+    boolean isRegressionBudgetExceeded() {
+        return regressions != null && regressions.exceedsBudget();
+    }
+
+    /**
+     * Run render tasks on the bounded pool and wait for all of them
+     * The first failure is rethrown once every task has finished.
+     */
+    private void renderAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException, InterruptedException {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        IOException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Callable<Void> timed(ReportTimings timings, String phase, RenderTask task) {
+        return () -> {
+            long start = System.nanoTime();
+            task.run();
+            timings.record(phase, start);
+            return null;
+        };
+    }
+
+    @FunctionalInterface
+    private interface RenderTask {
+        void run() throws IOException;
+    }
+
     /**
      * Generate Dashboard-style report with summary statistics
      */
-    private void generateDashboardReport(JsonArray features) throws IOException {
-        ReportData data = parseReportData(features);
-        String html = generateDashboardHtml(data);
-        writeFile(REPORTS_DIR + "/dashboard.html", html);
+    private void generateDashboardReport(ReportData data, LatencyHistory.Trends trends,
+                                         RegressionGate.Result regressions) throws IOException {
+        writePage("dashboard.html", out -> writeDashboardHtml(data, trends, regressions, out));
     }
 
     /**
-     * Generate Detailed report with full test information
+     * Generate Detailed report with full test information, searchable through a prebuilt index
+     * Large runs get a sharded report that loads scenario details on demand
      */
-    private void generateDetailedReport(JsonArray features) throws IOException {
-        ReportData data = parseReportData(features);
-        String html = generateDetailedHtml(data);
-        writeFile(REPORTS_DIR + "/detailed.html", html);
+    private void generateDetailedReport(ReportData data, RegressionGate.Result regressions) throws IOException {
+        // Search terms of all scenarios, loaded by both variants of the page
+        new SearchIndex(data).write(reportsDir.resolve(SearchIndex.FILE_NAME), timings);
+        if (ShardedDetailedReport.isEnabled(data)) {
+            new ShardedDetailedReport(reportsDir, timings).write(data, regressions);
+        } else {
+            writePage("detailed.html", out -> writeDetailedHtml(data, regressions, out));
+        }
     }
 
     /**
      * Generate Timeline report showing test execution over time
      */
-    private void generateTimelineReport(JsonArray features) throws IOException {
-        ReportData data = parseReportData(features);
-        String html = generateTimelineHtml(data);
-        writeFile(REPORTS_DIR + "/timeline.html", html);
+    private void generateTimelineReport(ReportData data) throws IOException {
+        writePage("timeline.html", out -> writeTimelineHtml(data, out));
     }
 
     /**
      * Generate index page with links to all reports
      */
     private void generateIndexPage() throws IOException {
-        String html = """
-            <!DOCTYPE html>
-            <html lang="en">
-            <head>
-                <meta charset="UTF-8">
-                <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                <title>Test Reports - Index</title>
-                <style>
-                    * { margin: 0; padding: 0; box-sizing: border-box; }
-                    body {
-                        font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
-                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                        min-height: 100vh;
-                        padding: 40px 20px;
-                    }
-                    .container {
-                        max-width: 1200px;
-                        margin: 0 auto;
-                    }
-                    h1 {
-                        color: white;
-                        text-align: center;
-                        margin-bottom: 50px;
-                        font-size: 2.5em;
-                        text-shadow: 2px 2px 4px rgba(0,0,0,0.3);
-                    }
-                    .report-cards {
-                        display: grid;
-                        grid-template-columns: repeat(auto-fit, minmax(300px, 1fr));
-                        gap: 30px;
-                    }
-                    .card {
-                        background: white;
-                        border-radius: 15px;
-                        padding: 30px;
-                        box-shadow: 0 10px 30px rgba(0,0,0,0.3);
-                        transition: transform 0.3s, box-shadow 0.3s;
-                        text-decoration: none;
-                        color: inherit;
-                        display: block;
-                    }
-                    .card:hover {
-                        transform: translateY(-5px);
-                        box-shadow: 0 15px 40px rgba(0,0,0,0.4);
-                    }
-                    .card h2 {
-                        color: #667eea;
-                        margin-bottom: 15px;
-                        font-size: 1.8em;
-                    }
-                    .card p {
-                        color: #666;
-                        line-height: 1.6;
-                        margin-bottom: 20px;
-                    }
-                    .card-icon {
-                        font-size: 3em;
-                        margin-bottom: 15px;
-                    }
-                    .badge {
-                        display: inline-block;
-                        padding: 5px 15px;
-                        border-radius: 20px;
-                        font-size: 0.9em;
-                        font-weight: bold;
-                        margin-top: 10px;
-                    }
-                    .badge-dashboard { background: #e3f2fd; color: #1976d2; }
-                    .badge-detailed { background: #f3e5f5; color: #7b1fa2; }
-                    .badge-timeline { background: #e8f5e9; color: #388e3c; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <h1>📊 Test Execution Reports</h1>
-                    <div class="report-cards">
-                        <a href="dashboard.html" class="card">
-                            <div class="card-icon">📈</div>
-                            <h2>Dashboard View</h2>
-                            <p>High-level overview with summary statistics, pass/fail rates, and key metrics at a glance.</p>
-                            <span class="badge badge-dashboard">Summary & Stats</span>
-                        </a>
-                        <a href="detailed.html" class="card">
-                            <div class="card-icon">📋</div>
-                            <h2>Detailed View</h2>
-                            <p>Comprehensive test details including step-by-step execution, response times, and error messages.</p>
-                            <span class="badge badge-detailed">Full Details</span>
-                        </a>
-                        <a href="timeline.html" class="card">
-                            <div class="card-icon">⏱️</div>
-                            <h2>Timeline View</h2>
-                            <p>Visual timeline showing test execution order, duration, and response time trends.</p>
-                            <span class="badge badge-timeline">Time Analysis</span>
-                        </a>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """;
-        writeFile(REPORTS_DIR + "/index.html", html);
+        writePage("index.html", this::writeIndexHtml);
     }
 
     /**
-     * Parse Cucumber JSON into structured data
+     * Parse Cucumber JSON into structured data on the calling thread
      */
-    private ReportData parseReportData(JsonArray features) {
-        ReportData data = new ReportData();
-        data.generatedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-        for (JsonElement featureElement : features) {
-            JsonObject feature = featureElement.getAsJsonObject();
-            String featureName = feature.get("name").getAsString();
-
-            if (feature.has("elements")) {
-                JsonArray elements = feature.getAsJsonArray("elements");
-                for (JsonElement elementElement : elements) {
-                    JsonObject element = elementElement.getAsJsonObject();
-                    if ("scenario".equals(element.get("type").getAsString())) {
-                        TestScenario scenario = new TestScenario();
-                        scenario.featureName = featureName;
-                        scenario.name = element.get("name").getAsString();
-                        scenario.tags = new ArrayList<>();
-                        
-                        if (element.has("tags")) {
-                            for (JsonElement tag : element.getAsJsonArray("tags")) {
-                                scenario.tags.add(tag.getAsJsonObject().get("name").getAsString());
-                            }
-                        }
-
-                        // Parse steps
-                        if (element.has("steps")) {
-                            JsonArray steps = element.getAsJsonArray("steps");
-                            long totalDuration = 0;
-                            for (JsonElement stepElement : steps) {
-                                JsonObject step = stepElement.getAsJsonObject();
-                                TestStep testStep = new TestStep();
-                                testStep.name = step.get("name").getAsString();
-                                testStep.keyword = step.has("keyword") ? step.get("keyword").getAsString() : "";
-                                
-                                // Get duration
-                                if (step.has("result") && step.getAsJsonObject("result").has("duration")) {
-                                    long duration = step.getAsJsonObject("result").get("duration").getAsLong() / 1_000_000; // Convert to milliseconds
-                                    testStep.duration = duration;
-                                    totalDuration += duration;
-                                }
-                                
-                                // Get status
-                                if (step.has("result")) {
-                                    String status = step.getAsJsonObject("result").get("status").getAsString();
-                                    testStep.status = status;
-                                    if ("failed".equals(status)) {
-                                        scenario.status = "failed";
-                                        if (step.getAsJsonObject("result").has("error_message")) {
-                                            testStep.errorMessage = step.getAsJsonObject("result").get("error_message").getAsString();
-                                        }
-                                    }
-                                }
-                                
-                                scenario.steps.add(testStep);
-                            }
-                            scenario.duration = totalDuration;
-                        }
+    ReportData parseReportData(List<Path> jsonFiles, List<List<FeatureScanner.Slice>> shardFeatures,
+                              ArtifactStore artifacts, ReportCache cache) throws IOException {
+        ReportData.Builder builder = new ReportData.Builder();
+        parseScenarios(jsonFiles, shardFeatures, artifacts, cache, null, builder);
+        return builder.build();
+    }
 
-                        if (scenario.status == null) {
-                            scenario.status = "passed";
-                        }
+    /**
+     * Parse Cucumber JSON into scenarios in execution order
+     * Features found in the cache are reused; the others are streamed scenario by scenario,
+     * so memory does not grow with embedded attachments. A single file is appended to the
+     * builder as it is read. Several shards are read twice by ShardMerger, which keeps only the
+     * last attempt of a retried scenario; the second pass is served from the cache the first one
+     * filled, and the merged scenarios are sorted by start time.
+     * @param executor Pool that parses features in parallel, or null to parse on the calling thread
+     * @param builder Receives the scenarios
+     */
+    private void parseScenarios(List<Path> jsonFiles, List<List<FeatureScanner.Slice>> shardFeatures,
+                                ArtifactStore artifacts, ReportCache cache, ExecutorService executor,
+                                ReportData.Builder builder) throws IOException {
+        int featureCount = 0;
+        for (List<FeatureScanner.Slice> features : shardFeatures) {
+            featureCount += features.size();
+        }
 
-                        data.scenarios.add(scenario);
-                        data.totalTests++;
-                        if ("passed".equals(scenario.status)) {
-                            data.passedTests++;
-                        } else if ("failed".equals(scenario.status)) {
-                            data.failedTests++;
-                        }
-                        data.totalDuration += scenario.duration;
+        int parsed = 0;
+        List<ShardSource> sources = openSources(jsonFiles, shardFeatures, artifacts, cache, executor);
+        try {
+            if (sources.size() == 1) {
+                // A single file keeps its feature order
+                TestScenario scenario;
+                while ((scenario = sources.get(0).next()) != null) {
+                    builder.add(scenario);
+                }
+            } else {
+                ShardMerger merger = new ShardMerger();
+                for (int i = 0; i < sources.size(); i++) {
+                    merger.scan(i, sources.get(i));
+                }
+                List<ShardSource> kept = openSources(jsonFiles, shardFeatures, artifacts, cache, executor);
+                try {
+                    for (int i = 0; i < kept.size(); i++) {
+                        merger.copy(i, kept.get(i), builder);
                     }
+                } finally {
+                    closeSources(kept);
                 }
+                builder.sortByStart();
+                System.out.println("Merged " + sources.size() + " result files ("
+                    + merger.duplicates() + " retried scenarios deduplicated)");
             }
+            for (ShardSource source : sources) {
+                parsed += source.parsedFeatures();
+            }
+        } finally {
+            closeSources(sources);
         }
+        System.out.println("Parsed " + parsed + " of " + featureCount + " features ("
+            + (featureCount - parsed) + " from cache)");
+    }
 
-        return data;
+    private static List<ShardSource> openSources(List<Path> jsonFiles, List<List<FeatureScanner.Slice>> shardFeatures,
+                                                 ArtifactStore artifacts, ReportCache cache, ExecutorService executor) {
+        List<ShardSource> sources = new ArrayList<>();
+        for (int i = 0; i < jsonFiles.size(); i++) {
+            Path jsonFile = jsonFiles.get(i);
+            String label = jsonFiles.size() > 1 ? jsonFile.toString() : null;
+            ShardSource source = new ShardSource(jsonFile, label, shardFeatures.get(i), artifacts, cache);
+            if (executor != null) {
+                source.prefetch(executor);
+            }
+            sources.add(source);
+        }
+        return sources;
     }
 
+    private static void closeSources(List<ShardSource> sources) {
+        for (ShardSource source : sources) {
+            source.close();
+        }
+    }
+
+    private static final ReportTemplate INDEX = ReportTemplate.compile("""
+            <div class="container">
+                <h1>📊 Test Execution Reports</h1>
+                <div class="report-cards">
+        {{cards}}
+                </div>
+            </div>
+        """, "cards");
+
+    private static final ReportTemplate INDEX_CARD = ReportTemplate.compile("""
+                    <a href="{{page}}.html" class="card">
+                        <div class="card-icon">{{icon}}</div>
+                        <h2>{{title}}</h2>
+                        <p>{{description}}</p>
+                        <span class="badge badge-{{page}}">{{badge}}</span>
+                    </a>
+        """, "page", "icon", "title", "description", "badge");
+
+    // Page, icon, title, description and badge of each card on the index
+    private static final String[][] INDEX_CARDS = {
+        {"dashboard", "📈", "Dashboard View",
+            "High-level overview with summary statistics, pass/fail rates, and key metrics at a glance.", "Summary & Stats"},
+        {"detailed", "📋", "Detailed View",
+            "Comprehensive test details including step-by-step execution, response times, and error messages.", "Full Details"},
+        {"timeline", "⏱️", "Timeline View",
+            "Visual timeline showing test execution order, duration, and response time trends.", "Time Analysis"},
+        {"live", "🔴", "Live View",
+            "Failures and step latency as they happen, updated by the LiveReportPlugin during the run.", "In Progress"}};
+
     /**
-     * Generate Dashboard HTML
+     * Write Index HTML
+     * Only pages that exist get a card: the generated formats, and the live view when
+     * LiveReportPlugin wrote one into the reports directory.
      */
-    private String generateDashboardHtml(ReportData data) {
-        double passRate = data.totalTests > 0 ? (data.passedTests * 100.0 / data.totalTests) : 0;
-        double avgDuration = data.totalTests > 0 ? (data.totalDuration / (double) data.totalTests) : 0;
+    void writeIndexHtml(HtmlWriter out) throws IOException {
+        ReportPage.start(out, "Test Reports - Index", "index.css");
+        INDEX.render(out, o -> {
+            for (String[] card : INDEX_CARDS) {
+                boolean exists = "live".equals(card[0])
+                    ? Files.exists(reportsDir.resolve("live.html")) : formats.contains(card[0]);
+                if (exists) {
+                    INDEX_CARD.render(o, ReportTemplate.text(card[0]), ReportTemplate.text(card[1]),
+                        ReportTemplate.text(card[2]), ReportTemplate.text(card[3]), ReportTemplate.text(card[4]));
+                }
+            }
+        });
+        ReportPage.end(out);
+    }
 
-        return String.format("""
-            <!DOCTYPE html>
-            <html lang="en">
-            <head>
-                <meta charset="UTF-8">
-                <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                <title>Test Dashboard</title>
-                <style>
-                    * { margin: 0; padding: 0; box-sizing: border-box; }
-                    body {
-                        font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
-                        background: #f5f7fa;
-                        padding: 20px;
-                    }
-                    .header {
-                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                        color: white;
-                        padding: 30px;
-                        border-radius: 10px;
-                        margin-bottom: 30px;
-                        box-shadow: 0 4px 6px rgba(0,0,0,0.1);
-                    }
-                    .header h1 { margin-bottom: 10px; }
-                    .header p { opacity: 0.9; }
-                    .nav {
-                        margin-bottom: 20px;
-                    }
-                    .nav a {
-                        display: inline-block;
-                        padding: 10px 20px;
-                        margin-right: 10px;
-                        background: white;
-                        color: #667eea;
-                        text-decoration: none;
-                        border-radius: 5px;
-                        font-weight: bold;
-                    }
-                    .nav a:hover { background: #667eea; color: white; }
-                    .stats-grid {
-                        display: grid;
-                        grid-template-columns: repeat(auto-fit, minmax(250px, 1fr));
-                        gap: 20px;
-                        margin-bottom: 30px;
-                    }
-                    .stat-card {
-                        background: white;
-                        padding: 25px;
-                        border-radius: 10px;
-                        box-shadow: 0 2px 4px rgba(0,0,0,0.1);
-                    }
-                    .stat-card h3 {
-                        color: #666;
-                        font-size: 0.9em;
-                        margin-bottom: 10px;
-                        text-transform: uppercase;
-                    }
-                    .stat-card .value {
-                        font-size: 2.5em;
-                        font-weight: bold;
-                        margin-bottom: 5px;
-                    }
-                    .stat-card.passed .value { color: #4caf50; }
-                    .stat-card.failed .value { color: #f44336; }
-                    .stat-card.total .value { color: #2196f3; }
-                    .stat-card.duration .value { color: #ff9800; }
-                    .chart-container {
-                        background: white;
-                        padding: 25px;
-                        border-radius: 10px;
-                        box-shadow: 0 2px 4px rgba(0,0,0,0.1);
-                        margin-bottom: 30px;
-                    }
-                    .progress-bar {
-                        width: 100%%;
-                        height: 40px;
-                        background: #e0e0e0;
-                        border-radius: 20px;
-                        overflow: hidden;
-                        margin: 20px 0;
-                    }
-                    .progress-fill {
-                        height: 100%%;
-                        background: linear-gradient(90deg, #4caf50, #8bc34a);
-                        display: flex;
-                        align-items: center;
-                        justify-content: center;
-                        color: white;
-                        font-weight: bold;
-                        transition: width 0.3s;
-                    }
-                    .test-list {
-                        background: white;
-                        border-radius: 10px;
-                        box-shadow: 0 2px 4px rgba(0,0,0,0.1);
-                        overflow: hidden;
-                    }
-                    .test-item {
-                        padding: 15px 20px;
-                        border-bottom: 1px solid #eee;
-                        display: flex;
-                        justify-content: space-between;
-                        align-items: center;
-                    }
-                    .test-item:last-child { border-bottom: none; }
-                    .test-item.failed { background: #ffebee; }
-                    .test-name { font-weight: 500; }
-                    .test-status {
-                        padding: 5px 15px;
-                        border-radius: 20px;
-                        font-size: 0.85em;
-                        font-weight: bold;
-                    }
-                    .status-passed { background: #c8e6c9; color: #2e7d32; }
-                    .status-failed { background: #ffcdd2; color: #c62828; }
-                    .test-duration { color: #666; font-size: 0.9em; }
-                </style>
-            </head>
-            <body>
-                <div class="header">
-                    <h1>📊 Test Execution Dashboard</h1>
-                    <p>Generated on: %s</p>
+    private static final ReportTemplate DASHBOARD = ReportTemplate.compile("""
+            <div class="header">
+                <h1>📊 Test Execution Dashboard</h1>
+                <p>Generated on: {{generatedAt}}</p>
+            </div>
+        {{nav}}
+            <div class="stats-grid">
+                <div class="stat-card total">
+                    <h3>Total Tests</h3>
+                    <div class="value">{{total}}</div>
                 </div>
-                <div class="nav">
-                    <a href="index.html">🏠 Home</a>
-                    <a href="dashboard.html">📈 Dashboard</a>
-                    <a href="detailed.html">📋 Detailed</a>
-                    <a href="timeline.html">⏱️ Timeline</a>
+                <div class="stat-card passed">
+                    <h3>Passed</h3>
+                    <div class="value">{{passed}}</div>
                 </div>
-                <div class="stats-grid">
-                    <div class="stat-card total">
-                        <h3>Total Tests</h3>
-                        <div class="value">%d</div>
-                    </div>
-                    <div class="stat-card passed">
-                        <h3>Passed</h3>
-                        <div class="value">%d</div>
-                    </div>
-                    <div class="stat-card failed">
-                        <h3>Failed</h3>
-                        <div class="value">%d</div>
-                    </div>
-                    <div class="stat-card duration">
-                        <h3>Avg Duration</h3>
-                        <div class="value">%.2fs</div>
-                    </div>
+                <div class="stat-card failed">
+                    <h3>Failed</h3>
+                    <div class="value">{{failed}}</div>
                 </div>
-                <div class="chart-container">
-                    <h2>Pass Rate</h2>
-                    <div class="progress-bar">
-                        <div class="progress-fill" style="width: %.2f%%">%.2f%%</div>
-                    </div>
+                <div class="stat-card duration">
+                    <h3>Avg Duration</h3>
+                    <div class="value">{{avgDuration}}s</div>
                 </div>
-                <div class="test-list">
-                    <h2 style="padding: 20px; border-bottom: 2px solid #667eea;">Test Results</h2>
-                    %s
+                <div class="stat-card duration">
+                    <h3>P95 Duration</h3>
+                    <div class="value">{{p95Duration}}s</div>
                 </div>
-            </body>
-            </html>
-            """, 
-            data.generatedAt,
-            data.totalTests,
-            data.passedTests,
-            data.failedTests,
-            avgDuration / 1000.0,
-            passRate, passRate,
-            generateTestListHtml(data)
-        );
-    }
+            </div>
+        {{regressions}}
+        {{failures}}
+            <div class="chart-container">
+                <h2>Latency Percentiles</h2>
+        {{percentiles}}
+            </div>
+        {{commands}}
+            <div class="chart-container">
+                <h2>Pass Rate</h2>
+                <div class="progress-bar">
+                    <div class="progress-fill" style="width: {{passRate}}%">{{passRate}}%</div>
+                </div>
+            </div>
+        {{trends}}
+            <div class="test-list">
+                <h2 style="padding: 20px; border-bottom: 2px solid #667eea;">Test Results</h2>
+        {{tests}}
+            </div>
+        """, "generatedAt", "nav", "total", "passed", "failed", "avgDuration", "p95Duration",
+        "regressions", "failures", "percentiles", "commands", "passRate", "trends", "tests");
 
     /**
-     * Generate Detailed HTML
+     * Write Dashboard HTML
      */
-    private String generateDetailedHtml(ReportData data) {
-        StringBuilder scenariosHtml = new StringBuilder();
-        for (TestScenario scenario : data.scenarios) {
-            StringBuilder stepsHtml = new StringBuilder();
-            for (TestStep step : scenario.steps) {
-                String statusClass = "status-" + step.status;
-                String errorHtml = step.errorMessage != null ? 
-                    String.format("<div style='color: #c62828; margin-top: 5px; font-size: 0.9em;'>❌ %s</div>", 
-                        escapeHtml(step.errorMessage)) : "";
-                
-                stepsHtml.append(String.format("""
-                    <div class="step-item">
-                        <div class="step-header">
-                            <span class="step-keyword">%s</span>
-                            <span class="step-name">%s</span>
-                            <span class="step-status %s">%s</span>
-                            <span class="step-duration">%s</span>
-                        </div>
-                        %s
-                    </div>
-                    """,
-                    escapeHtml(step.keyword),
-                    escapeHtml(step.name),
-                    statusClass,
-                    step.status.toUpperCase(),
-                    formatDuration(step.duration),
-                    errorHtml
-                ));
-            }
+    void writeDashboardHtml(ReportData data, LatencyHistory.Trends trends, RegressionGate.Result regressions,
+                            HtmlWriter out) throws IOException {
+        double passRate = data.totalTests > 0 ? (data.passedTests * 100.0 / data.totalTests) : 0;
+        double avgDuration = data.totalTests > 0 ? (data.totalDuration / (double) data.totalTests) : 0;
 
-            String scenarioStatusClass = "status-" + scenario.status;
-            scenariosHtml.append(String.format("""
-                <div class="scenario-card %s">
-                    <div class="scenario-header">
-                        <h3>%s</h3>
-                        <div class="scenario-meta">
-                            <span class="scenario-tags">%s</span>
-                            <span class="scenario-status %s">%s</span>
-                            <span class="scenario-duration">⏱️ %s</span>
-                        </div>
-                    </div>
-                    <div class="scenario-steps">
-                        <h4>Steps:</h4>
-                        %s
-                    </div>
-                </div>
-                """,
-                scenario.status,
-                escapeHtml(scenario.name),
-                scenario.tags.isEmpty() ? "" : String.join(", ", scenario.tags),
-                scenarioStatusClass,
-                scenario.status.toUpperCase(),
-                formatDuration(scenario.duration),
-                stepsHtml.toString()
-            ));
-        }
-
-        return String.format("""
-            <!DOCTYPE html>
-            <html lang="en">
-            <head>
-                <meta charset="UTF-8">
-                <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                <title>Detailed Test Report</title>
-                <style>
-                    * { margin: 0; padding: 0; box-sizing: border-box; }
-                    body {
-                        font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
-                        background: #f5f7fa;
-                        padding: 20px;
-                    }
-                    .header {
-                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                        color: white;
-                        padding: 30px;
-                        border-radius: 10px;
-                        margin-bottom: 30px;
-                        box-shadow: 0 4px 6px rgba(0,0,0,0.1);
-                    }
-                    .nav {
-                        margin-bottom: 20px;
-                    }
-                    .nav a {
-                        display: inline-block;
-                        padding: 10px 20px;
-                        margin-right: 10px;
-                        background: white;
-                        color: #667eea;
-                        text-decoration: none;
-                        border-radius: 5px;
-                        font-weight: bold;
-                    }
-                    .nav a:hover { background: #667eea; color: white; }
-                    .scenario-card {
-                        background: white;
-                        border-radius: 10px;
-                        margin-bottom: 20px;
-                        box-shadow: 0 2px 4px rgba(0,0,0,0.1);
-                        overflow: hidden;
-                    }
-                    .scenario-card.failed { border-left: 5px solid #f44336; }
-                    .scenario-card.passed { border-left: 5px solid #4caf50; }
-                    .scenario-header {
-                        padding: 20px;
-                        background: #f8f9fa;
-                        border-bottom: 1px solid #eee;
-                    }
-                    .scenario-header h3 {
-                        color: #333;
-                        margin-bottom: 10px;
-                    }
-                    .scenario-meta {
-                        display: flex;
-                        gap: 15px;
-                        align-items: center;
-                        flex-wrap: wrap;
-                    }
-                    .scenario-status {
-                        padding: 5px 15px;
-                        border-radius: 20px;
-                        font-size: 0.85em;
-                        font-weight: bold;
-                    }
-                    .status-passed { background: #c8e6c9; color: #2e7d32; }
-                    .status-failed { background: #ffcdd2; color: #c62828; }
-                    .scenario-duration {
-                        color: #666;
-                        font-size: 0.9em;
-                    }
-                    .scenario-tags {
-                        color: #667eea;
-                        font-size: 0.85em;
-                    }
-                    .scenario-steps {
-                        padding: 20px;
-                    }
-                    .scenario-steps h4 {
-                        margin-bottom: 15px;
-                        color: #666;
-                    }
-                    .step-item {
-                        padding: 15px;
-                        margin-bottom: 10px;
-                        background: #f8f9fa;
-                        border-radius: 5px;
-                        border-left: 3px solid #ddd;
-                    }
-                    .step-header {
-                        display: flex;
-                        gap: 10px;
-                        align-items: center;
-                        flex-wrap: wrap;
-                    }
-                    .step-keyword {
-                        font-weight: bold;
-                        color: #667eea;
-                    }
-                    .step-name {
-                        flex: 1;
-                        color: #333;
-                    }
-                    .step-status {
-                        padding: 3px 10px;
-                        border-radius: 15px;
-                        font-size: 0.8em;
-                        font-weight: bold;
-                    }
-                    .step-duration {
-                        color: #666;
-                        font-size: 0.85em;
-                    }
-                </style>
-            </head>
-            <body>
-                <div class="header">
-                    <h1>📋 Detailed Test Report</h1>
-                    <p>Generated on: %s | Total Tests: %d | Passed: %d | Failed: %d</p>
-                </div>
-                <div class="nav">
-                    <a href="index.html">🏠 Home</a>
-                    <a href="dashboard.html">📈 Dashboard</a>
-                    <a href="detailed.html">📋 Detailed</a>
-                    <a href="timeline.html">⏱️ Timeline</a>
-                </div>
-                %s
-            </body>
-            </html>
-            """,
-            data.generatedAt,
-            data.totalTests,
-            data.passedTests,
-            data.failedTests,
-            scenariosHtml.toString()
-        );
+        ReportPage.start(out, "Test Dashboard", "dashboard.css");
+        DASHBOARD.render(out,
+            ReportTemplate.text(data.generatedAt),
+            ReportPage::nav,
+            o -> o.num(data.totalTests),
+            o -> o.num(data.passedTests),
+            o -> o.num(data.failedTests),
+            o -> o.fixed2(avgDuration / 1000.0),
+            o -> o.fixed2(data.latency.allScenarios.getPercentile(95) / 1000.0),
+            o -> writeRegressionSummary(regressions, "chart-container", o),
+            o -> writeFailureClusters(data.failures, "chart-container", false, o),
+            o -> writePercentileTable(data.latency, PERCENTILE_ROWS, o),
+            o -> writeCommandStats(data.commands, o),
+            o -> o.fixed2(passRate),
+            o -> writeLatencyTrends(data, trends, o),
+            o -> writeTestList(data, o));
+        ReportPage.end(out);
     }
 
+    private static final ReportTemplate DETAILED = ReportTemplate.compile("""
+            <div class="header">
+                <h1>📋 Detailed Test Report</h1>
+                <p>Generated on: {{generatedAt}} | Total Tests: {{total}} | Passed: {{passed}} | Failed: {{failed}}</p>
+            </div>
+        {{nav}}
+        {{regressions}}
+        {{failures}}
+            <div class="latency-summary">
+                <h2>Latency Percentiles</h2>
+        {{percentiles}}
+            </div>
+            <div class="toolbar">
+                <input id="filter" type="search" placeholder="Search scenarios, steps, errors and tags...">
+                <select id="status">
+                    <option value="">All statuses</option>
+                    <option value="passed">Passed</option>
+                    <option value="failed">Failed</option>
+                </select>
+                <span class="count" id="count"></span>
+            </div>
+        {{scenarios}}
+        """, "generatedAt", "total", "passed", "failed", "nav", "regressions", "failures", "percentiles", "scenarios");
+
+    private static final ReportTemplate SCENARIO_CARD = ReportTemplate.compile("""
+        <div class="scenario-card {{status}}">
+            <div class="scenario-header">
+                <h3>{{name}}</h3>
+                <div class="scenario-meta">
+                    <span class="scenario-tags">{{tags}}</span>
+                    <span class="scenario-status status-{{status}}">{{statusLabel}}</span>
+                    <span class="scenario-duration">⏱️ {{duration}}</span>
+                    {{percentiles}}
+                    {{shard}}
+                </div>
+            </div>
+            <div class="scenario-steps">
+                <h4>Steps:</h4>
+        {{steps}}{{attachments}}
+            </div>
+        </div>
+        """, "status", "name", "tags", "statusLabel", "duration", "percentiles", "shard", "steps", "attachments");
+
+    private static final ReportTemplate STEP_ITEM = ReportTemplate.compile("""
+        <div class="{{cssClass}}">
+            <div class="step-header">
+                <span class="step-keyword">{{keyword}}</span>
+                <span class="step-name">{{name}}</span>
+                <span class="step-status status-{{status}}">{{statusLabel}}</span>
+                <span class="step-duration">{{duration}}</span>
+                {{percentiles}}
+                {{regression}}
+            </div>
+        {{error}}{{attachments}}
+        </div>
+        """, "cssClass", "keyword", "name", "status", "statusLabel", "duration", "percentiles", "regression", "error",
+        "attachments");
+
     /**
-     * Generate Timeline HTML
+     * Write Detailed HTML
      */
-    private String generateTimelineHtml(ReportData data) {
-        StringBuilder timelineHtml = new StringBuilder();
-        for (TestScenario scenario : data.scenarios) {
-            String statusClass = "timeline-item-" + scenario.status;
-            timelineHtml.append(String.format("""
-                <div class="timeline-item %s">
-                    <div class="timeline-marker"></div>
-                    <div class="timeline-content">
-                        <div class="timeline-header">
-                            <h3>%s</h3>
-                            <span class="timeline-status status-%s">%s</span>
-                        </div>
-                        <div class="timeline-meta">
-                            <span>⏱️ %s</span>
-                            <span>📁 %s</span>
-                        </div>
-                        <div class="timeline-bar">
-                            <div class="timeline-bar-fill" style="width: %.2f%%"></div>
-                        </div>
-                    </div>
-                </div>
-                """,
-                statusClass,
-                escapeHtml(scenario.name),
-                scenario.status,
-                scenario.status.toUpperCase(),
-                formatDuration(scenario.duration),
-                escapeHtml(scenario.featureName),
-                (scenario.duration / (double) Math.max(data.totalDuration, 1)) * 100
-            ));
-        }
-
-        return String.format("""
-            <!DOCTYPE html>
-            <html lang="en">
-            <head>
-                <meta charset="UTF-8">
-                <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                <title>Test Timeline</title>
-                <style>
-                    * { margin: 0; padding: 0; box-sizing: border-box; }
-                    body {
-                        font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
-                        background: #f5f7fa;
-                        padding: 20px;
-                    }
-                    .header {
-                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                        color: white;
-                        padding: 30px;
-                        border-radius: 10px;
-                        margin-bottom: 30px;
-                        box-shadow: 0 4px 6px rgba(0,0,0,0.1);
-                    }
-                    .nav {
-                        margin-bottom: 20px;
-                    }
-                    .nav a {
-                        display: inline-block;
-                        padding: 10px 20px;
-                        margin-right: 10px;
-                        background: white;
-                        color: #667eea;
-                        text-decoration: none;
-                        border-radius: 5px;
-                        font-weight: bold;
-                    }
-                    .nav a:hover { background: #667eea; color: white; }
-                    .timeline {
-                        position: relative;
-                        padding: 20px 0;
-                    }
-                    .timeline::before {
-                        content: '';
-                        position: absolute;
-                        left: 30px;
-                        top: 0;
-                        bottom: 0;
-                        width: 2px;
-                        background: #ddd;
-                    }
-                    .timeline-item {
-                        position: relative;
-                        padding-left: 80px;
-                        margin-bottom: 30px;
-                    }
-                    .timeline-marker {
-                        position: absolute;
-                        left: 20px;
-                        top: 10px;
-                        width: 20px;
-                        height: 20px;
-                        border-radius: 50%%;
-                        border: 3px solid white;
-                        box-shadow: 0 2px 4px rgba(0,0,0,0.2);
-                    }
-                    .timeline-item-passed .timeline-marker { background: #4caf50; }
-                    .timeline-item-failed .timeline-marker { background: #f44336; }
-                    .timeline-content {
-                        background: white;
-                        padding: 20px;
-                        border-radius: 10px;
-                        box-shadow: 0 2px 4px rgba(0,0,0,0.1);
-                    }
-                    .timeline-header {
-                        display: flex;
-                        justify-content: space-between;
-                        align-items: center;
-                        margin-bottom: 10px;
-                    }
-                    .timeline-header h3 {
-                        color: #333;
-                    }
-                    .timeline-status {
-                        padding: 5px 15px;
-                        border-radius: 20px;
-                        font-size: 0.85em;
-                        font-weight: bold;
-                    }
-                    .timeline-meta {
-                        display: flex;
-                        gap: 20px;
-                        color: #666;
-                        font-size: 0.9em;
-                        margin-bottom: 10px;
-                    }
-                    .timeline-bar {
-                        width: 100%%;
-                        height: 8px;
-                        background: #e0e0e0;
-                        border-radius: 4px;
-                        overflow: hidden;
-                    }
-                    .timeline-bar-fill {
-                        height: 100%%;
-                        background: linear-gradient(90deg, #667eea, #764ba2);
-                        transition: width 0.3s;
+    void writeDetailedHtml(ReportData data, RegressionGate.Result regressions, HtmlWriter out) throws IOException {
+        ReportPage.start(out, "Detailed Test Report", "detailed.css");
+        DETAILED.render(out,
+            ReportTemplate.text(data.generatedAt),
+            o -> o.num(data.totalTests),
+            o -> o.num(data.passedTests),
+            o -> o.num(data.failedTests),
+            ReportPage::nav,
+            o -> writeRegressionSummary(regressions, "latency-summary", o),
+            o -> writeFailureClusters(data.failures, "latency-summary", true, o),
+            o -> writePercentileTable(data.latency, PERCENTILE_ROWS, o),
+            o -> {
+                for (ScenarioView scenario : data.scenarios) {
+                    writeScenarioCard(data, regressions, scenario, o);
+                }
+            });
+        ReportPage.script(out, "search.js");
+        ReportPage.script(out, "detailed.js");
+        out.raw("<script src=\"" + SearchIndex.FILE_NAME + "\"></script>\n");
+        ReportPage.end(out);
+    }
+
+    private void writeScenarioCard(ReportData data, RegressionGate.Result regressions, ScenarioView scenario,
+                                   HtmlWriter out) throws IOException {
+        String status = scenario.status();
+        String name = scenario.name();
+        SCENARIO_CARD.render(out,
+            ReportTemplate.text(status),
+            ReportTemplate.text(name),
+            o -> {
+                List<String> tags = scenario.tags();
+                for (int i = 0; i < tags.size(); i++) {
+                    if (i > 0) {
+                        o.raw(", ");
                     }
-                </style>
-            </head>
-            <body>
-                <div class="header">
-                    <h1>⏱️ Test Execution Timeline</h1>
-                    <p>Generated on: %s | Total Duration: %s</p>
+                    o.text(tags.get(i));
+                }
+            },
+            o -> o.upper(status),
+            o -> o.duration(scenario.duration()),
+            o -> writePercentileHint("scenario-percentiles", data.latency.scenarios.get(name), o),
+            o -> {
+                if (scenario.shard() != null) {
+                    o.raw("<span class=\"scenario-shard\">").text(scenario.shard()).raw("</span>");
+                }
+            },
+            o -> {
+                for (StepView step : scenario.steps()) {
+                    writeStepItem(data, regressions, step, o);
+                }
+            },
+            o -> writeAttachments(scenario.attachments(), o));
+    }
+
+    private void writeStepItem(ReportData data, RegressionGate.Result regressions, StepView step,
+                               HtmlWriter out) throws IOException {
+        String stepKey = step.key();
+        RegressionGate.Regression regression = regressions != null ? regressions.get(stepKey) : null;
+        STEP_ITEM.render(out,
+            o -> o.raw(regression != null ? "step-item regressed" : "step-item"),
+            ReportTemplate.text(step.keyword()),
+            ReportTemplate.text(step.name()),
+            ReportTemplate.text(step.status()),
+            o -> o.upper(step.status()),
+            o -> o.duration(step.duration()),
+            o -> writePercentileHint("step-percentiles", data.latency.steps.get(stepKey), o),
+            o -> {
+                if (regression != null) {
+                    o.raw("<span class=\"regression-badge\" title=\"Median ")
+                        .duration(regression.currentMedian).raw(" vs ").duration(regression.baselineMedian)
+                        .raw(" in baseline\">🐢 ×").fixed2(regression.ratio).raw("</span>");
+                }
+            },
+            o -> {
+                // A repeated failure links to its cluster instead of repeating the stack trace
+                FailureClusters.Cluster cluster = data.failures.of(step);
+                if (cluster != null && cluster.size() > 1) {
+                    o.raw("<div style='color: #c62828; margin-top: 5px; font-size: 0.9em;'>❌ <a href=\"#cluster-")
+                        .raw(cluster.hash).raw("\">").text(cluster.title).raw("</a> (same failure in ")
+                        .num(cluster.size()).raw(" steps)</div>");
+                } else if (step.errorMessage() != null) {
+                    o.raw("<div style='color: #c62828; margin-top: 5px; font-size: 0.9em;'>❌ ")
+                        .text(step.errorMessage())
+                        .raw("</div>");
+                }
+            },
+            o -> {
+                SpanBreakdown spans = step.spans();
+                if (spans != null) {
+                    spans.writeHtml(o);
+                }
+                PageTimings pages = step.pages();
+                if (pages != null) {
+                    pages.writeHtml(step.duration(), o);
+                }
+                writeAttachments(step.attachments(), o);
+            });
+    }
+
+    private static final ReportTemplate TIMELINE = ReportTemplate.compile("""
+            <div class="header">
+                <h1>⏱️ Test Execution Timeline</h1>
+                <p>Generated on: {{generatedAt}} | Total Duration: {{totalDuration}} | Scenario p50: {{p50}} · p95: {{p95}} · p99: {{p99}} · max: {{max}}</p>
+            </div>
+        {{nav}}
+        {{gantt}}
+            <div class="timeline">
+        {{items}}
+            </div>
+        """, "generatedAt", "totalDuration", "p50", "p95", "p99", "max", "nav", "gantt", "items");
+
+    private static final ReportTemplate TIMELINE_ITEM = ReportTemplate.compile("""
+        <div class="timeline-item timeline-item-{{status}}">
+            <div class="timeline-marker"></div>
+            <div class="timeline-content">
+                <div class="timeline-header">
+                    <h3>{{name}}</h3>
+                    <span class="timeline-status status-{{status}}">{{statusLabel}}</span>
                 </div>
-                <div class="nav">
-                    <a href="index.html">🏠 Home</a>
-                    <a href="dashboard.html">📈 Dashboard</a>
-                    <a href="detailed.html">📋 Detailed</a>
-                    <a href="timeline.html">⏱️ Timeline</a>
+                <div class="timeline-meta">
+                    <span>⏱️ {{duration}}</span>
+                    <span>📁 {{feature}}</span>
+                    {{worker}}
                 </div>
-                <div class="timeline">
-                    %s
+                <div class="timeline-bar">
+                    <div class="timeline-bar-fill" style="left: {{left}}%; width: {{width}}%"></div>
                 </div>
-            </body>
-            </html>
-            """,
-            data.generatedAt,
-            formatDuration(data.totalDuration),
-            timelineHtml.toString()
-        );
-    }
-
-    private String generateTestListHtml(ReportData data) {
-        StringBuilder html = new StringBuilder();
-        for (TestScenario scenario : data.scenarios) {
-            String statusClass = "status-" + scenario.status;
-            html.append(String.format("""
-                <div class="test-item %s">
-                    <div>
-                        <div class="test-name">%s</div>
-                        <div class="test-duration">⏱️ %s</div>
-                    </div>
-                    <div>
-                        <span class="test-status %s">%s</span>
-                    </div>
+            </div>
+        </div>
+        """, "status", "name", "statusLabel", "duration", "feature", "worker", "left", "width");
+
+    /**
+     * Write Timeline HTML
+     */
+    void writeTimelineHtml(ReportData data, HtmlWriter out) throws IOException {
+        TimelineLayout layout = TimelineLayout.of(data.scenarios);
+        TimelineLayout.Bar[] barsByScenario = new TimelineLayout.Bar[data.totalTests];
+        for (TimelineLayout.Lane lane : layout.lanes) {
+            for (TimelineLayout.Bar bar : lane.bars) {
+                barsByScenario[bar.scenario.index] = bar;
+            }
+        }
+        // Position and length of each scenario within the run's wall time
+        long span = Math.max(layout.span, 1);
+        LatencySnapshot scenarioLatency = data.latency.allScenarios;
+
+        ReportPage.start(out, "Test Timeline", "timeline.css");
+        TIMELINE.render(out,
+            ReportTemplate.text(data.generatedAt),
+            o -> o.duration(data.totalDuration),
+            o -> o.duration(scenarioLatency.getPercentile(50)),
+            o -> o.duration(scenarioLatency.getPercentile(95)),
+            o -> o.duration(scenarioLatency.getPercentile(99)),
+            o -> o.duration(scenarioLatency.getMax()),
+            ReportPage::nav,
+            o -> writeGantt(layout, o),
+            o -> {
+                for (TimelineLayout.Bar bar : barsByScenario) {
+                    ScenarioView scenario = bar.scenario;
+                    TIMELINE_ITEM.render(o,
+                        ReportTemplate.text(scenario.status()),
+                        ReportTemplate.text(scenario.name()),
+                        s -> s.upper(scenario.status()),
+                        s -> s.duration(scenario.duration()),
+                        ReportTemplate.text(scenario.featureName()),
+                        s -> {
+                            if (scenario.worker() != null) {
+                                s.raw("<span>🧵 ").text(scenario.worker()).raw("</span>");
+                            }
+                        },
+                        s -> s.fixed2(bar.start * 100.0 / span),
+                        s -> s.fixed2((bar.end - bar.start) * 100.0 / span));
+                }
+            });
+        ReportPage.end(out);
+    }
+
+    /**
+     * Link attachments from the artifact store; images are lazy-loaded thumbnails
+     */
+    private void writeAttachments(List<Attachment> attachments, HtmlWriter out) throws IOException {
+        if (attachments.isEmpty()) {
+            return;
+        }
+        out.raw("<div class=\"attachments\">");
+        for (Attachment attachment : attachments) {
+            out.raw("<a class=\"attachment\" target=\"_blank\" href=\"").text(attachment.path).raw("\">");
+            if (attachment.isImage()) {
+                out.raw("<img loading=\"lazy\" src=\"").text(attachment.path)
+                    .raw("\" alt=\"").text(attachment.name).raw("\">");
+            }
+            out.raw("📎 ").text(attachment.name != null ? attachment.name : attachment.mimeType)
+                .raw(" (").num(Math.max(1, attachment.size / 1024)).raw(" KB)</a>");
+        }
+        out.raw("</div>\n");
+    }
+
+    private static final ReportTemplate LATENCY_TRENDS = ReportTemplate.compile("""
+            <div class="chart-container">
+                <h2>Latency Trends</h2>
+                <p class="section-note">Last {{runs}} runs, oldest to newest; change compares this run with the median of earlier runs</p>
+                <table class="trend-table">
+        {{sections}}
+                </table>
+            </div>
+        """, "runs", "sections");
+
+    private static final ReportTemplate TREND_SECTION = ReportTemplate.compile("""
+        <tr><th colspan="5"><h3>{{title}}</h3></th></tr>
+        <tr><th>Name</th><th>Trend</th><th>Latest</th><th>Median</th><th>Change</th></tr>
+        {{rows}}""", "title", "rows");
+
+    private static final ReportTemplate TREND_ROW = ReportTemplate.compile("""
+        <tr><td>{{name}}</td><td>{{sparkline}}</td><td class="num">{{latest}}</td><td class="num">{{median}}</td><td class="num">{{change}}</td></tr>
+        """, "name", "sparkline", "latest", "median", "change");
+
+    /**
+     * Latency of this run's scenarios and slowest steps over the recorded history
+     */
+    private void writeLatencyTrends(ReportData data, LatencyHistory.Trends trends, HtmlWriter out) throws IOException {
+        if (trends == null) {
+            return;
+        }
+        Set<String> scenarioKeys = new LinkedHashSet<>();
+        for (ScenarioView scenario : data.scenarios) {
+            scenarioKeys.add(LatencyHistory.scenarioKey(scenario));
+        }
+        Map<String, Long> stepDurations = new HashMap<>();
+        for (int step = 0; step < data.stepCount(); step++) {
+            stepDurations.merge(data.strings.get(data.stepKeys[step]), data.stepDurations[step], Math::max);
+        }
+        List<String> stepKeys = new ArrayList<>(stepDurations.keySet());
+        stepKeys.sort(Comparator.comparing(stepDurations::get, Comparator.reverseOrder()));
+
+        LATENCY_TRENDS.render(out,
+            o -> o.num(trends.runCount()),
+            o -> {
+                writeTrendRows("Scenarios", scenarioKeys, trends.scenarios, o);
+                writeTrendRows("Slowest Steps", stepKeys.subList(0, Math.min(TREND_STEPS, stepKeys.size())), trends.steps, o);
+            });
+    }
+
+    private void writeTrendRows(String title, Collection<String> keys, Map<String, long[]> series,
+                                HtmlWriter out) throws IOException {
+        TREND_SECTION.render(out, ReportTemplate.text(title), o -> {
+            for (String key : keys) {
+                long[] values = series.get(key);
+                if (values == null) {
+                    continue;
+                }
+                long latest = values[values.length - 1];
+                long median = median(values, values.length - 1);
+                TREND_ROW.render(o,
+                    ReportTemplate.text(key),
+                    r -> writeSparkline(values, r),
+                    r -> {
+                        if (latest >= 0) {
+                            r.duration(latest);
+                        }
+                    },
+                    r -> {
+                        if (median >= 0) {
+                            r.duration(median);
+                        }
+                    },
+                    r -> {
+                        if (latest >= 0 && median > 0) {
+                            double change = (latest - median) * 100.0 / median;
+                            // More than 20% off the median is highlighted
+                            r.raw(change > 20 ? "<span class=\"trend-slower\">" : change < -20 ? "<span class=\"trend-faster\">" : "<span>");
+                            r.raw(change < 0 ? "-" : "+").fixed2(Math.abs(change)).raw("%</span>");
+                        }
+                    });
+            }
+        });
+    }
+
+    /**
+     * Median of the recorded values before the given index, or -1 when there are none
+     */
+    private static long median(long[] values, int end) {
+        long[] recorded = new long[end];
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (values[i] >= 0) {
+                recorded[count++] = values[i];
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        Arrays.sort(recorded, 0, count);
+        return recorded[count / 2];
+    }
+
+    /**
+     * Inline SVG line of the values; runs without a value are left out
+     */
+    private static void writeSparkline(long[] values, HtmlWriter out) throws IOException {
+        final int width = 160;
+        final int height = 30;
+        long max = 1;
+        for (long value : values) {
+            max = Math.max(max, value);
+        }
+        out.raw("<svg class=\"sparkline\" width=\"").num(width).raw("\" height=\"").num(height).raw("\"><polyline points=\"");
+        long lastX = -1;
+        long lastY = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0) {
+                continue;
+            }
+            lastX = values.length > 1 ? 2 + (long) i * (width - 4) / (values.length - 1) : width / 2;
+            lastY = height - 2 - values[i] * (height - 4) / max;
+            out.num(lastX).raw(",").num(lastY).raw(" ");
+        }
+        out.raw("\"/>");
+        if (lastX >= 0) {
+            out.raw("<circle r=\"2.5\" cx=\"").num(lastX).raw("\" cy=\"").num(lastY).raw("\"/>");
+        }
+        out.raw("</svg>");
+    }
+
+    private static final ReportTemplate GANTT = ReportTemplate.compile("""
+            <div class="gantt">
+                <h2>Execution by Worker</h2>
+                <div class="gantt-stats">
+                    <span>Wall time: <b>{{wallTime}}</b></span>
+                    <span>Workers: <b>{{workers}}</b></span>
+                    <span>Utilization: <b>{{utilization}}%</b></span>
+                    <span>Idle worker time: <b>{{idle}}</b></span>
+                    <span title="Longest scenario: the wall time with unlimited workers">Critical path: <b>{{criticalPath}}</b></span>
+                    <span title="Wall time with the same workers and perfect balancing">Balanced: <b>{{balanced}}</b></span>
                 </div>
-                """,
-                scenario.status,
-                escapeHtml(scenario.name),
-                formatDuration(scenario.duration),
-                statusClass,
-                scenario.status.toUpperCase()
-            ));
+        {{note}}
+                <div class="gantt-axis">{{axis}}</div>
+        {{lanes}}
+            </div>
+        """, "wallTime", "workers", "utilization", "idle", "criticalPath", "balanced", "note", "axis", "lanes");
+
+    private static final ReportTemplate GANTT_LANE = ReportTemplate.compile("""
+        <div class="gantt-lane"><div class="gantt-label" title="{{worker}}">{{worker}} · {{utilization}}%</div><div class="gantt-track">{{bars}}</div></div>
+        """, "worker", "utilization", "bars");
+
+    // Hooks take the unfilled space at both ends of the bar, so the setup spacer leads the segments
+    private static final ReportTemplate GANTT_BAR = ReportTemplate.compile("""
+        <div class="gantt-bar {{status}}" style="left: {{left}}%; width: {{width}}%" title="{{name}} ({{duration}})">\
+        <div style="width: {{setup}}%"></div>{{segments}}</div>""",
+        "status", "left", "width", "name", "duration", "setup", "segments");
+
+    private static final ReportTemplate GANTT_SEGMENT = ReportTemplate.compile("""
+        <div class="gantt-segment {{status}}" style="width: {{width}}%" title="{{keyword}}{{name}} ({{duration}})"></div>""",
+        "status", "width", "keyword", "name", "duration");
+
+    /**
+     * Gantt chart with one lane per worker and step segments inside each scenario bar
+     */
+    private void writeGantt(TimelineLayout layout, HtmlWriter out) throws IOException {
+        long span = Math.max(layout.span, 1);
+        GANTT.render(out,
+            o -> o.duration(layout.span),
+            o -> o.num(layout.lanes.size()),
+            o -> o.fixed2(layout.utilization() * 100),
+            o -> o.duration(layout.idle()),
+            o -> o.duration(layout.criticalPath),
+            o -> o.duration(layout.balancedSpan()),
+            o -> {
+                if (!layout.wallClock) {
+                    o.raw("<p class=\"section-note\">Start times were not reported; scenarios are shown back to back.</p>\n");
+                }
+            },
+            o -> {
+                for (int tick = 0; tick <= 4; tick++) {
+                    o.raw("<span style=\"left: ").num(tick * 25L).raw("%\">").duration(layout.span * tick / 4).raw("</span>");
+                }
+            },
+            o -> {
+                for (TimelineLayout.Lane lane : layout.lanes) {
+                    GANTT_LANE.render(o,
+                        ReportTemplate.text(lane.worker),
+                        l -> l.fixed2(layout.utilization(lane) * 100),
+                        l -> {
+                            for (TimelineLayout.Bar bar : lane.bars) {
+                                writeGanttBar(bar, span, l);
+                            }
+                        });
+                }
+            });
+    }
+
+    private static void writeGanttBar(TimelineLayout.Bar bar, long span, HtmlWriter out) throws IOException {
+        ScenarioView scenario = bar.scenario;
+        long length = Math.max(bar.end - bar.start, 1);
+        GANTT_BAR.render(out,
+            ReportTemplate.text(scenario.status()),
+            o -> o.fixed2(bar.start * 100.0 / span),
+            o -> o.fixed2((bar.end - bar.start) * 100.0 / span),
+            ReportTemplate.text(scenario.name()),
+            o -> o.duration(bar.end - bar.start),
+            o -> o.fixed2(scenario.setupDuration() * 100.0 / length),
+            o -> {
+                for (StepView step : scenario.steps()) {
+                    GANTT_SEGMENT.render(o,
+                        ReportTemplate.text(step.status()),
+                        g -> g.fixed2(step.duration() * 100.0 / length),
+                        ReportTemplate.text(step.keyword()),
+                        ReportTemplate.text(step.name()),
+                        g -> g.duration(step.duration()));
+                }
+            });
+    }
+
+    private static final ReportTemplate REGRESSION_SUMMARY = ReportTemplate.compile("""
+        <div class="{{cssClass}}">
+        <h2>{{title}}</h2>
+        <p class="section-note">{{regressed}} of {{checked}} steps regressed (budget {{budget}}) against {{baseline}}</p>
+        {{table}}</div>
+        """, "cssClass", "title", "regressed", "checked", "budget", "baseline", "table");
+
+    private static final ReportTemplate REGRESSION_TABLE = ReportTemplate.compile("""
+        <table class="percentile-table">
+        <tr><th>Step</th><th>Baseline median</th><th>Current median</th><th>Slowdown</th><th>p-value</th></tr>
+        {{rows}}</table>
+        """, "rows");
+
+    private static final ReportTemplate REGRESSION_ROW = ReportTemplate.compile("""
+        <tr><td>{{step}}</td><td>{{baselineMedian}}</td><td>{{currentMedian}}</td><td>×{{ratio}}</td><td>{{pValue}}</td></tr>
+        """, "step", "baselineMedian", "currentMedian", "ratio", "pValue");
+
+    /**
+     * Steps that got slower than the baseline; nothing is written without a baseline
+     * @param cssClass Class of the surrounding box, matching the page's card style
+     */
+    static void writeRegressionSummary(RegressionGate.Result regressions, String cssClass,
+                                       HtmlWriter out) throws IOException {
+        if (regressions == null) {
+            return;
+        }
+        REGRESSION_SUMMARY.render(out,
+            o -> o.raw(cssClass),
+            o -> o.raw(regressions.exceedsBudget() ? "🐢 Performance Regressions" : "✅ Performance Regressions"),
+            o -> o.num(regressions.regressions.size()),
+            o -> o.num(regressions.checkedSteps),
+            o -> o.num(regressions.budget),
+            ReportTemplate.text(regressions.baseline),
+            o -> {
+                if (!regressions.regressions.isEmpty()) {
+                    REGRESSION_TABLE.render(o, t -> {
+                        for (RegressionGate.Regression regression : regressions.regressions) {
+                            REGRESSION_ROW.render(t,
+                                ReportTemplate.text(regression.step),
+                                r -> r.duration(regression.baselineMedian),
+                                r -> r.duration(regression.currentMedian),
+                                r -> r.fixed2(regression.ratio),
+                                r -> r.raw(Double.isNaN(regression.pValue)
+                                    ? "n/a" : String.format(Locale.ROOT, "%.4f", regression.pValue)));
+                        }
+                    });
+                }
+            });
+    }
+
+    private static final ReportTemplate FAILURE_CLUSTERS = ReportTemplate.compile("""
+        <div class="{{cssClass}}">
+        <h2>❌ Failure Clusters</h2>
+        <p class="section-note">{{failedSteps}} failed steps, {{clusterCount}} distinct failures</p>
+        {{clusters}}</div>
+        """, "cssClass", "failedSteps", "clusterCount", "clusters");
+
+    private static final ReportTemplate FAILURE_CLUSTER = ReportTemplate.compile("""
+        <div class="failure-cluster" id="cluster-{{hash}}">
+        <div class="cluster-title"><span class="cluster-count">×{{count}}</span> {{title}}</div>
+        <div class="cluster-scenarios">{{scenarios}}</div>
+        {{example}}</div>
+        """, "hash", "count", "title", "scenarios", "example");
+
+    /**
+     * One block per distinct failure with its count, normalized message and affected scenarios
+     * @param withExamples Whether to include the complete error of the first occurrence; without
+     *                     it the blocks link to the cluster in the detailed report
+     */
+    static void writeFailureClusters(FailureClusters failures, String cssClass, boolean withExamples,
+                                     HtmlWriter out) throws IOException {
+        if (failures.clusters.isEmpty()) {
+            return;
+        }
+        int failedSteps = 0;
+        for (FailureClusters.Cluster cluster : failures.clusters) {
+            failedSteps += cluster.size();
+        }
+        int failedStepCount = failedSteps;
+        FAILURE_CLUSTERS.render(out,
+            o -> o.raw(cssClass),
+            o -> o.num(failedStepCount),
+            o -> o.num(failures.clusters.size()),
+            o -> {
+                for (FailureClusters.Cluster cluster : failures.clusters) {
+                    FAILURE_CLUSTER.render(o,
+                        c -> c.raw(cluster.hash),
+                        c -> c.num(cluster.size()),
+                        c -> {
+                            if (withExamples) {
+                                c.raw("<code>").text(cluster.title).raw("</code>");
+                            } else {
+                                c.raw("<a href=\"detailed.html#cluster-").raw(cluster.hash).raw("\"><code>")
+                                    .text(cluster.title).raw("</code></a>");
+                            }
+                        },
+                        c -> {
+                            List<ScenarioView> scenarios = cluster.scenarios;
+                            for (int i = 0; i < Math.min(scenarios.size(), CLUSTER_SCENARIOS); i++) {
+                                if (i > 0) {
+                                    c.raw(", ");
+                                }
+                                c.text(scenarios.get(i).name());
+                            }
+                            if (scenarios.size() > CLUSTER_SCENARIOS) {
+                                c.raw(" and ").num(scenarios.size() - CLUSTER_SCENARIOS).raw(" more scenarios");
+                            }
+                        },
+                        c -> {
+                            if (withExamples) {
+                                c.raw("<details><summary>Example error</summary><pre class=\"cluster-example\">")
+                                    .text(cluster.example).raw("</pre></details>\n");
+                            }
+                        });
+                }
+            });
+    }
+
+    /**
+     * Table of percentiles for all scenarios, then scenarios and steps with the highest p95
+     * @param limit Maximum rows per section
+     */
+    static void writePercentileTable(LatencyStats stats, int limit, HtmlWriter out) throws IOException {
+        out.raw("""
+            <table class="percentile-table">
+            <tr><th>Name</th><th>Count</th><th>p50</th><th>p90</th><th>p95</th><th>p99</th><th>Max</th></tr>
+            """);
+        writePercentileRow("All scenarios", stats.allScenarios, out);
+
+        List<String> scenarios = new ArrayList<>(stats.scenarios.keySet());
+        scenarios.sort(Comparator.comparingLong((String name) -> stats.scenarios.get(name).getPercentile(95)).reversed());
+        writePercentileSection("Scenarios", scenarios, stats.scenarios, limit, out);
+        writePercentileSection("Steps", stats.stepsByP95(), stats.steps, limit, out);
+        out.raw("</table>\n");
+    }
+
+    private static final ReportTemplate COMMAND_STATS = ReportTemplate.compile("""
+        <div class="chart-container">
+        <h2>🌐 WebDriver Commands</h2>
+        <p class="section-note">{{calls}} calls of {{commandCount}} commands</p>
+        <table class="percentile-table">
+        <tr><th>Command</th><th>Count</th><th>p50</th><th>p90</th><th>p95</th><th>p99</th><th>Max</th><th>Total</th><th>Payload</th></tr>
+        {{commands}}</table>
+        <table class="percentile-table">
+        <tr><th>Slowest calls</th><th>Step</th><th>Duration</th><th>Payload</th></tr>
+        {{slowest}}</table>
+        </div>
+        """, "calls", "commandCount", "commands", "slowest");
+
+    private static final ReportTemplate COMMAND_ROW = ReportTemplate.compile("""
+        <tr><td>{{name}}</td><td>{{count}}</td>{{percentiles}}<td>{{max}}</td><td>{{total}}</td><td>{{payload}}</td></tr>
+        """, "name", "count", "percentiles", "max", "total", "payload");
+
+    private static final ReportTemplate SLOW_CALL_ROW = ReportTemplate.compile("""
+        <tr><td>{{command}}{{detail}}</td><td>{{scenario}} › {{keyword}}{{step}}</td><td>{{duration}}</td><td>{{payload}}</td></tr>
+        """, "command", "detail", "scenario", "keyword", "step", "duration", "payload");
+
+    /**
+     * Percentiles per WebDriver command and the slowest calls; nothing when the driver was not instrumented
+     */
+    static void writeCommandStats(DriverCommandStats stats, HtmlWriter out) throws IOException {
+        if (stats.isEmpty()) {
+            return;
         }
-        return html.toString();
+        COMMAND_STATS.render(out,
+            o -> o.num(stats.calls),
+            o -> o.num(stats.commands.size()),
+            o -> {
+                for (DriverCommandStats.Command command : stats.commands) {
+                    COMMAND_ROW.render(o,
+                        ReportTemplate.text(command.name),
+                        r -> r.num(command.latency.getCount()),
+                        r -> {
+                            for (double percentile : LatencyStats.PERCENTILES) {
+                                r.raw("<td>").duration(command.latency.getPercentile(percentile)).raw("</td>");
+                            }
+                        },
+                        r -> r.duration(command.latency.getMax()),
+                        r -> r.duration(command.total),
+                        r -> writeSize(command.payload, r));
+                }
+            },
+            o -> {
+                for (DriverCommandStats.Call call : stats.slowest) {
+                    SLOW_CALL_ROW.render(o,
+                        ReportTemplate.text(call.command),
+                        r -> {
+                            if (call.detail != null) {
+                                r.raw("<br><code>").text(call.detail).raw("</code>");
+                            }
+                        },
+                        ReportTemplate.text(call.scenario.name()),
+                        ReportTemplate.text(call.step.keyword()),
+                        ReportTemplate.text(call.step.name()),
+                        r -> r.duration(call.duration),
+                        r -> writeSize(call.payload, r));
+                }
+            });
     }
 
-    private String formatDuration(long milliseconds) {
-        if (milliseconds < 1000) {
-            return milliseconds + "ms";
+    private static void writeSize(long bytes, HtmlWriter out) throws IOException {
+        if (bytes < 1024) {
+            out.num(bytes).raw(" B");
         } else {
-            double seconds = milliseconds / 1000.0;
-            return String.format("%.2fs", seconds);
+            out.num(bytes / 1024).raw(" KB");
         }
     }
 
-    private String escapeHtml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&#39;");
+    private static void writePercentileSection(String title, List<String> names, Map<String, LatencySnapshot> summaries,
+                                               int limit, HtmlWriter out) throws IOException {
+        out.raw("<tr class=\"section\"><td colspan=\"7\">").text(title);
+        if (names.size() > limit) {
+            out.raw(" (slowest ").num(limit).raw(" of ").num(names.size()).raw(")");
+        }
+        out.raw("</td></tr>\n");
+        for (String name : names.subList(0, Math.min(limit, names.size()))) {
+            writePercentileRow(name, summaries.get(name), out);
+        }
+    }
+
+    private static void writePercentileRow(String name, LatencySnapshot summary, HtmlWriter out) throws IOException {
+        out.raw("<tr><td>").text(name).raw("</td><td>").num(summary.getCount());
+        for (double percentile : LatencyStats.PERCENTILES) {
+            out.raw("</td><td>").duration(summary.getPercentile(percentile));
+        }
+        out.raw("</td><td>").duration(summary.getMax()).raw("</td></tr>\n");
     }
 
-    private void writeFile(String filePath, String content) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(content);
+    /**
+     * p95 of all occurrences of a scenario or step, with the other percentiles as tooltip
+     * Nothing is written for names that occurred only once.
+     */
+    private static void writePercentileHint(String cssClass, LatencySnapshot summary, HtmlWriter out) throws IOException {
+        if (summary == null || summary.getCount() < 2) {
+            return;
+        }
+        out.raw("<span class=\"").raw(cssClass).raw("\" title=\"");
+        for (double percentile : LatencyStats.PERCENTILES) {
+            out.raw("p").num((long) percentile).raw(" ").duration(summary.getPercentile(percentile)).raw(" · ");
         }
+        out.raw("max ").duration(summary.getMax()).raw(" over ").num(summary.getCount()).raw(" executions\">p95 ");
+        out.duration(summary.getPercentile(95)).raw("</span>");
     }
 
-    // Data classes
-    private static class ReportData {
-        String generatedAt;
-        int totalTests = 0;
-        int passedTests = 0;
-        int failedTests = 0;
-        long totalDuration = 0;
-        List<TestScenario> scenarios = new ArrayList<>();
+    private static final ReportTemplate TEST_ITEM = ReportTemplate.compile("""
+        <div class="test-item {{status}}">
+            <div>
+                <div class="test-name">{{name}}</div>
+                <div class="test-duration">⏱️ {{duration}}</div>
+            </div>
+            <div>
+                <span class="test-status status-{{status}}">{{statusLabel}}</span>
+            </div>
+        </div>
+        """, "status", "name", "duration", "statusLabel");
+
+    private void writeTestList(ReportData data, HtmlWriter out) throws IOException {
+        for (ScenarioView scenario : data.scenarios) {
+            String status = scenario.status();
+            TEST_ITEM.render(out,
+                ReportTemplate.text(status),
+                ReportTemplate.text(scenario.name()),
+                o -> o.duration(scenario.duration()),
+                o -> o.upper(status));
+        }
     }
 
-    private static class TestScenario {
-        String featureName;
-        String name;
-        String status = "passed";
-        long duration = 0;
-        List<String> tags = new ArrayList<>();
-        List<TestStep> steps = new ArrayList<>();
+    /**
+     * Stream a page straight to its file in the reports directory
+     */
+    private void writePage(String fileName, PageRenderer renderer) throws IOException {
+        try (HtmlWriter out = HtmlWriter.open(reportsDir.resolve(fileName), timings)) {
+            renderer.render(out);
+        }
     }
 
-    private static class TestStep {
-        String keyword;
-        String name;
-        String status = "passed";
-        long duration = 0;
-        String errorMessage;
+    @FunctionalInterface
+    interface PageRenderer {
+        void render(HtmlWriter out) throws IOException;
     }
 }
-
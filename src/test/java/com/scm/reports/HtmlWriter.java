@@ -0,0 +1,157 @@
+package com.scm.reports;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Streaming HTML output used by the report renderers
+ * Text is escaped while it is copied into the buffer, so no intermediate strings are built
+ * and memory use is bounded by the buffer size rather than by the size of the page.
+ */
+class HtmlWriter implements Closeable {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final Formatter formatter;
+
+    HtmlWriter(Writer out) {
+        this.out = out;
+        // Numbers end up in CSS and scripts, which always use a decimal point
+        this.formatter = new Formatter(out, Locale.ROOT);
+    }
+
+    /**
+     * Open a UTF-8 writer on a file channel, truncating any previous content
+     * @param file Target file
+     */
+    static HtmlWriter open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new HtmlWriter(new BufferedWriter(
+            Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    /**
+     * Open a UTF-8 writer on a file like open(Path), adding the time spent in writes to the timings
+     */
+    static HtmlWriter open(Path file, ReportTimings timings) throws IOException {
+        return new HtmlWriter(timings.newWriter(file, BUFFER_SIZE));
+    }
+
+    /**
+     * Write markup as-is
+     */
+    HtmlWriter raw(String markup) throws IOException {
+        out.write(markup);
+        return this;
+    }
+
+    /**
+     * Write text with HTML special characters escaped; null is written as nothing
+     */
+    HtmlWriter text(String text) throws IOException {
+        if (text == null) {
+            return this;
+        }
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            String entity = entity(text.charAt(i));
+            if (entity != null) {
+                if (i > start) {
+                    out.write(text, start, i - start);
+                }
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            out.write(text, start, length - start);
+        }
+        return this;
+    }
+
+    /**
+     * Write text upper-cased and escaped
+     */
+    HtmlWriter upper(String text) throws IOException {
+        if (text == null) {
+            return this;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toUpperCase(text.charAt(i));
+            String entity = entity(c);
+            if (entity != null) {
+                out.write(entity);
+            } else {
+                out.write(c);
+            }
+        }
+        return this;
+    }
+
+    HtmlWriter num(long value) throws IOException {
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a number with two decimals and a decimal point, formatted straight into the output
+     */
+    HtmlWriter fixed2(double value) throws IOException {
+        formatter.format("%.2f", value);
+        // Formatter swallows I/O errors of its destination
+        if (formatter.ioException() != null) {
+            throw formatter.ioException();
+        }
+        return this;
+    }
+
+    /**
+     * Write a duration in a human-readable format (e.g. "250ms", "1.50s")
+     * @param milliseconds Duration in milliseconds
+     */
+    HtmlWriter duration(long milliseconds) throws IOException {
+        if (milliseconds < 1000) {
+            out.write(Long.toString(milliseconds));
+            out.write("ms");
+        } else {
+            // Round half-up to hundredths of a second, as %.2f does
+            long hundredths = (milliseconds + 5) / 10;
+            out.write(Long.toString(hundredths / 100));
+            out.write('.');
+            long fraction = hundredths % 100;
+            if (fraction < 10) {
+                out.write('0');
+            }
+            out.write(Long.toString(fraction));
+            out.write('s');
+        }
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        formatter.close();
+    }
+
+    private static String entity(char c) {
+        return switch (c) {
+            case '&' -> "&amp;";
+            case '<' -> "&lt;";
+            case '>' -> "&gt;";
+            case '"' -> "&quot;";
+            case '\'' -> "&#39;";
+            default -> null;
+        };
+    }
+}
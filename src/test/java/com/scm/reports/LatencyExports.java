@@ -0,0 +1,258 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Machine-readable step and scenario durations, written next to the HTML pages under exports/
+ * - latency.prom: Prometheus text format histograms for the node exporter textfile collector,
+ *   labelled by feature, scenario and tags (and step for step durations)
+ * - latency.csv: one row per scenario and per step with its raw duration
+ * - junit-timings.xml: JUnit XML with the step durations as properties of each test case
+ * -Dreport.exports selects the files (comma-separated prometheus,csv,junit; default all, none to
+ * disable) and -Dreport.prometheus.dir writes latency.prom straight into the collector directory.
+ */
+final class LatencyExports {
+    static final String DIR_NAME = "exports";
+    static final List<String> FORMATS = List.of("prometheus", "csv", "junit");
+    // Histogram bucket bounds in seconds, from quick clicks to slow page loads
+    private static final double[] BUCKETS = {0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120};
+
+    private final Path reportsDir;
+    private final ReportTimings timings;
+
+    /**
+     * @param timings Receives the time spent writing files
+     */
+    LatencyExports(Path reportsDir, ReportTimings timings) {
+        this.reportsDir = reportsDir;
+        this.timings = timings;
+    }
+
+    /**
+     * Export formats selected by -Dreport.exports
+     */
+    static List<String> selectedFormats() {
+        String value = System.getProperty("report.exports", String.join(",", FORMATS));
+        List<String> formats = new ArrayList<>();
+        for (String format : value.split(",")) {
+            String name = format.trim().toLowerCase(Locale.ROOT);
+            if (FORMATS.contains(name)) {
+                formats.add(name);
+            } else if (!name.isEmpty() && !"none".equals(name)) {
+                System.err.println("⚠️  Unknown report export: " + format + " (expected " + String.join(",", FORMATS) + ")");
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * Settings that decide which files are written where, for the up-to-date check of the parse cache
+     */
+    static String settings(List<String> formats) {
+        return "exports=" + String.join(",", formats) + "/" + System.getProperty("report.prometheus.dir");
+    }
+
+    void write(ReportData data, List<String> formats) throws IOException {
+        Path directory = reportsDir.resolve(DIR_NAME);
+        Files.createDirectories(directory);
+        if (formats.contains("prometheus")) {
+            String collectorDir = System.getProperty("report.prometheus.dir");
+            Path prometheusDir = collectorDir != null ? Paths.get(collectorDir) : directory;
+            Files.createDirectories(prometheusDir);
+            writePrometheus(data, prometheusDir.resolve("latency.prom"));
+        }
+        if (formats.contains("csv")) {
+            writeCsv(data, directory.resolve("latency.csv"));
+        }
+        if (formats.contains("junit")) {
+            writeJUnit(data, directory.resolve("junit-timings.xml"));
+        }
+    }
+
+    /**
+     * Cumulative bucket counts, sum and count of one labelled series
+     */
+    private static final class Series {
+        final long[] buckets = new long[BUCKETS.length];
+        long count;
+        long sumMillis;
+
+        void record(long millis) {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (millis <= BUCKETS[i] * 1000) {
+                    buckets[i]++;
+                }
+            }
+            count++;
+            sumMillis += millis;
+        }
+    }
+
+    /**
+     * Write the histograms to a temporary file and move it into place, as the textfile
+     * collector may read the file at any time
+     */
+    private void writePrometheus(ReportData data, Path file) throws IOException {
+        Map<String, Series> scenarioSeries = new LinkedHashMap<>();
+        Map<String, Series> stepSeries = new LinkedHashMap<>();
+        for (ScenarioView scenario : data.scenarios) {
+            String labels = "feature=\"" + label(scenario.featureName()) + "\",scenario=\"" + label(scenario.name())
+                + "\",tags=\"" + label(tags(scenario)) + "\"";
+            scenarioSeries.computeIfAbsent(labels, key -> new Series()).record(scenario.duration());
+            for (int step = data.stepOffsets[scenario.index]; step < data.stepOffsets[scenario.index + 1]; step++) {
+                if (data.stepStatuses[step] == ReportData.SKIPPED) {
+                    continue;
+                }
+                String stepLabels = labels + ",step=\"" + label(data.strings.get(data.stepKeys[step])) + "\"";
+                stepSeries.computeIfAbsent(stepLabels, key -> new Series()).record(data.stepDurations[step]);
+            }
+        }
+
+        // Not Files.createTempFile: its owner-only permissions would hide the file from the collector
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer out = timings.newWriter(temp, HtmlWriter.BUFFER_SIZE)) {
+                writeHistogram(out, "cucumber_scenario_duration_seconds", "Duration of Cucumber scenarios", scenarioSeries);
+                writeHistogram(out, "cucumber_step_duration_seconds", "Duration of Cucumber steps", stepSeries);
+                out.write("# HELP cucumber_report_generated_timestamp_seconds Time the report was generated\n");
+                out.write("# TYPE cucumber_report_generated_timestamp_seconds gauge\n");
+                out.write("cucumber_report_generated_timestamp_seconds " + Instant.now().getEpochSecond() + "\n");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeHistogram(Writer out, String name, String help, Map<String, Series> series) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " histogram\n");
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            String labels = entry.getKey();
+            Series values = entry.getValue();
+            for (int i = 0; i < BUCKETS.length; i++) {
+                out.write(name + "_bucket{" + labels + ",le=\"" + BUCKETS[i] + "\"} " + values.buckets[i] + "\n");
+            }
+            out.write(name + "_bucket{" + labels + ",le=\"+Inf\"} " + values.count + "\n");
+            out.write(name + "_sum{" + labels + "} " + values.sumMillis / 1000.0 + "\n");
+            out.write(name + "_count{" + labels + "} " + values.count + "\n");
+        }
+    }
+
+    private void writeCsv(ReportData data, Path file) throws IOException {
+        try (Writer out = timings.newWriter(file, HtmlWriter.BUFFER_SIZE)) {
+            out.write("type,feature,scenario,line,tags,worker,start,step,status,duration_ms\n");
+            for (ScenarioView scenario : data.scenarios) {
+                String prefix = csv(scenario.featureName()) + "," + csv(scenario.name()) + "," + scenario.line() + ","
+                    + csv(tags(scenario)) + "," + csv(scenario.worker()) + ","
+                    + (scenario.startTimestamp() > 0 ? Instant.ofEpochMilli(scenario.startTimestamp()).toString() : "") + ",";
+                out.write("scenario," + prefix + "," + csv(scenario.status()) + "," + scenario.duration() + "\n");
+                for (StepView step : scenario.steps()) {
+                    out.write("step," + prefix + csv(step.key()) + "," + csv(step.status()) + ","
+                        + step.duration() + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * One test suite per feature and one test case per scenario; properties are named
+     * step.<n>.name, step.<n>.status and step.<n>.duration_ms, numbered from 1
+     */
+    private void writeJUnit(ReportData data, Path file) throws IOException {
+        Map<String, List<ScenarioView>> byFeature = new LinkedHashMap<>();
+        for (ScenarioView scenario : data.scenarios) {
+            byFeature.computeIfAbsent(String.valueOf(scenario.featureName()), feature -> new ArrayList<>()).add(scenario);
+        }
+        try (HtmlWriter out = new HtmlWriter(timings.newWriter(file, HtmlWriter.BUFFER_SIZE))) {
+            out.raw("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.raw("<testsuites tests=\"").num(data.totalTests).raw("\" failures=\"").num(data.failedTests)
+                .raw("\" time=\"").raw(seconds(data.totalDuration)).raw("\">\n");
+            for (Map.Entry<String, List<ScenarioView>> feature : byFeature.entrySet()) {
+                long failures = feature.getValue().stream().filter(s -> s.statusCode() == ReportData.FAILED).count();
+                long duration = feature.getValue().stream().mapToLong(ScenarioView::duration).sum();
+                out.raw("  <testsuite name=\"").text(feature.getKey()).raw("\" tests=\"").num(feature.getValue().size())
+                    .raw("\" failures=\"").num(failures).raw("\" time=\"").raw(seconds(duration)).raw("\">\n");
+                for (ScenarioView scenario : feature.getValue()) {
+                    writeTestCase(out, feature.getKey(), scenario);
+                }
+                out.raw("  </testsuite>\n");
+            }
+            out.raw("</testsuites>\n");
+        }
+    }
+
+    private static void writeTestCase(HtmlWriter out, String feature, ScenarioView scenario) throws IOException {
+        out.raw("    <testcase classname=\"").text(feature).raw("\" name=\"").text(scenario.name())
+            .raw("\" time=\"").raw(seconds(scenario.duration())).raw("\">\n");
+        out.raw("      <properties>\n");
+        property(out, "tags", tags(scenario));
+        property(out, "setup.duration_ms", Long.toString(scenario.setupDuration()));
+        property(out, "teardown.duration_ms", Long.toString(scenario.teardownDuration()));
+        List<StepView> steps = scenario.steps();
+        for (int i = 0; i < steps.size(); i++) {
+            StepView step = steps.get(i);
+            String prefix = "step." + (i + 1) + ".";
+            property(out, prefix + "name", step.key());
+            property(out, prefix + "status", step.status());
+            property(out, prefix + "duration_ms", Long.toString(step.duration()));
+        }
+        out.raw("      </properties>\n");
+        if (scenario.statusCode() == ReportData.FAILED) {
+            out.raw("      <failure message=\"Scenario failed\"/>\n");
+        } else if (scenario.statusCode() == ReportData.SKIPPED) {
+            out.raw("      <skipped/>\n");
+        }
+        out.raw("    </testcase>\n");
+    }
+
+    private static void property(HtmlWriter out, String name, String value) throws IOException {
+        out.raw("        <property name=\"").text(name).raw("\" value=\"").text(value).raw("\"/>\n");
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+
+    /**
+     * Tags of a scenario, sorted and comma-separated, so each combination is one label value
+     */
+    private static String tags(ScenarioView scenario) {
+        return String.join(",", new TreeSet<>(scenario.tags()));
+    }
+
+    /**
+     * Escape a Prometheus label value
+     */
+    private static String label(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Quote a CSV field when it holds a separator, quote or line break
+     */
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
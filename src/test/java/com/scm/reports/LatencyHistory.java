@@ -0,0 +1,391 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only store of scenario and step durations across runs
+ * Three files make up the store, all append-only and read through memory maps:
+ * names.dat interns scenario and step names, samples.dat holds fixed-size (name, duration)
+ * records and runs.dat holds one fixed-size record per run pointing at its samples.
+ * A run record is written last, so an interrupted append leaves no visible partial run.
+ */
+class LatencyHistory {
+    static final String DEFAULT_DIR = ".report-history";
+    static final byte KIND_SCENARIO = 0;
+    static final byte KIND_STEP = 1;
+
+    // Run: run start (epoch ms), recorded at (epoch ms), first sample, sample count
+    private static final int RUN_RECORD_SIZE = 28;
+    // Sample: name id, duration ms
+    private static final int SAMPLE_RECORD_SIZE = 8;
+
+    private final Path directory;
+    private final boolean enabled;
+    private final List<String> names = new ArrayList<>();
+    private final List<Byte> kinds = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    /**
+     * History directory from -Dreport.history.dir (default .report-history in the working directory);
+     * -Dreport.history=false disables recording and trends
+     */
+    LatencyHistory() {
+        this(Paths.get(System.getProperty("report.history.dir", DEFAULT_DIR)),
+            !"false".equalsIgnoreCase(System.getProperty("report.history", "true")));
+    }
+
+    LatencyHistory(Path directory, boolean enabled) {
+        this.directory = directory;
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Durations per run for the last runs, oldest first
+     * Every series has one value per run, the median of the name's durations in that run;
+     * -1 marks runs in which the name did not occur.
+     */
+    static final class Trends {
+        final long[] runStarts;
+        final Map<String, long[]> scenarios = new LinkedHashMap<>();
+        final Map<String, long[]> steps = new LinkedHashMap<>();
+
+        Trends(long[] runStarts) {
+            this.runStarts = runStarts;
+        }
+
+        int runCount() {
+            return runStarts.length;
+        }
+    }
+
+    /**
+     * Append the durations of a run
+     * Regenerating the report of a run that was already recorded (same start time) appends nothing,
+     * and neither does a run without scenario start times, which could not be told apart.
+     */
+    @SuppressWarnings("try") // The lock is held for the whole block
+    void record(ReportData data) throws IOException {
+        long runStart = runStart(data);
+        if (!enabled || data.scenarios.isEmpty() || runStart == 0) {
+            return;
+        }
+        Files.createDirectories(directory);
+
+        try (FileChannel runs = FileChannel.open(directory.resolve("runs.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = runs.lock()) {
+            long runCount = runs.size() / RUN_RECORD_SIZE;
+            if (isRecorded(runs, runCount, runStart)) {
+                return;
+            }
+
+            try (FileChannel nameFile = FileChannel.open(directory.resolve("names.dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileChannel samples = FileChannel.open(directory.resolve("samples.dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                loadNames(nameFile);
+                ByteBuffer newNames = ByteBuffer.allocate(4096);
+                ByteBuffer newSamples = ByteBuffer.allocate(SAMPLE_RECORD_SIZE * 1024);
+                long firstSample = samples.size() / SAMPLE_RECORD_SIZE;
+                long samplesEnd = firstSample * SAMPLE_RECORD_SIZE;
+                int sampleCount = 0;
+
+                // History name ids of the step keys, by string id of ReportData
+                int[] stepIds = new int[data.strings.size()];
+                Arrays.fill(stepIds, -1);
+                for (ScenarioView scenario : data.scenarios) {
+                    int scenarioId = intern(KIND_SCENARIO, scenarioKey(scenario), nameFile, newNames);
+                    samplesEnd = put(samples, samplesEnd, newSamples, scenarioId, scenario.duration());
+                    sampleCount++;
+                    for (int step = data.stepOffsets[scenario.index]; step < data.stepOffsets[scenario.index + 1]; step++) {
+                        int key = data.stepKeys[step];
+                        if (stepIds[key] < 0) {
+                            stepIds[key] = intern(KIND_STEP, data.strings.get(key), nameFile, newNames);
+                        }
+                        samplesEnd = put(samples, samplesEnd, newSamples, stepIds[key], data.stepDurations[step]);
+                        sampleCount++;
+                    }
+                }
+                flush(nameFile, newNames, nameFile.size());
+                flush(samples, newSamples, samplesEnd);
+                nameFile.force(false);
+                samples.force(false);
+
+                ByteBuffer run = ByteBuffer.allocate(RUN_RECORD_SIZE);
+                run.putLong(runStart).putLong(System.currentTimeMillis()).putLong(firstSample).putInt(sampleCount).flip();
+                // Drop a torn run record left by an earlier interrupted append
+                long runsEnd = runCount * RUN_RECORD_SIZE;
+                while (run.hasRemaining()) {
+                    runsEnd += runs.write(run, runsEnd);
+                }
+                runs.truncate(runsEnd);
+                runs.force(false);
+            }
+        }
+    }
+
+    /**
+     * Read the durations of the last runs
+     * @param maxRuns Number of most recent runs to read
+     * @return Trends per scenario and step name, or null when no history is available
+     */
+    Trends read(int maxRuns) throws IOException {
+        return read(maxRuns, Long.MAX_VALUE);
+    }
+
+    /**
+     * Read the durations of the last runs that started before the given time
+     * @param maxRuns Number of most recent runs to read
+     * @param before Run start (epoch ms) that excludes a run and all later ones, e.g. the run being reported
+     * @return Trends per scenario and step name, or null when no such run is recorded
+     */
+    Trends read(int maxRuns, long before) throws IOException {
+        Path runsFile = directory.resolve("runs.dat");
+        if (!enabled || !Files.exists(runsFile)) {
+            return null;
+        }
+        try (FileChannel runs = FileChannel.open(runsFile, StandardOpenOption.READ);
+             FileChannel nameFile = FileChannel.open(directory.resolve("names.dat"), StandardOpenOption.READ);
+             FileChannel samples = FileChannel.open(directory.resolve("samples.dat"), StandardOpenOption.READ)) {
+            int runCount = (int) (runs.size() / RUN_RECORD_SIZE);
+            if (runCount == 0) {
+                return null;
+            }
+            MappedByteBuffer runRecords = runs.map(FileChannel.MapMode.READ_ONLY, 0, (long) runCount * RUN_RECORD_SIZE);
+            // Runs are in the order they were recorded, which is not the order they ran when an
+            // older result is regenerated
+            int[] selected = new int[Math.min(maxRuns, runCount)];
+            int count = 0;
+            for (int run = runCount - 1; run >= 0 && count < selected.length; run--) {
+                if (runRecords.getLong(run * RUN_RECORD_SIZE) < before) {
+                    selected[selected.length - 1 - count++] = run;
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+            selected = Arrays.copyOfRange(selected, selected.length - count, selected.length);
+            loadNames(nameFile);
+
+            long firstSample = runRecords.getLong(selected[0] * RUN_RECORD_SIZE + 16);
+            long sampleLimit = samples.size() / SAMPLE_RECORD_SIZE;
+            MappedByteBuffer sampleRecords = samples.map(FileChannel.MapMode.READ_ONLY,
+                firstSample * SAMPLE_RECORD_SIZE, (sampleLimit - firstSample) * SAMPLE_RECORD_SIZE);
+
+            long[] runStarts = new long[count];
+            Trends trends = new Trends(runStarts);
+            // Per run: durations per name id, reused between runs
+            long[][] values = new long[names.size()][];
+            int[] counts = new int[names.size()];
+            int[] seen = new int[names.size()];
+            long[][] seriesById = new long[names.size()][];
+            for (int run = 0; run < count; run++) {
+                int base = selected[run] * RUN_RECORD_SIZE;
+                runStarts[run] = runRecords.getLong(base);
+                long start = runRecords.getLong(base + 16) - firstSample;
+                int sampleCount = runRecords.getInt(base + 24);
+
+                int seenCount = 0;
+                for (int i = 0; i < sampleCount; i++) {
+                    int position = (int) ((start + i) * SAMPLE_RECORD_SIZE);
+                    int nameId = sampleRecords.getInt(position);
+                    if (counts[nameId] == 0) {
+                        seen[seenCount++] = nameId;
+                    }
+                    if (values[nameId] == null) {
+                        values[nameId] = new long[4];
+                    } else if (counts[nameId] == values[nameId].length) {
+                        values[nameId] = Arrays.copyOf(values[nameId], counts[nameId] * 2);
+                    }
+                    values[nameId][counts[nameId]++] = Integer.toUnsignedLong(sampleRecords.getInt(position + 4));
+                }
+                for (int i = 0; i < seenCount; i++) {
+                    int nameId = seen[i];
+                    if (seriesById[nameId] == null) {
+                        seriesById[nameId] = newSeries(count);
+                    }
+                    // Names repeated within a run (outlines, repeated steps) contribute their median
+                    seriesById[nameId][run] = median(values[nameId], counts[nameId]);
+                    counts[nameId] = 0;
+                }
+            }
+            for (int nameId = 0; nameId < seriesById.length; nameId++) {
+                if (seriesById[nameId] != null) {
+                    Map<String, long[]> series = kinds.get(nameId) == KIND_SCENARIO ? trends.scenarios : trends.steps;
+                    series.put(names.get(nameId), seriesById[nameId]);
+                }
+            }
+            return trends;
+        }
+    }
+
+    static String scenarioKey(ScenarioView scenario) {
+        return scenario.featureName() + ": " + scenario.name();
+    }
+
+    static String stepKey(TestStep step) {
+        return (step.keyword != null ? step.keyword.trim() + " " : "") + step.name;
+    }
+
+    /**
+     * Median of the first count values, which are sorted in place
+     */
+    static long median(long[] values, int count) {
+        Arrays.sort(values, 0, count);
+        int middle = count / 2;
+        return count % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    private static long[] newSeries(int runs) {
+        long[] values = new long[runs];
+        Arrays.fill(values, -1);
+        return values;
+    }
+
+    /**
+     * The run is identified by its earliest scenario start
+     * @return Start in epoch milliseconds, or 0 when no scenario has a start time
+     */
+    static long runStart(ReportData data) {
+        long start = Long.MAX_VALUE;
+        for (long scenarioStart : data.startTimestamps) {
+            if (scenarioStart > 0) {
+                start = Math.min(start, scenarioStart);
+            }
+        }
+        return start != Long.MAX_VALUE ? start : 0;
+    }
+
+    /**
+     * Whether any run record has this start; runs are not recorded in start order when an older
+     * result is regenerated, so every record is checked
+     */
+    private static boolean isRecorded(FileChannel runs, long runCount, long runStart) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RUN_RECORD_SIZE * 1024);
+        long position = 0;
+        long end = runCount * RUN_RECORD_SIZE;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = runs.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int offset = 0; offset + RUN_RECORD_SIZE <= read; offset += RUN_RECORD_SIZE) {
+                if (buffer.getLong(offset) == runStart) {
+                    return true;
+                }
+            }
+            position += read - read % RUN_RECORD_SIZE;
+        }
+        return false;
+    }
+
+    /**
+     * Decode the name table: [kind byte][length int][UTF-8 bytes] per entry
+     * A truncated entry at the end (interrupted append) is cut off.
+     */
+    private void loadNames(FileChannel nameFile) throws IOException {
+        names.clear();
+        kinds.clear();
+        nameIds.clear();
+        long size = nameFile.size();
+        if (size == 0) {
+            return;
+        }
+        MappedByteBuffer buffer = nameFile.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        int valid = 0;
+        while (buffer.remaining() >= 5) {
+            byte kind = buffer.get();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            nameIds.put(kind + name, names.size());
+            names.add(name);
+            kinds.add(kind);
+            valid = buffer.position();
+        }
+        if (valid < size) {
+            try {
+                nameFile.truncate(valid);
+            } catch (NonWritableChannelException e) {
+                // Read-only: the torn entry is simply ignored
+            }
+        }
+    }
+
+    private int intern(byte kind, String name, FileChannel nameFile, ByteBuffer pending) throws IOException {
+        Integer id = nameIds.get(kind + name);
+        if (id != null) {
+            return id;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (pending.remaining() < 5 + bytes.length) {
+            flush(nameFile, pending, nameFile.size());
+            if (pending.capacity() < 5 + bytes.length) {
+                ByteBuffer large = ByteBuffer.allocate(5 + bytes.length);
+                large.put(kind).putInt(bytes.length).put(bytes).flip();
+                write(nameFile, large, nameFile.size());
+                return register(kind, name);
+            }
+        }
+        pending.put(kind).putInt(bytes.length).put(bytes);
+        return register(kind, name);
+    }
+
+    private int register(byte kind, String name) {
+        int id = names.size();
+        names.add(name);
+        kinds.add(kind);
+        nameIds.put(kind + name, id);
+        return id;
+    }
+
+    private static long put(FileChannel samples, long end, ByteBuffer pending, int nameId, long duration) throws IOException {
+        if (pending.remaining() < SAMPLE_RECORD_SIZE) {
+            end = flush(samples, pending, end);
+        }
+        pending.putInt(nameId).putInt((int) Math.min(duration, 0xFFFF_FFFFL));
+        return end;
+    }
+
+    /**
+     * Write buffered records at the given position and return the new end
+     */
+    private static long flush(FileChannel channel, ByteBuffer pending, long position) throws IOException {
+        pending.flip();
+        long end = write(channel, pending, position);
+        pending.clear();
+        return end;
+    }
+
+    private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,81 @@
+package com.scm.reports;
+
+import com.scm.utils.LatencySnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency percentiles of a run per scenario and per step text
+ * Computed from the duration columns of ReportData: durations are grouped by name id and each group
+ * is kept as a LatencySnapshot, which only stores the buckets it uses, so a run with a hundred
+ * thousand distinct names holds a few buckets per name rather than a full histogram each.
+ * Snapshots merge, which is how the summary of all scenarios is built from the per-name ones.
+ */
+final class LatencyStats {
+    static final double[] PERCENTILES = {50, 90, 95, 99};
+
+    final LatencySnapshot allScenarios;
+    final Map<String, LatencySnapshot> scenarios;
+    final Map<String, LatencySnapshot> steps;
+
+    private LatencyStats(LatencySnapshot allScenarios, Map<String, LatencySnapshot> scenarios, Map<String, LatencySnapshot> steps) {
+        this.allScenarios = allScenarios;
+        this.scenarios = Collections.unmodifiableMap(scenarios);
+        this.steps = Collections.unmodifiableMap(steps);
+    }
+
+    /**
+     * Summarize the scenario and step durations of a run
+     */
+    static LatencyStats of(ReportData data) {
+        Map<String, LatencySnapshot> scenarios = byName(data.names, data.durations, data.strings);
+        return new LatencyStats(LatencySnapshot.merge(scenarios.values()), scenarios,
+            byName(data.stepKeys, data.stepDurations, data.strings));
+    }
+
+    /**
+     * Histograms of the durations per name id, keyed by name in order of first occurrence
+     * A counting sort by id puts the durations of each name next to each other in one array.
+     */
+    private static Map<String, LatencySnapshot> byName(int[] ids, long[] durations, StringTable strings) {
+        int[] offsets = new int[strings.size() + 1];
+        int[] order = new int[strings.size()];
+        int names = 0;
+        for (int id : ids) {
+            if (offsets[id + 1]++ == 0) {
+                order[names++] = id;
+            }
+        }
+        for (int id = 0; id < strings.size(); id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        long[] grouped = new long[ids.length];
+        int[] next = Arrays.copyOf(offsets, strings.size());
+        for (int i = 0; i < ids.length; i++) {
+            grouped[next[ids[i]]++] = durations[i];
+        }
+
+        Map<String, LatencySnapshot> summaries = new LinkedHashMap<>();
+        for (int i = 0; i < names; i++) {
+            int id = order[i];
+            Arrays.sort(grouped, offsets[id], offsets[id + 1]);
+            summaries.put(strings.get(id), LatencySnapshot.of(grouped, offsets[id], offsets[id + 1]));
+        }
+        return summaries;
+    }
+
+    /**
+     * Step texts ordered from the highest to the lowest p95
+     */
+    List<String> stepsByP95() {
+        List<String> names = new ArrayList<>(steps.keySet());
+        names.sort(Comparator.comparingLong((String name) -> steps.get(name).getPercentile(95)).reversed());
+        return names;
+    }
+}
@@ -0,0 +1,330 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonWriter;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import io.cucumber.plugin.event.TestStepFinished;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cucumber plugin that keeps live.html up to date while the tests run
+ * Finished scenarios are buffered and appended as small numbered segment files under live/;
+ * a tiny live/head.js records how many segments exist and the page polls it to load new ones.
+ * Nothing written earlier is ever rewritten, so the cost per update does not grow with the run.
+ * Like ResultLogPlugin, test threads only hand finished scenarios to a single writer thread through
+ * a bounded queue; they never wait on a lock or on file I/O unless the writer falls behind.
+ * Usage: com.scm.reports.LiveReportPlugin[:output directory] (default target/html-reports)
+ */
+public class LiveReportPlugin implements ConcurrentEventListener {
+    private static final String DEFAULT_DIR = "target/html-reports";
+    private static final int SEGMENT_SCENARIOS = 25;
+    private static final long SEGMENT_INTERVAL_MS = 2000;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final ScenarioResult END = new ScenarioResult();
+
+    private final Path reportsDir;
+    private final Path dataDir;
+    private final Map<UUID, List<StepResult>> stepsByTestCase = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> startByTestCase = new ConcurrentHashMap<>();
+    private final BlockingQueue<ScenarioResult> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread writerThread;
+    private volatile long runStarted;
+    // Owned by the writer thread once the run has started
+    private final List<ScenarioResult> pending = new ArrayList<>();
+    private int segments = 0;
+    private int passed = 0;
+    private int failed = 0;
+    private long lastFlush;
+
+    private static final class StepResult {
+        final String text;
+        final String status;
+        final long duration;
+
+        StepResult(String text, String status, long duration) {
+            this.text = text;
+            this.status = status;
+            this.duration = duration;
+        }
+    }
+
+    private static final class ScenarioResult {
+        String name;
+        String uri;
+        int line;
+        String status;
+        long duration;
+        long start;
+        String worker;
+        String error;
+        List<StepResult> steps;
+    }
+
+    public LiveReportPlugin() {
+        this(DEFAULT_DIR);
+    }
+
+    /**
+     * @param outputDir Reports directory that receives live.html and live/
+     */
+    public LiveReportPlugin(String outputDir) {
+        this.reportsDir = Paths.get(outputDir);
+        this.dataDir = reportsDir.resolve("live");
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestRunStarted.class, this::onRunStarted);
+        publisher.registerHandlerFor(TestCaseStarted.class, this::onTestCaseStarted);
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, this::onRunFinished);
+    }
+
+    private void onRunStarted(TestRunStarted event) {
+        runStarted = event.getInstant().toEpochMilli();
+        lastFlush = System.currentTimeMillis();
+        try {
+            Files.createDirectories(dataDir);
+            // Segments of a previous run would be picked up by the page
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir, "segment-*.js")) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            writeHead(false);
+            ReportAssets.write(reportsDir);
+            try (HtmlWriter out = HtmlWriter.open(reportsDir.resolve("live.html"))) {
+                writePage(out);
+            }
+        } catch (IOException e) {
+            // The live view is optional; the run and the final reports go on without it
+            System.err.println("Could not start the live report in " + reportsDir + ": " + e.getMessage());
+        }
+        // Started after the setup above, so the writer sees it
+        writerThread = new Thread(this::drain, "live-report-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void onTestCaseStarted(TestCaseStarted event) {
+        startByTestCase.put(event.getTestCase().getId(), event.getInstant().toEpochMilli());
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        if (event.getTestStep() instanceof PickleStepTestStep step) {
+            Result result = event.getResult();
+            stepsByTestCase.computeIfAbsent(event.getTestCase().getId(), id -> new ArrayList<>())
+                .add(new StepResult(step.getStep().getKeyword() + step.getStep().getText(),
+                    status(result.getStatus()), result.getDuration().toMillis()));
+        }
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        TestCase testCase = event.getTestCase();
+        Result result = event.getResult();
+        ScenarioResult scenario = new ScenarioResult();
+        scenario.name = testCase.getName();
+        scenario.uri = String.valueOf(testCase.getUri());
+        scenario.line = testCase.getLocation().getLine();
+        scenario.status = status(result.getStatus());
+        scenario.steps = stepsByTestCase.getOrDefault(testCase.getId(), List.of());
+        scenario.start = startByTestCase.getOrDefault(testCase.getId(), runStarted);
+        scenario.duration = event.getInstant().toEpochMilli() - scenario.start;
+        // Test cases finish on the thread that ran them
+        scenario.worker = Thread.currentThread().getName();
+        if (result.getError() != null) {
+            scenario.error = String.valueOf(result.getError().getMessage());
+        }
+        stepsByTestCase.remove(testCase.getId());
+        startByTestCase.remove(testCase.getId());
+        try {
+            queue.put(scenario);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onRunFinished(TestRunFinished event) {
+        if (writerThread == null) {
+            return;
+        }
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer thread: batch scenarios into segments until the end marker, then mark the run finished
+     * Failures are shown right away; other results are flushed every SEGMENT_SCENARIOS scenarios or
+     * SEGMENT_INTERVAL_MS, even when no further scenario finishes.
+     */
+    private void drain() {
+        try {
+            ScenarioResult scenario;
+            while ((scenario = queue.poll(SEGMENT_INTERVAL_MS, TimeUnit.MILLISECONDS)) != END) {
+                if (scenario != null) {
+                    pending.add(scenario);
+                    if ("failed".equals(scenario.status)) {
+                        failed++;
+                    } else if ("passed".equals(scenario.status)) {
+                        passed++;
+                    }
+                }
+                boolean failure = scenario != null && "failed".equals(scenario.status);
+                if (!pending.isEmpty() && (failure || pending.size() >= SEGMENT_SCENARIOS
+                        || System.currentTimeMillis() - lastFlush >= SEGMENT_INTERVAL_MS)) {
+                    flush(false);
+                }
+            }
+            flush(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Append the pending scenarios as a new segment and publish it through head.js
+     */
+    private void flush(boolean finished) {
+        try {
+            if (!pending.isEmpty()) {
+                Path segment = dataDir.resolve("segment-" + segments + ".js");
+                writeAtomically(segment, this::writeSegment);
+                segments++;
+                pending.clear();
+            }
+            writeHead(finished);
+            lastFlush = System.currentTimeMillis();
+        } catch (IOException e) {
+            // A failed update must not fail the test run; the next flush retries
+            System.err.println("Live report update failed: " + e.getMessage());
+        }
+    }
+
+    // Scenario: [name, uri, line, status, duration ms, start epoch ms, worker, error, [[step, status, ms]...]]
+    private void writeSegment(Writer writer) throws IOException {
+        writer.write("LiveReport.add(");
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        for (ScenarioResult scenario : pending) {
+            json.beginArray()
+                .value(scenario.name)
+                .value(scenario.uri)
+                .value(scenario.line)
+                .value(scenario.status)
+                .value(scenario.duration)
+                .value(scenario.start)
+                .value(scenario.worker)
+                .value(scenario.error);
+            json.beginArray();
+            for (StepResult step : scenario.steps) {
+                json.beginArray().value(step.text).value(step.status).value(step.duration).endArray();
+            }
+            json.endArray();
+            json.endArray();
+        }
+        json.endArray();
+        json.flush();
+        writer.write(");\n");
+    }
+
+    private void writeHead(boolean finished) throws IOException {
+        writeAtomically(dataDir.resolve("head.js"), writer -> writer.write("LiveReport.head({\"segments\":" + segments
+            + ",\"passed\":" + passed + ",\"failed\":" + failed + ",\"started\":" + runStarted
+            + ",\"finished\":" + finished + "});\n"));
+    }
+
+    /**
+     * Write to a temporary file and move it in place, so the page never loads a partial file
+     */
+    private void writeAtomically(Path file, Content content) throws IOException {
+        Path temp = Files.createTempFile(dataDir, "live", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                content.write(writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static final ReportTemplate PAGE = ReportTemplate.compile("""
+            <div class="header">
+                <h1>🔴 Live Test Report</h1>
+                <p id="state">Waiting for results...</p>
+            </div>
+            <div class="stats-grid">
+                <div class="stat-card total"><h3>Finished</h3><div class="value" id="total">0</div></div>
+                <div class="stat-card passed"><h3>Passed</h3><div class="value" id="passed">0</div></div>
+                <div class="stat-card failed"><h3>Failed</h3><div class="value" id="failed">0</div></div>
+                <div class="stat-card duration"><h3>Scenario P95</h3><div class="value" id="p95">-</div></div>
+            </div>
+            <div class="panel">
+                <h2>Failures</h2>
+                <div id="failures"><p class="muted">No failures so far</p></div>
+            </div>
+            <div class="panel">
+                <h2>Step Latency</h2>
+                <table>
+                    <thead><tr><th>Step</th><th class="num">Count</th><th class="num">Mean</th><th class="num">P95</th><th class="num">Max</th></tr></thead>
+                    <tbody id="steps"></tbody>
+                </table>
+            </div>
+            <div class="panel">
+                <h2>Recently Finished</h2>
+                <table>
+                    <thead><tr><th>Scenario</th><th>Status</th><th>Worker</th><th class="num">Duration</th></tr></thead>
+                    <tbody id="recent"></tbody>
+                </table>
+            </div>
+        """);
+
+    /**
+     * Static page; all data arrives through the scripts under live/
+     */
+    private static void writePage(HtmlWriter out) throws IOException {
+        ReportPage.start(out, "Live Test Report", "live.css");
+        PAGE.render(out);
+        ReportPage.script(out, "live.js");
+        ReportPage.end(out);
+    }
+
+    private static String status(Status status) {
+        return status.name().toLowerCase(Locale.ROOT);
+    }
+
+    @FunctionalInterface
+    private interface Content {
+        void write(Writer writer) throws IOException;
+    }
+}
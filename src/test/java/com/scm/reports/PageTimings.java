@@ -0,0 +1,310 @@
+package com.scm.reports;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.scm.utils.PagePerformance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Browser-side timings of the pages a step captured (see com.scm.utils.PagePerformance)
+ * Separates the time the application took to serve and render a page from the step's wall time,
+ * which also holds the test's own waits. Renderers parse the JSON kept on the step only for the
+ * steps they write, like SpanBreakdown.
+ */
+final class PageTimings {
+    static final String MEDIA_TYPE = PagePerformance.MEDIA_TYPE;
+    // DevTools metrics in the order they are shown, with their labels
+    private static final String[][] METRICS = {
+        {"TaskDuration", "Main thread"}, {"ScriptDuration", "Script"}, {"LayoutDuration", "Layout"},
+        {"RecalcStyleDuration", "Style"}, {"JSHeapUsedSize", "JS heap"}, {"Nodes", "DOM nodes"}};
+
+    /**
+     * Navigation Timing of the document, in milliseconds from the start of the navigation
+     */
+    static final class Navigation {
+        long redirect;
+        long dns;
+        long connect;
+        long tls;
+        long ttfb;
+        long responseEnd;
+        long domInteractive;
+        long domContentLoaded;
+        long domComplete;
+        long load;
+        long transferSize;
+    }
+
+    static final class Resource {
+        String name;
+        String type;
+        long start;
+        long duration;
+        // Time from the request to the first byte of the response, 0 when the browser hides it
+        long ttfb;
+        long size;
+    }
+
+    static final class Page {
+        String name;
+        String url;
+        // Null when the browser does not report Navigation Timing
+        Navigation navigation;
+        // Largest contentful paint, -1 when not reported
+        long lcp = -1;
+        double cls;
+        long longTasks;
+        long longTaskTime;
+        // DevTools Performance metrics by name, empty on other browsers
+        final Map<String, Long> metrics = new LinkedHashMap<>();
+        final List<Resource> resources = new ArrayList<>();
+
+        /**
+         * End of the last activity on the page's waterfall
+         */
+        long end() {
+            long end = navigation != null ? Math.max(navigation.load, navigation.domComplete) : 0;
+            for (Resource resource : resources) {
+                end = Math.max(end, resource.start + resource.duration);
+            }
+            return end;
+        }
+    }
+
+    final List<Page> pages;
+
+    private PageTimings(List<Page> pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * Whether an attachment is a page log rather than an artifact
+     */
+    static boolean isPageLog(String mimeType) {
+        return MEDIA_TYPE.equals(mimeType);
+    }
+
+    /**
+     * @param json Page log as attached by Hooks, or null
+     * @return The captured pages, or null when there is no readable page log
+     */
+    static PageTimings parse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            List<Page> pages = new ArrayList<>();
+            for (JsonElement element : JsonParser.parseString(json).getAsJsonObject().getAsJsonArray("pages")) {
+                pages.add(page(element.getAsJsonObject()));
+            }
+            return pages.isEmpty() ? null : new PageTimings(pages);
+        } catch (RuntimeException e) {
+            // A damaged page log is not worth failing the report for
+            return null;
+        }
+    }
+
+    private static Page page(JsonObject json) {
+        Page page = new Page();
+        page.name = string(json, "page");
+        JsonObject timings = json.getAsJsonObject("timings");
+        page.url = string(timings, "url");
+        if (timings.get("navigation") instanceof JsonObject navigation) {
+            Navigation timing = new Navigation();
+            timing.redirect = number(navigation, "redirect");
+            timing.dns = number(navigation, "dns");
+            timing.connect = number(navigation, "connect");
+            timing.tls = number(navigation, "tls");
+            timing.ttfb = number(navigation, "ttfb");
+            timing.responseEnd = number(navigation, "responseEnd");
+            timing.domInteractive = number(navigation, "domInteractive");
+            timing.domContentLoaded = number(navigation, "domContentLoaded");
+            timing.domComplete = number(navigation, "domComplete");
+            timing.load = number(navigation, "load");
+            timing.transferSize = number(navigation, "transferSize");
+            page.navigation = timing;
+        }
+        if (timings.get("vitals") instanceof JsonObject vitals) {
+            page.lcp = vitals.get("lcp") != null && !vitals.get("lcp").isJsonNull() ? vitals.get("lcp").getAsLong() : -1;
+            page.cls = vitals.get("cls") != null ? vitals.get("cls").getAsDouble() : 0;
+            page.longTasks = number(vitals, "longTasks");
+            page.longTaskTime = number(vitals, "longTaskTime");
+        }
+        if (timings.get("resources") instanceof JsonArray resources) {
+            for (JsonElement element : resources) {
+                JsonArray entry = element.getAsJsonArray();
+                Resource resource = new Resource();
+                resource.name = entry.get(0).getAsString();
+                resource.type = entry.get(1).getAsString();
+                resource.start = entry.get(2).getAsLong();
+                resource.duration = entry.get(3).getAsLong();
+                resource.ttfb = entry.get(4).getAsLong();
+                resource.size = entry.get(5).getAsLong();
+                page.resources.add(resource);
+            }
+        }
+        if (json.get("metrics") instanceof JsonObject metrics) {
+            for (String[] metric : METRICS) {
+                if (metrics.has(metric[0])) {
+                    page.metrics.put(metric[0], metrics.get(metric[0]).getAsLong());
+                }
+            }
+        }
+        return page;
+    }
+
+    private static String string(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value != null && !value.isJsonNull() ? value.getAsString() : null;
+    }
+
+    private static long number(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value != null && !value.isJsonNull() ? value.getAsLong() : 0;
+    }
+
+    /**
+     * Write each page as a collapsed waterfall, summarized by its time to first byte, DOM complete
+     * and load next to the step's wall time
+     */
+    void writeHtml(long stepDuration, HtmlWriter out) throws IOException {
+        for (Page page : pages) {
+            out.raw("<details class=\"span-breakdown page-timings\"><summary>🌐 ").text(page.name != null ? page.name : page.url);
+            Navigation navigation = page.navigation;
+            if (navigation != null) {
+                out.raw(" · TTFB ").duration(navigation.ttfb)
+                    .raw(" · DOM complete ").duration(navigation.domComplete)
+                    .raw(" · Load ").duration(navigation.load).raw(" of step ").duration(stepDuration);
+            }
+            if (page.lcp >= 0) {
+                out.raw(" · LCP ").duration(page.lcp);
+            }
+            out.raw(" · CLS ").fixed2(page.cls);
+            if (page.longTasks > 0) {
+                out.raw(" · ").num(page.longTasks).raw(" long tasks (").duration(page.longTaskTime).raw(")");
+            }
+            out.raw("</summary>\n<div class=\"page-details\">").text(page.url);
+            if (navigation != null) {
+                out.raw("<br>Redirect ").duration(navigation.redirect).raw(" · DNS ").duration(navigation.dns)
+                    .raw(" · Connect ").duration(navigation.connect).raw(" (TLS ").duration(navigation.tls)
+                    .raw(") · Response ").duration(navigation.responseEnd - navigation.ttfb)
+                    .raw(" · DOM interactive ").duration(navigation.domInteractive)
+                    .raw(" · DOMContentLoaded ").duration(navigation.domContentLoaded)
+                    .raw(" · Document ").num(navigation.transferSize / 1024).raw(" KB");
+            }
+            if (!page.metrics.isEmpty()) {
+                out.raw("<br>");
+                String separator = "";
+                for (String[] metric : METRICS) {
+                    Long value = page.metrics.get(metric[0]);
+                    if (value == null) {
+                        continue;
+                    }
+                    out.raw(separator).raw(metric[1]).raw(" ");
+                    if (metric[0].endsWith("Duration")) {
+                        out.duration(value);
+                    } else if (metric[0].endsWith("Size")) {
+                        out.num(value / (1024 * 1024)).raw(" MB");
+                    } else {
+                        out.num(value);
+                    }
+                    separator = " · ";
+                }
+            }
+            out.raw("</div>\n");
+
+            long scale = Math.max(page.end(), 1);
+            if (navigation != null) {
+                writeRow("Document", null, 0, navigation.responseEnd, navigation.ttfb, navigation.domComplete, scale, out);
+            }
+            for (Resource resource : page.resources) {
+                writeRow(shortName(resource.name), resource.name, resource.start, resource.duration, resource.ttfb, -1, scale, out);
+            }
+            out.raw("</details>\n");
+        }
+    }
+
+    /**
+     * One waterfall row: waiting for the first byte in a light shade, then the download
+     * @param mark Position of a marker line (DOM complete), -1 for none
+     */
+    private static void writeRow(String name, String title, long start, long duration, long ttfb, long mark,
+                                 long scale, HtmlWriter out) throws IOException {
+        long wait = Math.min(ttfb, duration);
+        out.raw("<div class=\"span\"><span class=\"span-name\" title=\"").text(title != null ? title : name).raw("\">")
+            .text(name).raw("</span><span class=\"span-bar\"><span class=\"span-fill span-wait\" style=\"left: ")
+            .fixed2(start * 100.0 / scale).raw("%; width: ").fixed2(wait * 100.0 / scale)
+            .raw("%\"></span><span class=\"span-fill\" style=\"left: ").fixed2((start + wait) * 100.0 / scale)
+            .raw("%; width: ").fixed2((duration - wait) * 100.0 / scale).raw("%\"></span>");
+        if (mark >= 0) {
+            out.raw("<span class=\"span-mark\" style=\"left: ").fixed2(Math.min(mark, scale) * 100.0 / scale)
+                .raw("%\" title=\"DOM complete\"></span>");
+        }
+        out.raw("</span><span class=\"span-duration\">").duration(duration).raw("</span></div>\n");
+    }
+
+    /**
+     * Last path segment of a resource URL, which is what tells resources apart in a waterfall
+     */
+    static String shortName(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int slash = url.lastIndexOf('/', end - 1);
+        String name = slash >= 0 && slash < end - 1 ? url.substring(slash + 1, end) : url.substring(0, end);
+        return name.isEmpty() ? url : name;
+    }
+
+    /**
+     * Write the pages compactly for the sharded report, one per page:
+     * [name, url, navigation or null, [lcp or null, cls, long tasks, long task ms], {metric: value}, [resource...]]
+     * with navigation as [redirect, dns, connect, tls, ttfb, response end, DOM interactive,
+     * DOMContentLoaded, DOM complete, load, transfer size] and each resource as
+     * [name, type, start, duration, ttfb, size]
+     */
+    void writeJson(JsonWriter json) throws IOException {
+        json.beginArray();
+        for (Page page : pages) {
+            json.beginArray().value(page.name).value(page.url);
+            Navigation navigation = page.navigation;
+            if (navigation != null) {
+                json.beginArray().value(navigation.redirect).value(navigation.dns).value(navigation.connect)
+                    .value(navigation.tls).value(navigation.ttfb).value(navigation.responseEnd)
+                    .value(navigation.domInteractive).value(navigation.domContentLoaded)
+                    .value(navigation.domComplete).value(navigation.load).value(navigation.transferSize).endArray();
+            } else {
+                json.nullValue();
+            }
+            json.beginArray();
+            if (page.lcp >= 0) {
+                json.value(page.lcp);
+            } else {
+                json.nullValue();
+            }
+            json.value(page.cls).value(page.longTasks).value(page.longTaskTime).endArray();
+            json.beginObject();
+            for (Map.Entry<String, Long> metric : page.metrics.entrySet()) {
+                json.name(metric.getKey()).value(metric.getValue());
+            }
+            json.endObject();
+            json.beginArray();
+            for (Resource resource : page.resources) {
+                json.beginArray().value(resource.name).value(resource.type).value(resource.start)
+                    .value(resource.duration).value(resource.ttfb).value(resource.size).endArray();
+            }
+            json.endArray();
+            json.endArray();
+        }
+        json.endArray();
+    }
+}
@@ -0,0 +1,301 @@
+package com.scm.reports;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares step durations of the current run against a baseline and flags regressions
+ * The baseline is either a stored run (-Dreport.baseline=path to Cucumber JSON or a result log) or, by default,
+ * the runs in the latency history that started before the current one (at least MIN_TEST_SAMPLES of them).
+ * Both sides are always aggregated the same way: against a stored run every occurrence of a step is a
+ * sample, against the history every run contributes the median of its occurrences.
+ * A step regresses when its median slowed down by at least the configured ratio and delta, and a
+ * one-sided Mann-Whitney U test finds it significantly slower. Against the history the current run is
+ * a single sample, and the test is the exact rank of that sample among the earlier runs. When the
+ * samples are too few for the test to reach the significance level, the ratio and delta alone decide.
+ */
+class RegressionGate {
+    static final String RESULT_FILE = "regressions.json";
+    private static final int MIN_TEST_SAMPLES = 3;
+
+    private final String baselineFile = System.getProperty("report.baseline");
+    // Earlier runs of the history the current run is compared against
+    private final int baselineRuns = Integer.getInteger("report.regression.runs", 30);
+    // Current median / baseline median that counts as a slowdown
+    private final double ratio = Double.parseDouble(System.getProperty("report.regression.ratio", "1.5"));
+    // Slowdowns smaller than this (ms) are noise, whatever the ratio
+    private final long minDelta = Long.getLong("report.regression.minDelta", 100);
+    // Significance level of the Mann-Whitney U test
+    private final double alpha = Double.parseDouble(System.getProperty("report.regression.alpha", "0.05"));
+    // Number of regressed steps tolerated before the gate fails
+    private final int budget = Integer.getInteger("report.regression.budget", 0);
+
+    /**
+     * Settings that change the outcome, for the up-to-date check of the parse cache
+     */
+    String settings() {
+        return "regression=" + baselineFile + "/" + baselineRuns + "/" + ratio + "/" + minDelta + "/" + alpha + "/" + budget;
+    }
+
+    /**
+     * One regressed step
+     */
+    static final class Regression {
+        String step;
+        long baselineMedian;
+        long currentMedian;
+        double ratio;
+        // NaN when there were too few samples to run the test
+        double pValue;
+        int baselineSamples;
+        int currentSamples;
+    }
+
+    /**
+     * Outcome of a comparison, also written to regressions.json for CI
+     */
+    static final class Result {
+        String baseline;
+        int checkedSteps;
+        int budget;
+        List<Regression> regressions = new ArrayList<>();
+
+        boolean exceedsBudget() {
+            return regressions.size() > budget;
+        }
+
+        Regression get(String stepKey) {
+            for (Regression regression : regressions) {
+                if (regression.step.equals(stepKey)) {
+                    return regression;
+                }
+            }
+            return null;
+        }
+
+        void write(Path reportsDir) throws IOException {
+            Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().setPrettyPrinting().create();
+            Files.writeString(reportsDir.resolve(RESULT_FILE), gson.toJson(this), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Result of the last comparison, or null when none was made
+         */
+        static Result read(Path reportsDir) {
+            Path file = reportsDir.resolve(RESULT_FILE);
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return new Gson().fromJson(reader, Result.class);
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Compare the run against the configured baseline
+     * @param history Latency history, which may already hold the current run
+     * @return The comparison, or null when no baseline is available
+     */
+    Result evaluate(ReportData data, LatencyHistory history) throws IOException {
+        Map<String, List<Long>> current = new LinkedHashMap<>();
+        for (int step = 0; step < data.stepCount(); step++) {
+            current.computeIfAbsent(data.strings.get(data.stepKeys[step]), key -> new ArrayList<>())
+                .add(data.stepDurations[step]);
+        }
+
+        Map<String, List<Long>> baseline;
+        Result result = new Result();
+        if (baselineFile != null) {
+            baseline = readBaselineRun(Paths.get(baselineFile));
+            result.baseline = baselineFile;
+        } else {
+            // Runs recorded later, e.g. when an older result is regenerated, are not a baseline;
+            // a run without start times is compared with all recorded runs
+            long runStart = LatencyHistory.runStart(data);
+            LatencyHistory.Trends earlier = history.read(baselineRuns, runStart > 0 ? runStart : Long.MAX_VALUE);
+            if (earlier == null || earlier.runCount() < MIN_TEST_SAMPLES) {
+                return null;
+            }
+            baseline = historyBaseline(earlier);
+            for (Map.Entry<String, List<Long>> entry : current.entrySet()) {
+                entry.setValue(List.of(median(toSortedArray(entry.getValue()))));
+            }
+            result.baseline = "per-run medians of the previous " + earlier.runCount() + " runs";
+        }
+        result.budget = budget;
+
+        for (Map.Entry<String, List<Long>> entry : current.entrySet()) {
+            List<Long> before = baseline.get(entry.getKey());
+            if (before == null || before.isEmpty()) {
+                continue;
+            }
+            result.checkedSteps++;
+            long[] x = toSortedArray(entry.getValue());
+            long[] y = toSortedArray(before);
+            long currentMedian = median(x);
+            long baselineMedian = median(y);
+            if (currentMedian - baselineMedian < minDelta || currentMedian < ratio * Math.max(1, baselineMedian)) {
+                continue;
+            }
+            double pValue = pValue(x, y);
+            if (!Double.isNaN(pValue) && pValue > alpha) {
+                continue;
+            }
+            Regression regression = new Regression();
+            regression.step = entry.getKey();
+            regression.baselineMedian = baselineMedian;
+            regression.currentMedian = currentMedian;
+            regression.ratio = currentMedian / (double) Math.max(1, baselineMedian);
+            regression.pValue = pValue;
+            regression.baselineSamples = y.length;
+            regression.currentSamples = x.length;
+            result.regressions.add(regression);
+        }
+        result.regressions.sort((a, b) -> Double.compare(b.ratio, a.ratio));
+        return result;
+    }
+
+    /**
+     * One-sided p-value that the current samples x tend to be larger than the baseline samples y
+     * @return NaN when the samples are too few for the test to reach the significance level
+     */
+    private double pValue(long[] x, long[] y) {
+        if (x.length == 1) {
+            // Exact: under no change the current run is equally likely to rank anywhere among the runs
+            return y.length + 1 >= 1 / alpha ? rankGreater(x[0], y) : Double.NaN;
+        }
+        return x.length >= MIN_TEST_SAMPLES && y.length >= MIN_TEST_SAMPLES ? mannWhitneyGreater(x, y) : Double.NaN;
+    }
+
+    /**
+     * Exact one-sided p-value of a single sample x against y: the share of the n + 1 values that
+     * are at least as large as x, counting ties against the regression
+     */
+    static double rankGreater(long x, long[] y) {
+        int atLeast = 1;
+        for (long value : y) {
+            if (value >= x) {
+                atLeast++;
+            }
+        }
+        return atLeast / (double) (y.length + 1);
+    }
+
+    /**
+     * One-sided Mann-Whitney U test that x tends to be larger than y
+     * Uses the normal approximation with tie correction and continuity correction.
+     * @param x Sorted current samples
+     * @param y Sorted baseline samples
+     * @return p-value
+     */
+    static double mannWhitneyGreater(long[] x, long[] y) {
+        int n1 = x.length;
+        int n2 = y.length;
+        int n = n1 + n2;
+
+        // Merge the sorted samples, assigning mid-ranks to ties
+        double rankSumX = 0;
+        double tieTerm = 0;
+        int i = 0;
+        int j = 0;
+        int rank = 1;
+        while (i < n1 || j < n2) {
+            long value = j >= n2 || (i < n1 && x[i] <= y[j]) ? x[i] : y[j];
+            int inX = 0;
+            int inY = 0;
+            while (i < n1 && x[i] == value) {
+                inX++;
+                i++;
+            }
+            while (j < n2 && y[j] == value) {
+                inY++;
+                j++;
+            }
+            int ties = inX + inY;
+            double midRank = rank + (ties - 1) / 2.0;
+            rankSumX += inX * midRank;
+            tieTerm += (double) ties * ties * ties - ties;
+            rank += ties;
+        }
+
+        double u = rankSumX - n1 * (n1 + 1) / 2.0;
+        double mean = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return 1.0;
+        }
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+        return 1.0 - normalCdf(z);
+    }
+
+    /**
+     * Standard normal CDF (Abramowitz and Stegun 7.1.26, error below 1.5e-7)
+     */
+    private static double normalCdf(double z) {
+        double t = 1.0 / (1.0 + 0.3275911 * Math.abs(z) / Math.sqrt(2));
+        double erf = 1.0 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+            + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-z * z / 2);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+
+    private static Map<String, List<Long>> readBaselineRun(Path jsonFile) throws IOException {
+        Map<String, List<Long>> samples = new LinkedHashMap<>();
+        try (ScenarioSource reader = ResultLogReader.isResultLog(jsonFile)
+                ? new ResultLogReader(jsonFile, null) : new CucumberJsonReader(jsonFile)) {
+            TestScenario scenario;
+            while ((scenario = reader.next()) != null) {
+                for (TestStep step : scenario.steps) {
+                    samples.computeIfAbsent(LatencyHistory.stepKey(step), key -> new ArrayList<>()).add(step.duration);
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Per-run medians of each step in the given earlier runs
+     */
+    private static Map<String, List<Long>> historyBaseline(LatencyHistory.Trends trends) {
+        Map<String, List<Long>> samples = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : trends.steps.entrySet()) {
+            long[] values = entry.getValue();
+            List<Long> recorded = new ArrayList<>();
+            for (int run = 0; run < values.length; run++) {
+                if (values[run] >= 0) {
+                    recorded.add(values[run]);
+                }
+            }
+            samples.put(entry.getKey(), recorded);
+        }
+        return samples;
+    }
+
+    private static long[] toSortedArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static long median(long[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
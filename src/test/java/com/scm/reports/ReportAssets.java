@@ -0,0 +1,86 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stylesheets and scripts of the report pages, served as separate files
+ * The files live next to this class on the classpath (assets/) and are copied into the assets/
+ * directory of the reports, only when their content changed. Pages link them with a content hash
+ * in the query string, so browsers can keep them cached across pages and runs until they change.
+ */
+final class ReportAssets {
+    static final String DIR_NAME = "assets";
+    static final String BASE_CSS = "report.css";
+    private static final List<String> FILES = List.of(
+        BASE_CSS, "index.css", "dashboard.css", "detailed.css", "detailed.js", "timeline.css",
+        "detailed-sharded.css", "detailed-sharded.js", "search.js", "live.css", "live.js");
+
+    private static final Map<String, byte[]> CONTENT = new LinkedHashMap<>();
+    private static final Map<String, String> HREFS = new LinkedHashMap<>();
+
+    static {
+        for (String name : FILES) {
+            byte[] content = load(name);
+            CONTENT.put(name, content);
+            HREFS.put(name, DIR_NAME + "/" + name + "?v=" + HexFormat.of().formatHex(sha256(content), 0, 4));
+        }
+    }
+
+    private ReportAssets() {
+    }
+
+    /**
+     * Copy the assets into the reports directory, leaving unchanged files untouched
+     */
+    static void write(Path reportsDir) throws IOException {
+        Path directory = reportsDir.resolve(DIR_NAME);
+        Files.createDirectories(directory);
+        for (Map.Entry<String, byte[]> asset : CONTENT.entrySet()) {
+            Path file = directory.resolve(asset.getKey());
+            if (!Files.exists(file) || !Arrays.equals(Files.readAllBytes(file), asset.getValue())) {
+                Files.write(file, asset.getValue());
+            }
+        }
+    }
+
+    /**
+     * Link to an asset relative to the reports directory, versioned by its content
+     */
+    static String href(String name) {
+        String href = HREFS.get(name);
+        if (href == null) {
+            throw new IllegalArgumentException("Unknown report asset: " + name);
+        }
+        return href;
+    }
+
+    private static byte[] load(String name) {
+        try (InputStream in = ReportAssets.class.getResourceAsStream(DIR_NAME + "/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Report asset missing from the classpath: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
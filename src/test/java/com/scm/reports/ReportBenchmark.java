@@ -0,0 +1,280 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Benchmark suite for report generation on synthetic results
+ * Each benchmark runs bench.warmup untimed iterations, then bench.iterations measured ones, and
+ * reports time per operation, throughput in scenarios per second and allocation per operation
+ * and per second. Single-threaded benchmarks count the bytes allocated by the benchmark thread;
+ * end-to-end generation renders on a thread pool, so its allocation is estimated from heap usage
+ * and garbage collections instead. Paired benchmarks compare the current approach with the one it
+ * replaced: escaping with chained String.replace, and building the detailed page in memory.
+ * The result shape is set with the bench.* properties described in SyntheticResults;
+ * -Dbench.only=parse,render (comma-separated name prefixes) selects benchmarks.
+ * Usage: ReportBenchmark
+ */
+public class ReportBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final PrintStream CONSOLE = System.out;
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private final int warmup = Integer.getInteger("bench.warmup", 3);
+    private final int iterations = Integer.getInteger("bench.iterations", 5);
+    private final List<String> only = Arrays.asList(System.getProperty("bench.only", "").split(","));
+    private final SyntheticResults shape = SyntheticResults.fromProperties();
+    private final Path workDir;
+
+    private ReportBenchmark(Path workDir) {
+        this.workDir = workDir;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Keep benchmark runs out of the latency history and the regression gate
+        System.setProperty("report.history", "false");
+        Path workDir = Files.createTempDirectory("report-benchmark");
+        try {
+            new ReportBenchmark(workDir).run();
+        } finally {
+            deleteTree(workDir);
+        }
+    }
+
+    private void run() throws IOException {
+        Path json = workDir.resolve("cucumber.json");
+        Path log = workDir.resolve("results.ndjson.gz");
+        shape.writeCucumberJson(json);
+        shape.writeResultLog(log);
+        CONSOLE.println("Results: " + shape);
+        CONSOLE.println("cucumber.json " + Files.size(json) / 1024 + " KB, result log " + Files.size(log) / 1024 + " KB");
+        CONSOLE.println("Warmup " + warmup + ", iterations " + iterations);
+        CONSOLE.printf("%-24s %10s %8s %10s %12s %10s %9s%n",
+            "benchmark", "ms/op", "stddev", "ops/s", "scenarios/s", "MB/op", "MB/s");
+
+        HtmlReportGenerator generator = new HtmlReportGenerator(workDir.resolve("unused"));
+        ReportData data = parse(generator, json);
+
+        benchmark("scan cucumber.json", () -> FeatureScanner.scan(json));
+        benchmark("scan result log", () -> FeatureScanner.slices(log));
+        benchmark("parse cucumber.json", () -> parse(generator, json));
+        benchmark("parse result log", () -> parse(generator, log));
+        benchmark("escape text", () -> {
+            HtmlWriter out = new HtmlWriter(Writer.nullWriter());
+            for (ScenarioView scenario : data.scenarios) {
+                out.text(scenario.name());
+                for (StepView step : scenario.steps()) {
+                    out.text(step.name());
+                    out.text(step.errorMessage());
+                }
+            }
+        });
+        benchmark("escape legacy replace", () -> {
+            for (ScenarioView scenario : data.scenarios) {
+                legacyEscapeHtml(scenario.name());
+                for (StepView step : scenario.steps()) {
+                    legacyEscapeHtml(step.name());
+                    legacyEscapeHtml(step.errorMessage());
+                }
+            }
+        });
+        benchmark("render dashboard", () -> generator.writeDashboardHtml(data, null, null, nullWriter()));
+        benchmark("render detailed", () -> generator.writeDetailedHtml(data, null, nullWriter()));
+        benchmark("render timeline", () -> generator.writeTimelineHtml(data, nullWriter()));
+        benchmark("render index", () -> generator.writeIndexHtml(nullWriter()));
+        Path page = workDir.resolve("detailed.html");
+        benchmark("write detailed streamed", () -> {
+            try (HtmlWriter out = HtmlWriter.open(page)) {
+                generator.writeDetailedHtml(data, null, out);
+            }
+        });
+        benchmark("write detailed in-memory", () -> {
+            StringWriter buffer = new StringWriter();
+            generator.writeDetailedHtml(data, null, new HtmlWriter(buffer));
+            Files.writeString(page, buffer.toString(), StandardCharsets.UTF_8);
+        });
+        benchmark("generate end-to-end", () -> {
+            Path reportsDir = workDir.resolve("reports");
+            // Start from an empty directory so nothing is served from the parse cache
+            deleteTree(reportsDir);
+            new HtmlReportGenerator(reportsDir).generateReports(json.toString());
+        });
+    }
+
+    /**
+     * Scan and parse with a cold cache, extracting attachments into a fresh directory
+     * The directories are removed with the work directory at the end of the run.
+     */
+    private ReportData parse(HtmlReportGenerator generator, Path input) throws IOException {
+        Path scratch = Files.createTempDirectory(workDir, "parse");
+        List<FeatureScanner.Slice> slices = FeatureScanner.slices(input);
+        PrintStream console = System.out;
+        System.setOut(DISCARD);
+        try {
+            return generator.parseReportData(List.of(input), List.of(slices),
+                new ArtifactStore(scratch), new ReportCache(scratch));
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private void benchmark(String name, Operation operation) throws IOException {
+        if (!selected(name)) {
+            return;
+        }
+        boolean multiThreaded = name.startsWith("generate");
+        System.setOut(DISCARD);
+        double[] millis = new double[iterations];
+        long allocated = 0;
+        try {
+            for (int i = 0; i < warmup; i++) {
+                operation.run();
+            }
+            HeapAllocationMeter heap = multiThreaded ? new HeapAllocationMeter() : null;
+            for (int i = 0; i < iterations; i++) {
+                long threadBefore = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long heapBefore = heap != null ? heap.start() : 0;
+                long start = System.nanoTime();
+                operation.run();
+                millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+                allocated += heap != null ? heap.stop(heapBefore)
+                    : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - threadBefore;
+            }
+            if (heap != null) {
+                heap.close();
+            }
+        } finally {
+            System.setOut(CONSOLE);
+        }
+
+        double mean = Arrays.stream(millis).average().orElse(0);
+        double variance = Arrays.stream(millis).map(m -> (m - mean) * (m - mean)).sum() / Math.max(1, iterations - 1);
+        double megabytesPerOp = allocated / (double) iterations / (1024 * 1024);
+        CONSOLE.printf("%-24s %10.3f %8.3f %10.1f %12.0f %10.2f %9.0f%s%n",
+            name, mean, Math.sqrt(variance), 1000.0 / mean, shape.scenarioCount() * 1000.0 / mean,
+            megabytesPerOp, megabytesPerOp * 1000.0 / mean, multiThreaded ? " (heap estimate)" : "");
+    }
+
+    private boolean selected(String name) {
+        for (String prefix : only) {
+            if (name.startsWith(prefix.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Escaping as the renderers did before HtmlWriter: one full copy per replaced character
+     */
+    private static String legacyEscapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                   .replace("<", "&lt;")
+                   .replace(">", "&gt;")
+                   .replace("\"", "&quot;")
+                   .replace("'", "&#39;");
+    }
+
+    private static HtmlWriter nullWriter() {
+        return new HtmlWriter(Writer.nullWriter());
+    }
+
+    /**
+     * Bytes allocated by all threads: growth of the heap plus what garbage collections reclaimed
+     */
+    private static final class HeapAllocationMeter {
+        private final AtomicLong reclaimed = new AtomicLong();
+        private final NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                reclaimed.addAndGet(used(info.getGcInfo().getMemoryUsageBeforeGc())
+                    - used(info.getGcInfo().getMemoryUsageAfterGc()));
+            }
+        };
+
+        HeapAllocationMeter() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+            }
+        }
+
+        long start() {
+            return heapUsed() + reclaimed.get();
+        }
+
+        long stop(long started) {
+            // Notifications are delivered asynchronously, shortly after each collection
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Math.max(0, heapUsed() + reclaimed.get() - started);
+        }
+
+        void close() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(listener);
+                } catch (ListenerNotFoundException e) {
+                    // Already removed
+                }
+            }
+        }
+
+        private static long heapUsed() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        private static long used(Map<String, MemoryUsage> pools) {
+            long used = 0;
+            for (MemoryUsage usage : pools.values()) {
+                used += usage.getUsed();
+            }
+            return used;
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
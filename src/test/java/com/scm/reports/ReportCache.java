@@ -0,0 +1,140 @@
+package com.scm.reports;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cache of parsed per-feature results, keyed by the SHA-256 of the feature's JSON
+ * Lets a rerun (e.g. after a retry pass) reparse only the features whose results changed.
+ * Disable with -Dreport.cache=false.
+ */
+class ReportCache {
+    static final String DIR_NAME = ".cache";
+    // Bump when the parsed model changes shape so stale entries are ignored
+    private static final int VERSION = 6;
+    private static final Type SCENARIO_LIST = new TypeToken<List<TestScenario>>() { }.getType();
+
+    private final Path directory;
+    private final boolean enabled;
+    private final Gson gson = new Gson();
+
+    ReportCache(Path reportsDir) {
+        this.directory = reportsDir.resolve(DIR_NAME);
+        this.enabled = !"false".equals(System.getProperty("report.cache"));
+    }
+
+    /**
+     * Whether the previous generation used exactly these features, in this order, and the same settings
+     * @param settings Output settings of the generation, such as the pages and exports written
+     */
+    boolean isCurrent(List<FeatureScanner.Slice> features, String settings) {
+        if (!enabled) {
+            return false;
+        }
+        Path manifest = directory.resolve("manifest.json");
+        if (!Files.exists(manifest)) {
+            return false;
+        }
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            JsonObject json = gson.fromJson(reader, JsonObject.class);
+            if (json == null || json.get("version").getAsInt() != VERSION
+                    || !json.has("settings") || !settings.equals(json.get("settings").getAsString())) {
+                return false;
+            }
+            List<String> previous = new ArrayList<>();
+            json.getAsJsonArray("features").forEach(hash -> previous.add(hash.getAsString()));
+            return previous.equals(hashes(features));
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Load the parsed scenarios of a feature
+     * @return Cached scenarios, or null when the feature has not been parsed before
+     */
+    List<TestScenario> load(String featureHash) {
+        if (!enabled) {
+            return null;
+        }
+        Path entry = entry(featureHash);
+        if (!Files.exists(entry)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, SCENARIO_LIST);
+        } catch (IOException | JsonParseException e) {
+            // A damaged entry is simply reparsed
+            return null;
+        }
+    }
+
+    void store(String featureHash, List<TestScenario> scenarios) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "entry-", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(scenarios, SCENARIO_LIST, writer);
+        }
+        Files.move(temp, entry(featureHash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Record the features and settings of a successful generation and drop entries no longer in use
+     */
+    void commit(List<FeatureScanner.Slice> features, String settings) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<String> hashes = hashes(features);
+        Set<String> keep = new HashSet<>();
+        for (String hash : hashes) {
+            keep.add(hash + ".json");
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (!keep.contains(name) && !"manifest.json".equals(name)) {
+                    Files.delete(entry);
+                }
+            }
+        }
+
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("version", VERSION);
+        manifest.addProperty("settings", settings);
+        manifest.add("features", gson.toJsonTree(hashes));
+        Files.writeString(directory.resolve("manifest.json"), gson.toJson(manifest), StandardCharsets.UTF_8);
+    }
+
+    private Path entry(String featureHash) {
+        return directory.resolve(featureHash + ".json");
+    }
+
+    private static List<String> hashes(List<FeatureScanner.Slice> features) {
+        List<String> hashes = new ArrayList<>(features.size());
+        for (FeatureScanner.Slice feature : features) {
+            hashes.add(feature.hash);
+        }
+        return hashes;
+    }
+}
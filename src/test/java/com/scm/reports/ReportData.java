@@ -0,0 +1,459 @@
+package com.scm.reports;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Aggregated results of a test run, as consumed by the report renderers
+ * Scenarios and steps are stored column by column in primitive arrays, with strings interned in
+ * a StringTable and statuses as byte codes, so a run of a million steps holds a few arrays
+ * instead of millions of objects. Aggregations scan the columns they need; renderers read
+ * scenarios and steps through ScenarioView and StepView. The columns of scenario i's tags,
+ * steps and attachments are the ranges [offsets[i], offsets[i + 1]) of the offset arrays.
+ * Instances are immutable once built so all renderers can share them across threads.
+ */
+final class ReportData {
+    // Status codes of the common statuses; other statuses get codes in order of appearance
+    static final byte PASSED = 0;
+    static final byte FAILED = 1;
+    static final byte SKIPPED = 2;
+
+    final String generatedAt;
+    final int totalTests;
+    final int passedTests;
+    final int failedTests;
+    final long totalDuration;
+    final List<ScenarioView> scenarios;
+    final LatencyStats latency;
+    final FailureClusters failures;
+    final DriverCommandStats commands;
+
+    final StringTable strings;
+    // Status names by code
+    final String[] statuses;
+
+    // Scenario columns: string ids, numbers and status codes
+    final int[] featureNames;
+    final int[] featureUris;
+    final int[] names;
+    final int[] workers;
+    final int[] shards;
+    final int[] featureKeys;
+    final int[] lines;
+    final long[] startTimestamps;
+    final long[] setupDurations;
+    final long[] teardownDurations;
+    final long[] durations;
+    final byte[] scenarioStatuses;
+    final int[] tagOffsets;
+    final int[] tags;
+    final int[] stepOffsets;
+    final int[] attachmentOffsets;
+    final Attachment[] attachments;
+
+    // Step columns of all scenarios, in scenario order
+    final int[] stepKeywords;
+    final int[] stepNames;
+    // "Keyword name", as used for step latency and regressions (see LatencyHistory.stepKey)
+    final int[] stepKeys;
+    final int[] stepErrors;
+    final long[] stepDurations;
+    final byte[] stepStatuses;
+    final int[] stepAttachmentOffsets;
+    final Attachment[] stepAttachments;
+    // Span breakdown JSON attached by Hooks, 0 for steps without spans
+    final int[] stepSpans;
+    // WebDriver command log JSON attached by Hooks, 0 for steps without commands
+    final int[] stepCommands;
+    // Page performance JSON attached by Hooks, 0 for steps that captured no pages
+    final int[] stepPages;
+
+    private ReportData(Builder builder) {
+        this.generatedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        int count = builder.scenarioCount;
+        int stepCount = builder.stepCount;
+        builder.strings.freeze();
+        this.strings = builder.strings;
+        this.statuses = builder.statuses.toArray(new String[0]);
+
+        this.featureNames = Arrays.copyOf(builder.featureNames, count);
+        this.featureUris = Arrays.copyOf(builder.featureUris, count);
+        this.names = Arrays.copyOf(builder.names, count);
+        this.workers = Arrays.copyOf(builder.workers, count);
+        this.shards = Arrays.copyOf(builder.shards, count);
+        this.featureKeys = Arrays.copyOf(builder.featureKeys, count);
+        this.lines = Arrays.copyOf(builder.lines, count);
+        this.startTimestamps = Arrays.copyOf(builder.startTimestamps, count);
+        this.setupDurations = Arrays.copyOf(builder.setupDurations, count);
+        this.teardownDurations = Arrays.copyOf(builder.teardownDurations, count);
+        this.durations = Arrays.copyOf(builder.durations, count);
+        this.scenarioStatuses = Arrays.copyOf(builder.scenarioStatuses, count);
+        this.tagOffsets = Arrays.copyOf(builder.tagOffsets, count + 1);
+        this.tags = Arrays.copyOf(builder.tags, builder.tagCount);
+        this.stepOffsets = Arrays.copyOf(builder.stepOffsets, count + 1);
+        this.attachmentOffsets = Arrays.copyOf(builder.attachmentOffsets, count + 1);
+        this.attachments = Arrays.copyOf(builder.attachments, builder.attachmentCount);
+
+        this.stepKeywords = Arrays.copyOf(builder.stepKeywords, stepCount);
+        this.stepNames = Arrays.copyOf(builder.stepNames, stepCount);
+        this.stepKeys = Arrays.copyOf(builder.stepKeys, stepCount);
+        this.stepErrors = Arrays.copyOf(builder.stepErrors, stepCount);
+        this.stepDurations = Arrays.copyOf(builder.stepDurations, stepCount);
+        this.stepStatuses = Arrays.copyOf(builder.stepStatuses, stepCount);
+        this.stepAttachmentOffsets = Arrays.copyOf(builder.stepAttachmentOffsets, stepCount + 1);
+        this.stepAttachments = Arrays.copyOf(builder.stepAttachments, builder.stepAttachmentCount);
+        this.stepSpans = Arrays.copyOf(builder.stepSpans, stepCount);
+        this.stepCommands = Arrays.copyOf(builder.stepCommands, stepCount);
+        this.stepPages = Arrays.copyOf(builder.stepPages, stepCount);
+        this.scenarios = new ScenarioList();
+
+        int passed = 0;
+        int failed = 0;
+        long duration = 0;
+        for (int i = 0; i < count; i++) {
+            if (scenarioStatuses[i] == PASSED) {
+                passed++;
+            } else if (scenarioStatuses[i] == FAILED) {
+                failed++;
+            }
+            duration += durations[i];
+        }
+        this.totalTests = count;
+        this.passedTests = passed;
+        this.failedTests = failed;
+        this.totalDuration = duration;
+        this.latency = LatencyStats.of(this);
+        this.failures = FailureClusters.of(this);
+        this.commands = DriverCommandStats.of(this);
+    }
+
+    /**
+     * Build run totals from parsed scenarios
+     * @param scenarios Parsed scenarios in execution order
+     */
+    static ReportData of(List<TestScenario> scenarios) {
+        Builder builder = new Builder();
+        for (TestScenario scenario : scenarios) {
+            builder.add(scenario);
+        }
+        return builder.build();
+    }
+
+    int stepCount() {
+        return stepKeys.length;
+    }
+
+    ScenarioView scenario(int index) {
+        return new ScenarioView(this, index);
+    }
+
+    /**
+     * Steps in the range [from, to) of the step columns
+     */
+    List<StepView> steps(int from, int to) {
+        return new AbstractList<>() {
+            @Override
+            public StepView get(int index) {
+                return new StepView(ReportData.this, from + index);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Scenarios in execution order, created on access
+     */
+    private final class ScenarioList extends AbstractList<ScenarioView> implements RandomAccess {
+        @Override
+        public ScenarioView get(int index) {
+            return new ScenarioView(ReportData.this, index);
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+    }
+
+    /**
+     * Appends parsed scenarios to growing columns; the scenario objects can be dropped once added
+     * Not thread-safe: scenarios are added by the thread that reads the merged result streams.
+     */
+    static final class Builder {
+        private final StringTable strings = new StringTable();
+        private final List<String> statuses = new ArrayList<>(List.of("passed", "failed", "skipped"));
+        // Step key id by keyword and name id, so "keyword name" is concatenated once per distinct step
+        private final Map<Long, Integer> stepKeyIds = new HashMap<>();
+
+        private int scenarioCount;
+        private int[] featureNames = new int[256];
+        private int[] featureUris = new int[256];
+        private int[] names = new int[256];
+        private int[] workers = new int[256];
+        private int[] shards = new int[256];
+        private int[] featureKeys = new int[256];
+        private int[] lines = new int[256];
+        private long[] startTimestamps = new long[256];
+        private long[] setupDurations = new long[256];
+        private long[] teardownDurations = new long[256];
+        private long[] durations = new long[256];
+        private byte[] scenarioStatuses = new byte[256];
+        private int[] tagOffsets = new int[257];
+        private int[] stepOffsets = new int[257];
+        private int[] attachmentOffsets = new int[257];
+        private int tagCount;
+        private int[] tags = new int[256];
+        private int attachmentCount;
+        private Attachment[] attachments = new Attachment[16];
+
+        private int stepCount;
+        private int[] stepKeywords = new int[1024];
+        private int[] stepNames = new int[1024];
+        private int[] stepKeys = new int[1024];
+        private int[] stepErrors = new int[1024];
+        private long[] stepDurations = new long[1024];
+        private byte[] stepStatuses = new byte[1024];
+        private int[] stepAttachmentOffsets = new int[1025];
+        private int stepAttachmentCount;
+        private Attachment[] stepAttachments = new Attachment[16];
+        private int[] stepSpans = new int[1024];
+        private int[] stepCommands = new int[1024];
+        private int[] stepPages = new int[1024];
+
+        void add(TestScenario scenario) {
+            if (scenarioCount == names.length) {
+                growScenarios();
+            }
+            int i = scenarioCount++;
+            featureNames[i] = strings.intern(scenario.featureName);
+            featureUris[i] = strings.intern(scenario.featureUri);
+            names[i] = strings.intern(scenario.name);
+            workers[i] = strings.intern(scenario.worker);
+            shards[i] = strings.intern(scenario.shard);
+            featureKeys[i] = strings.intern(scenario.featureKey);
+            lines[i] = scenario.line;
+            startTimestamps[i] = scenario.startTimestamp;
+            setupDurations[i] = scenario.setupDuration;
+            teardownDurations[i] = scenario.teardownDuration;
+            durations[i] = scenario.duration;
+            scenarioStatuses[i] = statusCode(scenario.status);
+
+            for (String tag : scenario.tags) {
+                if (tagCount == tags.length) {
+                    tags = Arrays.copyOf(tags, tagCount * 2);
+                }
+                tags[tagCount++] = strings.intern(tag);
+            }
+            tagOffsets[i + 1] = tagCount;
+            for (Attachment attachment : scenario.attachments) {
+                if (attachmentCount == attachments.length) {
+                    attachments = Arrays.copyOf(attachments, attachmentCount * 2);
+                }
+                attachments[attachmentCount++] = attachment;
+            }
+            attachmentOffsets[i + 1] = attachmentCount;
+            for (TestStep step : scenario.steps) {
+                addStep(step);
+            }
+            stepOffsets[i + 1] = stepCount;
+        }
+
+        private void addStep(TestStep step) {
+            if (stepCount == stepKeys.length) {
+                growSteps();
+            }
+            int i = stepCount++;
+            int keyword = strings.intern(step.keyword);
+            int name = strings.intern(step.name);
+            stepKeywords[i] = keyword;
+            stepNames[i] = name;
+            stepKeys[i] = stepKeyIds.computeIfAbsent((long) keyword << 32 | name,
+                pair -> strings.intern(LatencyHistory.stepKey(step)));
+            stepErrors[i] = strings.intern(step.errorMessage);
+            stepDurations[i] = step.duration;
+            stepStatuses[i] = statusCode(step.status);
+            for (Attachment attachment : step.attachments) {
+                if (stepAttachmentCount == stepAttachments.length) {
+                    stepAttachments = Arrays.copyOf(stepAttachments, stepAttachmentCount * 2);
+                }
+                stepAttachments[stepAttachmentCount++] = attachment;
+            }
+            stepAttachmentOffsets[i + 1] = stepAttachmentCount;
+            stepSpans[i] = strings.intern(step.spans);
+            stepCommands[i] = strings.intern(step.commands);
+            stepPages[i] = strings.intern(step.pages);
+        }
+
+        private byte statusCode(String status) {
+            int code = statuses.indexOf(status);
+            if (code < 0) {
+                if (statuses.size() > Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct statuses: " + statuses);
+                }
+                code = statuses.size();
+                statuses.add(status);
+            }
+            return (byte) code;
+        }
+
+        private void growScenarios() {
+            int capacity = names.length * 2;
+            featureNames = Arrays.copyOf(featureNames, capacity);
+            featureUris = Arrays.copyOf(featureUris, capacity);
+            names = Arrays.copyOf(names, capacity);
+            workers = Arrays.copyOf(workers, capacity);
+            shards = Arrays.copyOf(shards, capacity);
+            featureKeys = Arrays.copyOf(featureKeys, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            startTimestamps = Arrays.copyOf(startTimestamps, capacity);
+            setupDurations = Arrays.copyOf(setupDurations, capacity);
+            teardownDurations = Arrays.copyOf(teardownDurations, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            scenarioStatuses = Arrays.copyOf(scenarioStatuses, capacity);
+            tagOffsets = Arrays.copyOf(tagOffsets, capacity + 1);
+            stepOffsets = Arrays.copyOf(stepOffsets, capacity + 1);
+            attachmentOffsets = Arrays.copyOf(attachmentOffsets, capacity + 1);
+        }
+
+        private void growSteps() {
+            int capacity = stepKeys.length * 2;
+            stepKeywords = Arrays.copyOf(stepKeywords, capacity);
+            stepNames = Arrays.copyOf(stepNames, capacity);
+            stepKeys = Arrays.copyOf(stepKeys, capacity);
+            stepErrors = Arrays.copyOf(stepErrors, capacity);
+            stepDurations = Arrays.copyOf(stepDurations, capacity);
+            stepStatuses = Arrays.copyOf(stepStatuses, capacity);
+            stepAttachmentOffsets = Arrays.copyOf(stepAttachmentOffsets, capacity + 1);
+            stepSpans = Arrays.copyOf(stepSpans, capacity);
+            stepCommands = Arrays.copyOf(stepCommands, capacity);
+            stepPages = Arrays.copyOf(stepPages, capacity);
+        }
+
+        /**
+         * Reorder the added scenarios by start timestamp, e.g. after merging shards one after the other
+         * Scenarios with the same start keep the order they were added in. The columns are permuted
+         * in place of the scenario objects, which are gone by now.
+         */
+        void sortByStart() {
+            Integer[] boxed = new Integer[scenarioCount];
+            for (int i = 0; i < scenarioCount; i++) {
+                boxed[i] = i;
+            }
+            // Object sorting is stable
+            Arrays.sort(boxed, Comparator.comparingLong(i -> startTimestamps[i]));
+            int[] order = new int[scenarioCount];
+            for (int i = 0; i < scenarioCount; i++) {
+                order[i] = boxed[i];
+            }
+
+            // New position to old position of every tag, attachment and step, following their scenarios
+            int[] tagOrder = rangeOrder(order, tagOffsets, tagCount);
+            int[] attachmentOrder = rangeOrder(order, attachmentOffsets, attachmentCount);
+            int[] stepOrder = rangeOrder(order, stepOffsets, stepCount);
+            int[] stepAttachmentOrder = rangeOrder(stepOrder, stepAttachmentOffsets, stepAttachmentCount);
+
+            featureNames = permute(featureNames, order);
+            featureUris = permute(featureUris, order);
+            names = permute(names, order);
+            workers = permute(workers, order);
+            shards = permute(shards, order);
+            featureKeys = permute(featureKeys, order);
+            lines = permute(lines, order);
+            startTimestamps = permute(startTimestamps, order);
+            setupDurations = permute(setupDurations, order);
+            teardownDurations = permute(teardownDurations, order);
+            durations = permute(durations, order);
+            scenarioStatuses = permute(scenarioStatuses, order);
+            tags = permute(tags, tagOrder);
+            attachments = permute(attachments, attachmentOrder);
+            tagOffsets = permuteOffsets(tagOffsets, order);
+            attachmentOffsets = permuteOffsets(attachmentOffsets, order);
+            stepOffsets = permuteOffsets(stepOffsets, order);
+
+            stepKeywords = permute(stepKeywords, stepOrder);
+            stepNames = permute(stepNames, stepOrder);
+            stepKeys = permute(stepKeys, stepOrder);
+            stepErrors = permute(stepErrors, stepOrder);
+            stepDurations = permute(stepDurations, stepOrder);
+            stepStatuses = permute(stepStatuses, stepOrder);
+            stepSpans = permute(stepSpans, stepOrder);
+            stepCommands = permute(stepCommands, stepOrder);
+            stepPages = permute(stepPages, stepOrder);
+            stepAttachments = permute(stepAttachments, stepAttachmentOrder);
+            stepAttachmentOffsets = permuteOffsets(stepAttachmentOffsets, stepOrder);
+        }
+
+        /**
+         * Old positions of the elements of the ranges [offsets[i], offsets[i + 1]), taken in the given order of i
+         */
+        private static int[] rangeOrder(int[] order, int[] offsets, int total) {
+            int[] positions = new int[total];
+            int next = 0;
+            for (int i : order) {
+                for (int position = offsets[i]; position < offsets[i + 1]; position++) {
+                    positions[next++] = position;
+                }
+            }
+            return positions;
+        }
+
+        private static int[] permuteOffsets(int[] offsets, int[] order) {
+            int[] permuted = new int[offsets.length];
+            for (int i = 0; i < order.length; i++) {
+                permuted[i + 1] = permuted[i] + offsets[order[i] + 1] - offsets[order[i]];
+            }
+            return permuted;
+        }
+
+        private static int[] permute(int[] column, int[] order) {
+            int[] permuted = new int[column.length];
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = column[order[i]];
+            }
+            return permuted;
+        }
+
+        private static long[] permute(long[] column, int[] order) {
+            long[] permuted = new long[column.length];
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = column[order[i]];
+            }
+            return permuted;
+        }
+
+        private static byte[] permute(byte[] column, int[] order) {
+            byte[] permuted = new byte[column.length];
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = column[order[i]];
+            }
+            return permuted;
+        }
+
+        private static Attachment[] permute(Attachment[] column, int[] order) {
+            Attachment[] permuted = new Attachment[column.length];
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = column[order[i]];
+            }
+            return permuted;
+        }
+
+        /**
+         * Aggregate the added scenarios; the builder may not be used afterwards
+         */
+        ReportData build() {
+            return new ReportData(this);
+        }
+    }
+}
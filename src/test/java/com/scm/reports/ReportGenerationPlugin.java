@@ -0,0 +1,120 @@
+package com.scm.reports;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.TestRunFinished;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cucumber plugin that generates the HTML reports when the test run finishes
+ * Generation runs on a background thread, so the test engine can report results without waiting
+ * for it; a shutdown hook keeps the JVM alive until the reports are written (at most
+ * report.generation.timeout seconds, default 300). The report covers the result logs of all forks
+ * (see ReportManager.inputs). Forks sharing the reports directory take turns through a file lock;
+ * a fork skips generation while another fork is still writing its log, leaving it to the last fork
+ * to finish, and when the inputs are unchanged since the last report, so parallel forks generate
+ * only once. If the last fork dies before generating, run ReportGeneratorRunner.
+ * Register it after ResultLogPlugin: handlers run in plugin order, so the result log is complete
+ * by the time this plugin sees the end of the run. -Dreport.auto=false turns it off.
+ * Usage: com.scm.reports.ReportGenerationPlugin
+ */
+public class ReportGenerationPlugin implements ConcurrentEventListener {
+    private static final Path LOCK_FILE = Paths.get("target/html-reports/.generation.lock");
+    private static final long TIMEOUT_SECONDS = Long.getLong("report.generation.timeout", 300);
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestRunFinished.class, this::onRunFinished);
+    }
+
+    private void onRunFinished(TestRunFinished event) {
+        if ("false".equalsIgnoreCase(System.getProperty("report.auto", "true"))) {
+            return;
+        }
+        Thread generator = new Thread(this::generate, "report-generator");
+        generator.start();
+        // Surefire ends forked JVMs with System.exit, which does not wait for running threads
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> awaitGenerator(generator), "report-generator-await"));
+        System.out.println("📊 Generating HTML reports in the background...");
+    }
+
+    private void awaitGenerator(Thread generator) {
+        try {
+            generator.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            if (generator.isAlive()) {
+                System.err.println("⚠️  Report generation did not finish within " + TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Generator thread: generate under the lock unless another fork is still running or already
+     * reported these inputs
+     * The lock file holds the signature of the inputs of the last report that was generated successfully.
+     */
+    @SuppressWarnings("try") // The lock is held for the whole block
+    private void generate() {
+        try {
+            Files.createDirectories(LOCK_FILE.getParent());
+            try (FileChannel channel = FileChannel.open(LOCK_FILE,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                List<String> inputs = ReportManager.resolveInputs(ReportManager.inputs());
+                for (String input : inputs) {
+                    if (ResultLogPlugin.isWrittenByOtherProcess(Paths.get(input))) {
+                        System.out.println("⏳ Another fork is still running (" + input
+                            + "); the last fork to finish generates the reports");
+                        return;
+                    }
+                }
+                String signature = inputSignature(inputs);
+                if (!signature.isEmpty() && signature.equals(read(channel))) {
+                    System.out.println("✅ HTML reports are already up to date for these results");
+                    return;
+                }
+                // A failed report is regenerated by the next fork rather than marked up to date
+                if (!ReportManager.generateReports()) {
+                    return;
+                }
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(signature.getBytes(StandardCharsets.UTF_8)), 0);
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error generating reports: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Path, size and modification time of each input, one per line
+     */
+    private static String inputSignature(List<String> inputs) throws IOException {
+        StringBuilder signature = new StringBuilder();
+        for (String input : inputs) {
+            Path path = Paths.get(input);
+            signature.append(path.toAbsolutePath()).append('\t').append(Files.size(path))
+                .append('\t').append(Files.getLastModifiedTime(path).toMillis()).append('\n');
+        }
+        return signature.toString();
+    }
+
+    private static String read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // Read until full
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+}
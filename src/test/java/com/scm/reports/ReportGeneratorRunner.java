@@ -1,14 +1,197 @@
 package com.scm.reports;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
 /**
- * Standalone runner to generate HTML reports from existing Cucumber JSON output
+ * Standalone runner to generate HTML reports from existing result logs or Cucumber JSON output
  * Usage: Run this class after tests complete to generate reports
+ *   --input <files or globs>   Result files, comma-separated or repeated (default: the result log, else cucumber.json)
+ *   --output <directory>       Reports directory (default target/html-reports)
+ *   --formats <list>           Pages and exports to generate: dashboard,detailed,timeline,index,prometheus,csv,junit
+ *                              (default all pages, and the exports selected by -Dreport.exports)
+ *   --parallelism <threads>    Threads that parse and render (default: number of processors)
+ *   --max-memory <size>        Heap cap such as 512m or 4g; generation runs in a child JVM with -Xmx
+ * Exits with status 1 when step durations regressed beyond the budget (see RegressionGate), 2 on bad arguments
+ * and 3 when generation failed, e.g. on an unreadable input or a page that could not be written
  */
 public class ReportGeneratorRunner {
+    private static final int EXIT_REGRESSIONS = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_FAILED = 3;
+    // Set in the child JVM started for --max-memory
+    private static final String CHILD_PROPERTY = "report.cli.child";
+
+    private final List<String> inputs = new ArrayList<>();
+    private Path output = Paths.get("target/html-reports");
+    private List<String> formats = HtmlReportGenerator.FORMATS;
+    private List<String> exports = LatencyExports.selectedFormats();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private String maxMemory;
+
     public static void main(String[] args) {
+        ReportGeneratorRunner runner = new ReportGeneratorRunner();
+        try {
+            runner.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            printUsage();
+            System.exit(EXIT_USAGE);
+        }
+        if (runner.maxMemory != null && !Boolean.getBoolean(CHILD_PROPERTY)) {
+            Integer status = runner.relaunch(args);
+            if (status != null) {
+                System.exit(status);
+            }
+        }
+        System.exit(runner.run());
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if ("--help".equals(option) || "-h".equals(option)) {
+                printUsage();
+                System.exit(0);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--input" -> inputs.add(value);
+                case "--output" -> output = Paths.get(value);
+                case "--formats" -> parseFormats(value);
+                case "--parallelism" -> parallelism = parsePositive(option, value);
+                case "--max-memory" -> maxMemory = parseMemory(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+    }
+
+    private int run() {
+        List<String> files;
+        try {
+            String patterns = inputs.isEmpty() ? ReportManager.inputs() : String.join(",", inputs);
+            files = ReportManager.resolveInputs(patterns);
+            if (files.isEmpty()) {
+                System.err.println("❌ No result files match: " + patterns);
+                return EXIT_USAGE;
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error resolving inputs: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+
         System.out.println("🚀 Starting HTML Report Generation...");
-        ReportManager.forceGenerateReports();
+        System.out.println("   " + files.size() + " result file(s), formats " + String.join(",", formats)
+            + (exports.isEmpty() ? "" : "," + String.join(",", exports))
+            + ", " + parallelism + " thread(s), max heap " + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB");
+        HtmlReportGenerator generator = new HtmlReportGenerator(output, parallelism, formats, exports);
+        try {
+            generator.generateReports(files);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Report generation failed: " + e.getMessage());
+            e.printStackTrace();
+            return EXIT_FAILED;
+        }
+        generator.timings().printSummary();
         System.out.println("✨ Report generation complete!");
+        System.out.println("📊 View reports at: " + output.resolve("index.html"));
+        if (generator.isRegressionBudgetExceeded()) {
+            System.err.println("❌ Performance regressions exceed the budget, see "
+                + output.resolve(RegressionGate.RESULT_FILE));
+            return EXIT_REGRESSIONS;
+        }
+        return 0;
     }
-}
 
+    /**
+     * Run this class again in a child JVM capped at maxMemory, with the same JVM options and arguments
+     * @return Exit status of the child, or null when this JVM cannot be relaunched
+     */
+    private Integer relaunch(String[] args) {
+        // Classes must come from the class path, which is not the case e.g. under mvn exec:java
+        if (ReportGeneratorRunner.class.getClassLoader() != ClassLoader.getSystemClassLoader()) {
+            System.err.println("⚠️  --max-memory needs a plain java launch; continuing without the cap (use -Xmx instead)");
+            return null;
+        }
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+            .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        for (String jvmOption : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!jvmOption.startsWith("-Xmx") && !jvmOption.startsWith("-XX:MaxHeapSize")) {
+                command.add(jvmOption);
+            }
+        }
+        command.add("-Xmx" + maxMemory);
+        command.add("-D" + CHILD_PROPERTY + "=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ReportGeneratorRunner.class.getName());
+        command.addAll(Arrays.asList(args));
+        try {
+            return new ProcessBuilder(command).inheritIO().start().waitFor();
+        } catch (IOException e) {
+            System.err.println("⚠️  Could not start a JVM with -Xmx" + maxMemory + ": " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_FAILED;
+        }
+    }
+
+    /**
+     * Split the listed formats into pages and exports; exports not listed are not written
+     */
+    private void parseFormats(String value) {
+        formats = new ArrayList<>();
+        exports = new ArrayList<>();
+        for (String format : value.split(",")) {
+            String name = format.trim().toLowerCase(Locale.ROOT);
+            List<String> selected = HtmlReportGenerator.FORMATS.contains(name) ? formats
+                : LatencyExports.FORMATS.contains(name) ? exports : null;
+            if (selected == null) {
+                throw new IllegalArgumentException("Unknown format: " + format + " (expected "
+                    + String.join(",", HtmlReportGenerator.FORMATS) + "," + String.join(",", LatencyExports.FORMATS) + ")");
+            }
+            if (!selected.contains(name)) {
+                selected.add(name);
+            }
+        }
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive number: " + value);
+    }
+
+    /**
+     * Validate a heap size in -Xmx syntax: a number with an optional k, m or g suffix
+     */
+    private static String parseMemory(String value) {
+        if (!value.matches("\\d+[kKmMgG]?")) {
+            throw new IllegalArgumentException("--max-memory must look like 512m or 4g: " + value);
+        }
+        return value;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: ReportGeneratorRunner [--input <files or globs>]... [--output <directory>]"
+            + " [--formats dashboard,detailed,timeline,index,prometheus,csv,junit]"
+            + " [--parallelism <threads>] [--max-memory <size>]");
+    }
+}
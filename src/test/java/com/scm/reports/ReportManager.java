@@ -1,47 +1,144 @@
 package com.scm.reports;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 /**
  * Manages test report generation
  */
 public class ReportManager {
     private static final String CUCUMBER_JSON_PATH = "target/cucumber-reports/cucumber.json";
-    private static boolean reportsGenerated = false;
+    // Logs of all forks, see ResultLogPlugin
+    private static final String RESULT_LOGS = ResultLogPlugin.DEFAULT_PATH.replace(ResultLogPlugin.PID_PLACEHOLDER, "*");
+    // Comma-separated files or glob patterns, e.g. target/shards/*/cucumber.json
+    private static final String INPUTS_PROPERTY = "report.inputs";
+    // Claimed by the first caller, so concurrent callers in this JVM generate only once
+    private static final AtomicBoolean reportsGenerated = new AtomicBoolean();
 
     /**
-     * Generate HTML reports from Cucumber JSON output
-     * This method is safe to call multiple times - it will only generate once per test run
+     * Generate HTML reports from the result log or Cucumber JSON output
+     * This method is safe to call multiple times, also from several threads - it will only generate once per test run
+     * @return Whether this call generated the reports; false when they were already generated, no input
+     *         was found or generation failed
      */
-    public static void generateReports() {
-        if (reportsGenerated) {
-            return;
+    public static boolean generateReports() {
+        if (!reportsGenerated.compareAndSet(false, true)) {
+            return false;
         }
 
         try {
-            File jsonFile = new File(CUCUMBER_JSON_PATH);
-            if (jsonFile.exists()) {
+            String inputs = inputs();
+            List<String> jsonFiles = resolveInputs(inputs);
+            if (!jsonFiles.isEmpty()) {
                 HtmlReportGenerator generator = new HtmlReportGenerator();
-                generator.generateReports(CUCUMBER_JSON_PATH);
-                reportsGenerated = true;
+                generator.generateReports(jsonFiles);
                 System.out.println("✅ HTML reports generated successfully!");
+                // The test run has already reported its result; only ReportGeneratorRunner fails a build
+                if (generator.isRegressionBudgetExceeded()) {
+                    System.err.println("❌ Performance regressions exceed the budget, see target/html-reports/"
+                        + RegressionGate.RESULT_FILE + " (run ReportGeneratorRunner to fail the build on them)");
+                }
                 System.out.println("📊 View reports at: target/html-reports/index.html");
+                return true;
             } else {
-                System.out.println("⚠️  Cucumber JSON report not found at: " + CUCUMBER_JSON_PATH);
+                reportsGenerated.set(false);
+                System.out.println("⚠️  Cucumber JSON report not found at: " + inputs);
                 System.out.println("   Reports will be generated after test execution completes.");
             }
         } catch (Exception e) {
+            reportsGenerated.set(false);
             System.err.println("❌ Error generating reports: " + e.getMessage());
             e.printStackTrace();
         }
+        return false;
+    }
+
+    /**
+     * Report inputs from -Dreport.inputs, by default the result logs of all forks including the part
+     * files of forks that did not finish, or else cucumber.json
+     */
+    static String inputs() throws IOException {
+        String inputs = System.getProperty(INPUTS_PROPERTY);
+        if (inputs != null) {
+            return inputs;
+        }
+        // Prefer the result logs; cucumber.json remains supported when the json formatter is used
+        String logs = RESULT_LOGS + "," + RESULT_LOGS + ResultLogPlugin.PART_SUFFIX;
+        List<String> found = resolveInputs(logs);
+        if (found.isEmpty()) {
+            return CUCUMBER_JSON_PATH;
+        }
+        for (String log : found) {
+            Path path = Paths.get(log);
+            if (ResultLogReader.isPart(path) && !ResultLogPlugin.isWrittenByOtherProcess(path)) {
+                System.err.println("⚠️ A test run did not finish; reporting the scenarios saved in " + log);
+            }
+        }
+        return logs;
     }
 
     /**
      * Force report generation even if already generated
      */
-    public static void forceGenerateReports() {
-        reportsGenerated = false;
-        generateReports();
+    public static boolean forceGenerateReports() {
+        reportsGenerated.set(false);
+        return generateReports();
+    }
+
+    /**
+     * Resolve comma-separated paths and glob patterns to existing files, in sorted order
+     * A pattern is matched against paths below the directory part that precedes its first wildcard.
+     */
+    static List<String> resolveInputs(String inputs) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String input : inputs.split(",")) {
+            String pattern = input.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int wildcard = indexOfWildcard(pattern);
+            if (wildcard < 0) {
+                if (new File(pattern).isFile()) {
+                    files.add(pattern);
+                }
+                continue;
+            }
+            int separator = pattern.lastIndexOf('/', wildcard);
+            Path base = Paths.get(separator < 0 ? "." : pattern.substring(0, separator + 1));
+            if (!Files.isDirectory(base)) {
+                continue;
+            }
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(separator + 1));
+            try (Stream<Path> paths = Files.walk(base)) {
+                paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(base.relativize(path)))
+                    .map(Path::toString)
+                    .sorted()
+                    .forEach(files::add);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return files;
     }
-}
 
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,55 @@
+package com.scm.reports;
+
+import java.io.IOException;
+
+/**
+ * Markup shared by all report pages: document head with the asset links, navigation and closing tags
+ */
+final class ReportPage {
+    private static final ReportTemplate HEAD = ReportTemplate.compile("""
+        <!DOCTYPE html>
+        <html lang="en">
+        <head>
+            <meta charset="UTF-8">
+            <meta name="viewport" content="width=device-width, initial-scale=1.0">
+            <title>{{title}}</title>
+            <link rel="stylesheet" href="{{base}}">
+            <link rel="stylesheet" href="{{page}}">
+        </head>
+        <body>
+        """, "title", "base", "page");
+
+    private static final ReportTemplate NAV = ReportTemplate.compile("""
+            <div class="nav">
+                <a href="index.html">🏠 Home</a>
+                <a href="dashboard.html">📈 Dashboard</a>
+                <a href="detailed.html">📋 Detailed</a>
+                <a href="timeline.html">⏱️ Timeline</a>
+            </div>
+        """);
+
+    private ReportPage() {
+    }
+
+    /**
+     * Write the document head and open the body
+     * @param pageCss Stylesheet asset of the page, linked after the shared one
+     */
+    static void start(HtmlWriter out, String title, String pageCss) throws IOException {
+        HEAD.render(out, ReportTemplate.text(title),
+            o -> o.raw(ReportAssets.href(ReportAssets.BASE_CSS)),
+            o -> o.raw(ReportAssets.href(pageCss)));
+    }
+
+    static void nav(HtmlWriter out) throws IOException {
+        NAV.render(out);
+    }
+
+    static void script(HtmlWriter out, String asset) throws IOException {
+        out.raw("<script src=\"").raw(ReportAssets.href(asset)).raw("\"></script>\n");
+    }
+
+    static void end(HtmlWriter out) throws IOException {
+        out.raw("</body>\n</html>\n");
+    }
+}
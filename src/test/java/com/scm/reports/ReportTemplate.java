@@ -0,0 +1,100 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Markup template with named slots, parsed once and rendered straight into an HtmlWriter
+ * Slots are written as {{name}}; compiling splits the source into literal segments and slot
+ * indices, so rendering only copies literals and calls the slot writers in order. Templates are
+ * meant to be held in static final fields, which makes each one parsed once per JVM.
+ */
+final class ReportTemplate {
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // literals[i] is written before slots[i]; the last literal has no slot after it
+    private final String[] literals;
+    private final int[] slots;
+    private final int slotCount;
+
+    /**
+     * Writes the content of one slot
+     */
+    @FunctionalInterface
+    interface Slot {
+        void write(HtmlWriter out) throws IOException;
+    }
+
+    private ReportTemplate(String[] literals, int[] slots, int slotCount) {
+        this.literals = literals;
+        this.slots = slots;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Parse a template
+     * @param source Markup with {{name}} slots
+     * @param slotNames Slot names in the order their writers are passed to render; each must occur in the source
+     * @throws IllegalArgumentException for unknown, unused or unterminated slots
+     */
+    static ReportTemplate compile(String source, String... slotNames) {
+        List<String> names = Arrays.asList(slotNames);
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        boolean[] used = new boolean[slotNames.length];
+        int position = 0;
+        int open;
+        while ((open = source.indexOf(OPEN, position)) >= 0) {
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated slot at offset " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).trim();
+            int index = names.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown slot: " + name);
+            }
+            used[index] = true;
+            literals.add(source.substring(position, open));
+            slots.add(index);
+            position = close + CLOSE.length();
+        }
+        literals.add(source.substring(position));
+        for (int i = 0; i < used.length; i++) {
+            if (!used[i]) {
+                throw new IllegalArgumentException("Slot not found in template: " + slotNames[i]);
+            }
+        }
+
+        int[] slotIndexes = new int[slots.size()];
+        for (int i = 0; i < slotIndexes.length; i++) {
+            slotIndexes[i] = slots.get(i);
+        }
+        return new ReportTemplate(literals.toArray(new String[0]), slotIndexes, slotNames.length);
+    }
+
+    /**
+     * Write the template, filling each slot with its writer
+     * @param values One writer per slot name, in the order given to compile; a slot used twice is written twice
+     */
+    void render(HtmlWriter out, Slot... values) throws IOException {
+        if (values.length != slotCount) {
+            throw new IllegalArgumentException("Expected " + slotCount + " slot values, got " + values.length);
+        }
+        for (int i = 0; i < slots.length; i++) {
+            out.raw(literals[i]);
+            values[slots[i]].write(out);
+        }
+        out.raw(literals[slots.length]);
+    }
+
+    /**
+     * Slot holding escaped text
+     */
+    static Slot text(String text) {
+        return out -> out.text(text);
+    }
+}
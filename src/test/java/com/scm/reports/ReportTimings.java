@@ -0,0 +1,124 @@
+package com.scm.reports;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects wall-clock timings of report generation phases
+ * Safe to use from the render threads. Pages are rendered straight into their files, so the time
+ * spent in file writes is measured separately, in the channels opened through this class.
+ */
+class ReportTimings {
+    private final List<String> phases = new ArrayList<>();
+    private final List<Long> nanos = new ArrayList<>();
+    private final LongAdder writeNanos = new LongAdder();
+
+    /**
+     * Record the time elapsed since the given start
+     * @param phase Phase label
+     * @param startNanos Value of System.nanoTime() when the phase started
+     */
+    synchronized void record(String phase, long startNanos) {
+        phases.add(phase);
+        nanos.add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Open a buffered UTF-8 writer on a file, truncating any previous content; writes are timed
+     */
+    Writer newWriter(Path file, int bufferSize) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(new TimedChannel(channel),
+            StandardCharsets.UTF_8.newEncoder(), bufferSize), bufferSize);
+    }
+
+    /**
+     * Print all recorded phases in completion order
+     */
+    synchronized void print() {
+        System.out.println("Report generation timings:");
+        for (int i = 0; i < phases.size(); i++) {
+            System.out.printf("  %-20s %8.1f ms%n", phases.get(i), nanos.get(i) / 1_000_000.0);
+        }
+    }
+
+    /**
+     * Print the time spent in parse, aggregate, render and write
+     * Render and write add up the time of all render threads, so together they can exceed the
+     * elapsed time when pages render in parallel.
+     */
+    synchronized void printSummary() {
+        long write = writeNanos.sum();
+        System.out.println("Phase summary:");
+        printPhase("parse", sum("scan") + sum("parse"));
+        printPhase("aggregate", sum("aggregate") + sum("history") + sum("regressions"));
+        printPhase("render", Math.max(0, sum("render ") - write));
+        printPhase("write", write);
+        printPhase("total", sum("total"));
+    }
+
+    private static void printPhase(String phase, long phaseNanos) {
+        System.out.printf("  %-10s %10.1f ms%n", phase, phaseNanos / 1_000_000.0);
+    }
+
+    /**
+     * Total time of the phases whose label starts with the given prefix
+     */
+    private long sum(String prefix) {
+        long total = 0;
+        for (int i = 0; i < phases.size(); i++) {
+            if (phases.get(i).startsWith(prefix)) {
+                total += nanos.get(i);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * File channel that adds the time spent in writes to writeNanos
+     */
+    private final class TimedChannel implements WritableByteChannel {
+        private final FileChannel channel;
+
+        TimedChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return channel.write(source);
+            } finally {
+                writeNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = System.nanoTime();
+            try {
+                channel.close();
+            } finally {
+                writeNanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+}
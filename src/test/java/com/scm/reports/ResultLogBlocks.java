@@ -0,0 +1,201 @@
+package com.scm.reports;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Block layout of a compressed result log: a series of gzip members that each hold records of one feature
+ * Records are buffered per feature uri and written as a member once BLOCK_SIZE bytes are buffered
+ * or the log is flushed. As in BGZF, the header of every member carries an extra field with the
+ * member's length and the feature uri, so a log is split into features by hopping from header to
+ * header without inflating anything. The members of a feature become one FeatureScanner.Slice,
+ * which lets result logs be cached and parsed per feature like Cucumber JSON. The concatenated
+ * members are still an ordinary gzip file.
+ */
+final class ResultLogBlocks implements Closeable {
+    static final int BLOCK_SIZE = 256 * 1024;
+    private static final int FEXTRA = 4;
+    // Extra subfield id, followed by the member length (4 bytes) and the uri in UTF-8
+    private static final byte SI1 = 'R';
+    private static final byte SI2 = 'L';
+    private static final int FIXED_HEADER = 10;
+
+    private final OutputStream out;
+    private final Map<String, ByteArrayOutputStream> pending = new LinkedHashMap<>();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunk = new byte[64 * 1024];
+
+    /**
+     * @param out Log file stream; closed with this writer
+     */
+    ResultLogBlocks(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Buffer one record of a feature, writing the feature's block once it is full
+     * @param record Complete record including its line break
+     */
+    void append(String uri, String record) throws IOException {
+        ByteArrayOutputStream buffer = pending.computeIfAbsent(uri, key -> new ByteArrayOutputStream());
+        buffer.writeBytes(record.getBytes(StandardCharsets.UTF_8));
+        if (buffer.size() >= BLOCK_SIZE) {
+            pending.remove(uri);
+            writeBlock(uri, buffer.toByteArray());
+        }
+    }
+
+    /**
+     * Write a block for every feature with buffered records and flush the stream, so the file
+     * holds every record appended so far
+     */
+    void flush() throws IOException {
+        for (Map.Entry<String, ByteArrayOutputStream> entry : pending.entrySet()) {
+            writeBlock(entry.getKey(), entry.getValue().toByteArray());
+        }
+        pending.clear();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock(String uri, byte[] data) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(data.length / 4 + 64);
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        while (!deflater.finished()) {
+            body.write(chunk, 0, deflater.deflate(chunk));
+        }
+        crc.reset();
+        crc.update(data);
+
+        byte[] uriBytes = uri.getBytes(StandardCharsets.UTF_8);
+        int extraLength = 4 + 4 + uriBytes.length;
+        if (extraLength > 0xFFFF) {
+            throw new IOException("Feature uri too long for the result log: " + uri);
+        }
+        int memberLength = FIXED_HEADER + 2 + extraLength + body.size() + 8;
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER + 2 + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+        // Magic, deflate, FEXTRA, no modification time, no extra flags, unknown OS
+        header.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) FEXTRA).putInt(0).put((byte) 0).put((byte) 255);
+        header.putShort((short) extraLength);
+        header.put(SI1).put(SI2).putShort((short) (4 + uriBytes.length)).putInt(memberLength).put(uriBytes);
+        ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putInt((int) crc.getValue()).putInt(data.length);
+
+        out.write(header.array());
+        body.writeTo(out);
+        out.write(trailer.array());
+    }
+
+    /**
+     * Split a compressed result log into its features, in order of their first block
+     * The blocks of a feature are hashed together, so a feature's slice changes only with its records.
+     * @param partial Whether the log is the part file of a run that did not finish; a block cut off
+     *                at its end is left out rather than failing the scan
+     * @return Slices of the features, or null when the log does not have the block layout
+     */
+    static List<FeatureScanner.Slice> scan(Path log, boolean partial) throws IOException {
+        Map<String, Feature> features = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER + 2).order(ByteOrder.LITTLE_ENDIAN);
+            while (position < size) {
+                if (size - position < fixed.capacity()) {
+                    if (partial) {
+                        break;
+                    }
+                    throw new IOException("Result log ends within a block: " + log);
+                }
+                readFully(channel, fixed.clear(), position);
+                if (fixed.get(0) != 0x1f || fixed.get(1) != (byte) 0x8b || fixed.get(3) != FEXTRA) {
+                    return null;
+                }
+                ByteBuffer extra = ByteBuffer.allocate(fixed.getShort(FIXED_HEADER) & 0xFFFF).order(ByteOrder.LITTLE_ENDIAN);
+                if (position + fixed.capacity() + extra.capacity() > size && partial) {
+                    break;
+                }
+                readFully(channel, extra, position + fixed.capacity());
+                if (extra.capacity() < 8 || extra.get(0) != SI1 || extra.get(1) != SI2) {
+                    return null;
+                }
+                int memberLength = extra.getInt(4);
+                String uri = new String(extra.array(), 8, extra.capacity() - 8, StandardCharsets.UTF_8);
+                if (position + memberLength > size) {
+                    if (partial) {
+                        break;
+                    }
+                    throw new IOException("Result log ends within a block: " + log);
+                }
+                ByteBuffer member = ByteBuffer.allocate(memberLength);
+                readFully(channel, member, position);
+                features.computeIfAbsent(uri, key -> new Feature()).add(position, member.array());
+                position += memberLength;
+            }
+        }
+
+        List<FeatureScanner.Slice> slices = new ArrayList<>();
+        for (Feature feature : features.values()) {
+            slices.add(feature.slice());
+        }
+        return slices;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Result log was truncated while reading");
+            }
+        }
+    }
+
+    /**
+     * Blocks of one feature while scanning
+     */
+    private static final class Feature {
+        final MessageDigest digest = FeatureScanner.sha256();
+        final List<long[]> blocks = new ArrayList<>();
+
+        void add(long offset, byte[] member) {
+            digest.update(member);
+            blocks.add(new long[] {offset, member.length});
+        }
+
+        FeatureScanner.Slice slice() {
+            long[] offsets = new long[blocks.size()];
+            long[] lengths = new long[blocks.size()];
+            for (int i = 0; i < blocks.size(); i++) {
+                offsets[i] = blocks.get(i)[0];
+                lengths[i] = blocks.get(i)[1];
+            }
+            return new FeatureScanner.Slice(offsets, lengths, HexFormat.of().formatHex(digest.digest()));
+        }
+    }
+}
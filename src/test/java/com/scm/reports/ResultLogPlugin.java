@@ -0,0 +1,391 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonWriter;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EmbedEvent;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.HookType;
+import io.cucumber.plugin.event.Node;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestSourceParsed;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cucumber plugin that writes a compact, gzip-compressed result log for the HTML reports
+ * Test threads only collect results into small in-memory records; serialization, compression and
+ * file I/O happen on a single background thread fed through a bounded queue, which blocks test
+ * threads only if the writer falls behind by QUEUE_CAPACITY scenarios.
+ * The log holds one JSON object per line (NDJSON), one per finished scenario, in gzip blocks per
+ * feature as described in ResultLogBlocks; see ResultLogReader.
+ * While the run is going the log is written to a PART_SUFFIX file next to it, flushed at a scenario
+ * boundary at least every FLUSH_INTERVAL_MS; if the JVM dies, the part file still holds the
+ * scenarios flushed before, and ReportManager reports them.
+ * A PID_PLACEHOLDER in the file name is replaced with the process id, so every Surefire fork
+ * writes its own log; ReportManager merges them. Logs of forks that are gone and were last written
+ * before this JVM started are left over from an earlier run and removed.
+ * Usage: com.scm.reports.ResultLogPlugin[:file] (default target/cucumber-reports/results-{pid}.ndjson.gz)
+ */
+public class ResultLogPlugin implements ConcurrentEventListener {
+    static final String PID_PLACEHOLDER = "{pid}";
+    static final String DEFAULT_PATH = "target/cucumber-reports/results-" + PID_PLACEHOLDER + ".ndjson.gz";
+    static final String PART_SUFFIX = ".part";
+    private static final Pattern WRITER_PID = Pattern.compile("-(\\d+)\\.ndjson(\\.gz)?(" + Pattern.quote(PART_SUFFIX) + ")?$");
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long FLUSH_INTERVAL_MS = 2000;
+    private static final Record END = new Record();
+
+    private final Path file;
+    // Glob for the logs of all processes, including part files; null without PID_PLACEHOLDER
+    private final String processLogs;
+    private final Map<String, String> featureNames = new ConcurrentHashMap<>();
+    private final Map<UUID, Record> running = new ConcurrentHashMap<>();
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread writerThread;
+    private volatile IOException failure;
+
+    /**
+     * Results of one scenario, filled in by the test thread that runs it
+     */
+    private static final class Record {
+        String feature;
+        String uri;
+        int line;
+        String name;
+        long start;
+        String worker;
+        List<String> tags;
+        String status;
+        long setup;
+        long teardown;
+        final List<Step> steps = new ArrayList<>();
+        final List<Embedding> attachments = new ArrayList<>();
+        // Step that receives embeds: the running step or, during its after step hooks, the step
+        // that just finished; null while scenario hooks run
+        Step current;
+    }
+
+    private static final class Step {
+        String keyword;
+        String name;
+        String status;
+        long duration;
+        // Formatted on the writer thread
+        Throwable error;
+        final List<Embedding> attachments = new ArrayList<>();
+    }
+
+    private static final class Embedding {
+        final String name;
+        final String mimeType;
+        final byte[] data;
+
+        Embedding(String name, String mimeType, byte[] data) {
+            this.name = name;
+            this.mimeType = mimeType;
+            this.data = data;
+        }
+    }
+
+    public ResultLogPlugin() {
+        this(DEFAULT_PATH);
+    }
+
+    /**
+     * @param file Result log to write, replaced if it exists; PID_PLACEHOLDER is replaced with the process id
+     */
+    public ResultLogPlugin(String file) {
+        String name = Paths.get(file).getFileName().toString();
+        this.processLogs = name.contains(PID_PLACEHOLDER) ? name.replace(PID_PLACEHOLDER, "*") + "*" : null;
+        this.file = Paths.get(file.replace(PID_PLACEHOLDER, String.valueOf(ProcessHandle.current().pid())));
+    }
+
+    /**
+     * Process id in the name of a per-process log or its part file, or -1
+     */
+    static long writerPid(Path log) {
+        Matcher matcher = WRITER_PID.matcher(log.getFileName().toString());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Whether the log is the part file of another process that is still running
+     */
+    static boolean isWrittenByOtherProcess(Path log) {
+        long pid = writerPid(log);
+        return ResultLogReader.isPart(log) && pid >= 0 && pid != ProcessHandle.current().pid()
+            && ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestSourceParsed.class, this::onSourceParsed);
+        publisher.registerHandlerFor(TestCaseStarted.class, this::onTestCaseStarted);
+        publisher.registerHandlerFor(TestStepStarted.class, this::onStepStarted);
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(EmbedEvent.class, this::onEmbed);
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, this::onRunFinished);
+        startWriter();
+    }
+
+    private void onSourceParsed(TestSourceParsed event) {
+        for (Node node : event.getNodes()) {
+            if (node instanceof Node.Feature feature) {
+                featureNames.put(String.valueOf(event.getUri()), feature.getName().orElse(""));
+            }
+        }
+    }
+
+    private void onTestCaseStarted(TestCaseStarted event) {
+        TestCase testCase = event.getTestCase();
+        Record record = new Record();
+        record.uri = String.valueOf(testCase.getUri());
+        record.feature = featureNames.get(record.uri);
+        record.line = testCase.getLocation().getLine();
+        record.name = testCase.getName();
+        record.start = event.getInstant().toEpochMilli();
+        record.worker = Thread.currentThread().getName();
+        record.tags = testCase.getTags();
+        running.put(testCase.getId(), record);
+    }
+
+    private void onStepStarted(TestStepStarted event) {
+        Record record = running.get(event.getTestCase().getId());
+        if (record != null && event.getTestStep() instanceof PickleStepTestStep pickleStep) {
+            Step step = new Step();
+            step.keyword = pickleStep.getStep().getKeyword();
+            step.name = pickleStep.getStep().getText();
+            record.current = step;
+        } else if (record != null && event.getTestStep() instanceof HookTestStep hook
+                && hook.getHookType() == HookType.AFTER_STEP && !record.steps.isEmpty()) {
+            // Hooks attaches the step's span breakdown here
+            record.current = record.steps.get(record.steps.size() - 1);
+        }
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        Record record = running.get(event.getTestCase().getId());
+        if (record == null) {
+            return;
+        }
+        Result result = event.getResult();
+        long duration = result.getDuration().toMillis();
+        if (event.getTestStep() instanceof PickleStepTestStep && record.current != null) {
+            Step step = record.current;
+            step.status = status(result);
+            step.duration = duration;
+            step.error = result.getError();
+            record.steps.add(step);
+            record.current = null;
+        } else if (event.getTestStep() instanceof HookTestStep hook) {
+            if (hook.getHookType() == HookType.BEFORE) {
+                record.setup += duration;
+            } else if (hook.getHookType() == HookType.AFTER) {
+                record.teardown += duration;
+            } else if (hook.getHookType() == HookType.AFTER_STEP) {
+                record.current = null;
+            }
+        }
+    }
+
+    private void onEmbed(EmbedEvent event) {
+        Record record = running.get(event.getTestCase().getId());
+        if (record != null) {
+            Embedding embedding = new Embedding(event.getName(), event.getMediaType(), event.getData());
+            (record.current != null ? record.current.attachments : record.attachments).add(embedding);
+        }
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        Record record = running.remove(event.getTestCase().getId());
+        if (record == null) {
+            return;
+        }
+        record.status = status(event.getResult());
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onRunFinished(TestRunFinished event) {
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            System.err.println("Result log could not be written to " + file + ": " + failure.getMessage());
+        }
+    }
+
+    private void startWriter() {
+        writerThread = new Thread(this::drain, "result-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Writer thread: serialize records until the end marker, then publish the finished log
+     * Compressed output is flushed to the part file whenever the queue has been idle or
+     * FLUSH_INTERVAL_MS has passed, always between two records.
+     */
+    private void drain() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path part = file.resolveSibling(file.getFileName() + PART_SUFFIX);
+            // A log of an earlier run must not be mistaken for this run's if it does not finish
+            Files.deleteIfExists(file);
+            if (processLogs != null) {
+                removeStaleLogs(parent);
+            }
+            try (ResultLogBlocks blocks = new ResultLogBlocks(new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024))) {
+                long lastFlush = System.currentTimeMillis();
+                boolean dirty = false;
+                Record record;
+                while ((record = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS)) != END) {
+                    if (record != null) {
+                        StringWriter line = new StringWriter();
+                        write(line, record);
+                        blocks.append(record.uri, line.toString());
+                        dirty = true;
+                    }
+                    if (dirty && (record == null || System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MS)) {
+                        blocks.flush();
+                        lastFlush = System.currentTimeMillis();
+                        dirty = false;
+                    }
+                }
+            }
+            // Readers only ever see a complete log under the final name
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failure = e;
+            // Keep consuming so test threads never block on a dead writer
+            drainQuietly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Delete the per-process logs of earlier runs, keeping those of forks running alongside this one
+     */
+    private void removeStaleLogs(Path dir) throws IOException {
+        long started = ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(dir, processLogs)) {
+            for (Path log : logs) {
+                long pid = writerPid(log);
+                if (pid < 0 || pid == ProcessHandle.current().pid()
+                        || ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)
+                        || Files.getLastModifiedTime(log).toMillis() >= started) {
+                    continue;
+                }
+                Files.deleteIfExists(log);
+                System.out.println("🧹 Removed result log of an earlier run: " + log.getFileName());
+            }
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            while (queue.take() != END) {
+                // Discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void write(Writer writer, Record record) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("feature").value(record.feature);
+        json.name("uri").value(record.uri);
+        json.name("line").value(record.line);
+        json.name("name").value(record.name);
+        json.name("start").value(record.start);
+        json.name("worker").value(record.worker);
+        json.name("status").value(record.status);
+        json.name("setup").value(record.setup);
+        json.name("teardown").value(record.teardown);
+        json.name("tags").beginArray();
+        for (String tag : record.tags) {
+            json.value(tag);
+        }
+        json.endArray();
+        json.name("steps").beginArray();
+        for (Step step : record.steps) {
+            json.beginObject();
+            json.name("keyword").value(step.keyword);
+            json.name("name").value(step.name);
+            json.name("status").value(step.status);
+            json.name("duration").value(step.duration);
+            if (step.error != null) {
+                StringWriter trace = new StringWriter();
+                step.error.printStackTrace(new PrintWriter(trace));
+                json.name("error").value(trace.toString());
+            }
+            writeAttachments(json, step.attachments);
+            json.endObject();
+        }
+        json.endArray();
+        writeAttachments(json, record.attachments);
+        json.endObject();
+        json.flush();
+        writer.write('\n');
+    }
+
+    private static void writeAttachments(JsonWriter json, List<Embedding> attachments) throws IOException {
+        if (attachments.isEmpty()) {
+            return;
+        }
+        json.name("attachments").beginArray();
+        for (Embedding attachment : attachments) {
+            json.beginObject();
+            json.name("name").value(attachment.name);
+            json.name("mime_type").value(attachment.mimeType);
+            json.name("data").value(Base64.getEncoder().encodeToString(attachment.data));
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static String status(Result result) {
+        return result.getStatus().name().toLowerCase(Locale.ROOT);
+    }
+}
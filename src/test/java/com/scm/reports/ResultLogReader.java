@@ -0,0 +1,223 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reader for the result log written by ResultLogPlugin
+ * Each line is one flat scenario record, so there is no feature nesting to unwind and no
+ * timestamps to parse; attachments are decoded into the artifact store or skipped as in
+ * CucumberJsonReader.
+ * A part file left by a run that did not finish ends without a gzip trailer and possibly within a
+ * record; it is read up to the last complete record.
+ */
+class ResultLogReader implements ScenarioSource {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JsonReader json;
+    private final ArtifactStore artifacts;
+    private final boolean partial;
+
+    /**
+     * @param logFile Result log, gzip-compressed if its name ends in .gz, or its part file
+     * @param artifacts Store for embedded attachments, or null to skip them
+     */
+    ResultLogReader(Path logFile, ArtifactStore artifacts) throws IOException {
+        this(logFile, null, artifacts);
+    }
+
+    /**
+     * @param feature Feature of the log as found by FeatureScanner.slices, or null to read the whole log
+     */
+    ResultLogReader(Path logFile, FeatureScanner.Slice feature, ArtifactStore artifacts) throws IOException {
+        InputStream in = feature != null ? FeatureScanner.openRaw(logFile, feature)
+            : Channels.newInputStream(FileChannel.open(logFile, StandardOpenOption.READ));
+        try {
+            if (isCompressed(logFile)) {
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+            }
+            if (isPart(logFile)) {
+                in = new PartInputStream(in);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        this.artifacts = artifacts;
+        this.partial = in instanceof PartInputStream;
+        this.json = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+        // Lenient mode accepts a stream of top-level values
+        this.json.setLenient(true);
+    }
+
+    /**
+     * Whether the file is a result log rather than Cucumber JSON, judged by its name
+     */
+    static boolean isResultLog(Path file) {
+        String name = logName(file);
+        return name.endsWith(".ndjson") || name.endsWith(".ndjson.gz");
+    }
+
+    static boolean isCompressed(Path logFile) {
+        return logName(logFile).endsWith(".gz");
+    }
+
+    /**
+     * Whether the file is the part file of a run that did not finish
+     */
+    static boolean isPart(Path logFile) {
+        return logFile.getFileName().toString().endsWith(ResultLogPlugin.PART_SUFFIX);
+    }
+
+    /**
+     * File name of a result log, without the suffix of a part file
+     */
+    private static String logName(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(ResultLogPlugin.PART_SUFFIX)
+            ? name.substring(0, name.length() - ResultLogPlugin.PART_SUFFIX.length()) : name;
+    }
+
+    /**
+     * Read the next scenario in the order scenarios finished
+     * @return The next scenario, or null at the end of the log
+     */
+    @Override
+    public TestScenario next() throws IOException {
+        try {
+            return read();
+        } catch (EOFException | MalformedJsonException e) {
+            if (partial) {
+                // The run stopped here; the record that was being written is lost
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private TestScenario read() throws IOException {
+        if (json.peek() == JsonToken.END_DOCUMENT) {
+            return null;
+        }
+        TestScenario scenario = new TestScenario();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "feature" -> scenario.featureName = nextStringOrNull();
+                case "uri" -> scenario.featureUri = nextStringOrNull();
+                case "line" -> scenario.line = json.nextInt();
+                case "name" -> scenario.name = nextStringOrNull();
+                case "start" -> scenario.startTimestamp = json.nextLong();
+                case "worker" -> scenario.worker = nextStringOrNull();
+                case "setup" -> scenario.setupDuration = json.nextLong();
+                case "teardown" -> scenario.teardownDuration = json.nextLong();
+                case "tags" -> readTags(scenario.tags);
+                case "steps" -> readSteps(scenario);
+                case "attachments" -> ArtifactStore.readAttachments(json, artifacts, scenario.attachments, null);
+                // The Cucumber status is not used: as with Cucumber JSON, only failed steps fail a scenario
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        long totalDuration = 0;
+        for (TestStep step : scenario.steps) {
+            totalDuration += step.duration;
+        }
+        scenario.duration = totalDuration;
+        return scenario;
+    }
+
+    @Override
+    public void close() throws IOException {
+        json.close();
+    }
+
+    private void readTags(List<String> tags) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            tags.add(nextStringOrNull());
+        }
+        json.endArray();
+    }
+
+    private void readSteps(TestScenario scenario) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            TestStep step = new TestStep();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "keyword" -> step.keyword = nextStringOrNull();
+                    case "name" -> step.name = nextStringOrNull();
+                    case "status" -> step.status = nextStringOrNull();
+                    case "duration" -> step.duration = json.nextLong();
+                    case "error" -> step.errorMessage = nextStringOrNull();
+                    case "attachments" -> ArtifactStore.readAttachments(json, artifacts, step.attachments, step);
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if ("failed".equals(step.status)) {
+                scenario.status = "failed";
+            } else {
+                step.errorMessage = null;
+            }
+            scenario.steps.add(step);
+        }
+        json.endArray();
+    }
+
+    private String nextStringOrNull() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    /**
+     * Ends a part file where its data ends
+     * The compressed stream of a part file has no trailer; without this the error at its end would
+     * also drop the records the reader had already decoded into its buffers.
+     */
+    private static final class PartInputStream extends FilterInputStream {
+        PartInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
+    }
+}
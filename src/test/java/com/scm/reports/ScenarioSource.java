@@ -0,0 +1,15 @@
+package com.scm.reports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull-based stream of parsed scenarios
+ */
+interface ScenarioSource extends Closeable {
+
+    /**
+     * @return The next scenario, or null once the source is exhausted
+     */
+    TestScenario next() throws IOException;
+}
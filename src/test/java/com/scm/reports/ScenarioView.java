@@ -0,0 +1,102 @@
+package com.scm.reports;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A scenario of ReportData, read from its columns
+ * Views only hold the position of the scenario, so renderers create them as they go.
+ */
+final class ScenarioView {
+    private final ReportData data;
+    final int index;
+
+    ScenarioView(ReportData data, int index) {
+        this.data = data;
+        this.index = index;
+    }
+
+    String name() {
+        return data.strings.get(data.names[index]);
+    }
+
+    String featureName() {
+        return data.strings.get(data.featureNames[index]);
+    }
+
+    String featureUri() {
+        return data.strings.get(data.featureUris[index]);
+    }
+
+    int line() {
+        return data.lines[index];
+    }
+
+    /**
+     * Epoch milliseconds from Cucumber's start_timestamp, 0 when not reported
+     */
+    long startTimestamp() {
+        return data.startTimestamps[index];
+    }
+
+    long setupDuration() {
+        return data.setupDurations[index];
+    }
+
+    long teardownDuration() {
+        return data.teardownDurations[index];
+    }
+
+    /**
+     * Thread that ran the scenario, null when not logged
+     */
+    String worker() {
+        return data.strings.get(data.workers[index]);
+    }
+
+    /**
+     * Result file the scenario was read from, null for a single input
+     */
+    String shard() {
+        return data.strings.get(data.shards[index]);
+    }
+
+    /**
+     * Content hash of the scenario's feature, null when not known
+     */
+    String featureKey() {
+        return data.strings.get(data.featureKeys[index]);
+    }
+
+    String status() {
+        return data.statuses[data.scenarioStatuses[index]];
+    }
+
+    byte statusCode() {
+        return data.scenarioStatuses[index];
+    }
+
+    long duration() {
+        return data.durations[index];
+    }
+
+    List<String> tags() {
+        int from = data.tagOffsets[index];
+        String[] tags = new String[data.tagOffsets[index + 1] - from];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = data.strings.get(data.tags[from + i]);
+        }
+        return Arrays.asList(tags);
+    }
+
+    List<StepView> steps() {
+        return data.steps(data.stepOffsets[index], data.stepOffsets[index + 1]);
+    }
+
+    /**
+     * Attachments made by before and after hooks
+     */
+    List<Attachment> attachments() {
+        return Arrays.asList(data.attachments).subList(data.attachmentOffsets[index], data.attachmentOffsets[index + 1]);
+    }
+}
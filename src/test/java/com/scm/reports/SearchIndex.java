@@ -0,0 +1,160 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from search terms to scenarios, built at report time for the detailed report
+ * Terms are the lower-cased letter and digit runs of scenario and feature names, tags, step
+ * texts and error messages. Scenario ids are positions in ReportData.scenarios, which is also
+ * the order of the detailed report. Postings are delta-encoded in base 36, so the index stays
+ * small enough to load at once; the browser matches query words against the sorted term list by
+ * substring and intersects the postings (see search.js).
+ * Written as search-index.js calling ReportSearch.load(...), because pages opened from disk may
+ * load scripts but not fetch JSON.
+ */
+final class SearchIndex {
+    static final String FILE_NAME = "search-index.js";
+    // Characters of a text that are indexed; in error messages, stack frames beyond that add little
+    private static final int MAX_TEXT_CHARS = 2000;
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final int scenarioCount;
+
+    /**
+     * Scenario ids of one term in ascending order
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            // Scenarios are indexed in order, so a repeated term in one scenario is the last id
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    SearchIndex(ReportData data) {
+        scenarioCount = data.names.length;
+        // Strings repeat across scenarios (feature names, tags, step texts), so each distinct
+        // string is split once and its postings are remembered by string id
+        Postings[][] byString = new Postings[data.strings.size()][];
+        Postings[][] byStatus = new Postings[data.statuses.length][];
+        for (int id = 0; id < scenarioCount; id++) {
+            add(id, byString, data.names[id], data.strings);
+            add(id, byString, data.featureNames[id], data.strings);
+            byte status = data.scenarioStatuses[id];
+            if (byStatus[status] == null) {
+                byStatus[status] = postings(data.statuses[status]);
+            }
+            add(id, byStatus[status]);
+            for (int tag = data.tagOffsets[id]; tag < data.tagOffsets[id + 1]; tag++) {
+                add(id, byString, data.tags[tag], data.strings);
+            }
+            for (int step = data.stepOffsets[id]; step < data.stepOffsets[id + 1]; step++) {
+                add(id, byString, data.stepKeywords[step], data.strings);
+                add(id, byString, data.stepNames[step], data.strings);
+                add(id, byString, data.stepErrors[step], data.strings);
+            }
+        }
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    private void add(int id, Postings[][] byString, int stringId, StringTable strings) {
+        if (stringId == 0) {
+            return;
+        }
+        Postings[] postings = byString[stringId];
+        if (postings == null) {
+            String text = strings.get(stringId);
+            postings = postings(text.length() > MAX_TEXT_CHARS ? text.substring(0, MAX_TEXT_CHARS) : text);
+            byString[stringId] = postings;
+        }
+        add(id, postings);
+    }
+
+    private static void add(int id, Postings[] postings) {
+        for (Postings term : postings) {
+            term.add(id);
+        }
+    }
+
+    /**
+     * Split text into terms as search.js splits queries: runs of letters and digits, lower-cased
+     * @return Postings of the distinct terms of the text
+     */
+    private Postings[] postings(String text) {
+        Set<Postings> found = new LinkedHashSet<>();
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String term = text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT);
+                found.add(terms.computeIfAbsent(term, t -> new Postings()));
+                start = -1;
+            }
+        }
+        return found.toArray(new Postings[0]);
+    }
+
+    /**
+     * Write the index as {"scenarios": n, "terms": [sorted terms], "postings": [per term]}, where
+     * a posting list is comma-separated base-36 gaps between ascending scenario ids
+     */
+    void write(Path file, ReportTimings timings) throws IOException {
+        String[] sorted = terms.keySet().toArray(new String[0]);
+        Arrays.sort(sorted);
+        try (Writer writer = timings.newWriter(file, HtmlWriter.BUFFER_SIZE)) {
+            writer.write("ReportSearch.load(");
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("scenarios").value(scenarioCount);
+            json.name("terms").beginArray();
+            for (String term : sorted) {
+                json.value(term);
+            }
+            json.endArray();
+            json.name("postings").beginArray();
+            StringBuilder encoded = new StringBuilder();
+            for (String term : sorted) {
+                Postings postings = terms.get(term);
+                encoded.setLength(0);
+                int previous = 0;
+                for (int i = 0; i < postings.size; i++) {
+                    if (i > 0) {
+                        encoded.append(',');
+                    }
+                    encoded.append(Integer.toString(postings.ids[i] - previous, 36));
+                    previous = postings.ids[i];
+                }
+                json.value(encoded.toString());
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+            writer.write(");\n");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merge of scenario streams from parallel shards, deduplicating retried scenarios in two passes
+ * The first pass reads every shard and remembers only the shard, position, start and feature of
+ * each scenario's latest attempt. The second pass reads the shards again and appends the attempts to
+ * keep to the builder, so no shard is held in memory; the builder is then sorted by start, which
+ * does not require the shards to be in start order. Retried scenarios (same feature file and
+ * line) are deduplicated by keeping the attempt that started last.
+ */
+class ShardMerger {
+    private final Map<String, Attempt> latest = new HashMap<>();
+    // Features that lost a scenario no longer match their content hash
+    private final Set<String> reducedFeatures = new HashSet<>();
+    private int duplicates = 0;
+
+    private static final class Attempt {
+        final int shardIndex;
+        final int position;
+        final long startTimestamp;
+        final String featureKey;
+
+        Attempt(int shardIndex, int position, TestScenario scenario) {
+            this.shardIndex = shardIndex;
+            this.position = position;
+            this.startTimestamp = scenario.startTimestamp;
+            this.featureKey = scenario.featureKey;
+        }
+
+        /**
+         * Later start wins; attempts that started together are ordered by shard, then by position
+         */
+        boolean isAfter(Attempt other) {
+            if (startTimestamp != other.startTimestamp) {
+                return startTimestamp > other.startTimestamp;
+            }
+            return shardIndex != other.shardIndex ? shardIndex > other.shardIndex : position > other.position;
+        }
+    }
+
+    /**
+     * First pass: note the latest attempt of every scenario in a shard
+     * All shards must be scanned before any is copied.
+     * @param source Shard stream; not closed by this method
+     */
+    void scan(int shardIndex, ScenarioSource source) throws IOException {
+        int position = 0;
+        TestScenario scenario;
+        while ((scenario = source.next()) != null) {
+            String key = scenario.key();
+            Attempt attempt = new Attempt(shardIndex, position++, scenario);
+            Attempt previous = latest.putIfAbsent(key, attempt);
+            if (previous == null) {
+                continue;
+            }
+            duplicates++;
+            Attempt dropped = previous;
+            if (attempt.isAfter(previous)) {
+                latest.put(key, attempt);
+            } else {
+                dropped = attempt;
+            }
+            if (dropped.featureKey != null) {
+                reducedFeatures.add(dropped.featureKey);
+            }
+        }
+    }
+
+    /**
+     * Second pass: append the kept attempts of a shard, in shard order
+     * @param source A fresh stream of the same shard as scanned; not closed by this method
+     */
+    void copy(int shardIndex, ScenarioSource source, ReportData.Builder builder) throws IOException {
+        int position = 0;
+        TestScenario scenario;
+        while ((scenario = source.next()) != null) {
+            Attempt attempt = latest.get(scenario.key());
+            // A scenario missing from the first pass was written in between and is left out
+            if (attempt != null && attempt.shardIndex == shardIndex && attempt.position == position) {
+                if (scenario.featureKey != null && reducedFeatures.contains(scenario.featureKey)) {
+                    scenario.featureKey = null;
+                }
+                builder.add(scenario);
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Number of earlier attempts dropped in favour of a retry
+     */
+    int duplicates() {
+        return duplicates;
+    }
+}
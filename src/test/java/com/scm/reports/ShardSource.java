@@ -0,0 +1,138 @@
+package com.scm.reports;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scenarios of one result file (shard), one feature at a time
+ * Unchanged features come from the parse cache; the others are streamed from their byte range.
+ * After prefetch the features are loaded in parallel on a pool and handed out in file order;
+ * only a small window of features ahead of the consumer is loaded at any time.
+ */
+class ShardSource implements ScenarioSource {
+    // Features loaded ahead of the one being consumed
+    private static final int PREFETCH_WINDOW = 2;
+
+    private final Path jsonFile;
+    private final String label;
+    private final List<FeatureScanner.Slice> features;
+    private final ArtifactStore artifacts;
+    private final ReportCache cache;
+    private final Deque<TestScenario> pending = new ArrayDeque<>();
+    private final AtomicInteger parsedFeatures = new AtomicInteger();
+    private ExecutorService executor;
+    private List<Future<List<TestScenario>>> prefetched;
+    private int nextFeature = 0;
+
+    /**
+     * @param jsonFile Cucumber JSON result file or result log
+     * @param label Shard name recorded on every scenario
+     * @param features Features of the file, as found by FeatureScanner.slices
+     */
+    ShardSource(Path jsonFile, String label, List<FeatureScanner.Slice> features,
+                ArtifactStore artifacts, ReportCache cache) {
+        this.jsonFile = jsonFile;
+        this.label = label;
+        this.features = features;
+        this.artifacts = artifacts;
+        this.cache = cache;
+    }
+
+    /**
+     * Start loading the first features on the given pool; each feature consumed submits the next one
+     * Loading tasks never wait for the consumer, so any number of shards can share a small pool.
+     */
+    void prefetch(ExecutorService executor) {
+        this.executor = executor;
+        prefetched = new ArrayList<>(Collections.nCopies(features.size(), null));
+        for (int index = 0; index < Math.min(PREFETCH_WINDOW, features.size()); index++) {
+            submit(index);
+        }
+    }
+
+    @Override
+    public TestScenario next() throws IOException {
+        while (pending.isEmpty() && nextFeature < features.size()) {
+            int index = nextFeature++;
+            if (prefetched == null) {
+                pending.addAll(loadFeature(features.get(index)));
+                continue;
+            }
+            if (index + PREFETCH_WINDOW < features.size()) {
+                submit(index + PREFETCH_WINDOW);
+            }
+            Future<List<TestScenario>> future = prefetched.get(index);
+            // Parsed features are only reachable from the consumer once handed out
+            prefetched.set(index, null);
+            pending.addAll(await(future));
+        }
+        return pending.poll();
+    }
+
+    private void submit(int index) {
+        FeatureScanner.Slice feature = features.get(index);
+        prefetched.set(index, executor.submit((Callable<List<TestScenario>>) () -> loadFeature(feature)));
+    }
+
+    /**
+     * Number of features that were parsed rather than served from the cache
+     */
+    int parsedFeatures() {
+        return parsedFeatures.get();
+    }
+
+    @Override
+    public void close() {
+        pending.clear();
+        if (prefetched != null) {
+            for (Future<List<TestScenario>> future : prefetched) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static List<TestScenario> await(Future<List<TestScenario>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        }
+    }
+
+    private List<TestScenario> loadFeature(FeatureScanner.Slice feature) throws IOException {
+        List<TestScenario> scenarios = cache.load(feature.hash);
+        if (scenarios == null) {
+            scenarios = new ArrayList<>();
+            try (ScenarioSource reader = ResultLogReader.isResultLog(jsonFile)
+                    ? new ResultLogReader(jsonFile, feature, artifacts)
+                    : new CucumberJsonReader(FeatureScanner.open(jsonFile, feature), artifacts)) {
+                TestScenario scenario;
+                while ((scenario = reader.next()) != null) {
+                    scenarios.add(scenario);
+                }
+            }
+            cache.store(feature.hash, scenarios);
+            parsedFeatures.incrementAndGet();
+        }
+        for (TestScenario scenario : scenarios) {
+            scenario.featureKey = feature.hash;
+            scenario.shard = label;
+        }
+        return scenarios;
+    }
+}
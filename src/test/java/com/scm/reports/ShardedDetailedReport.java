@@ -0,0 +1,309 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detailed report for very large runs
+ * Instead of one detailed.html holding every scenario, this writes:
+ * - detailed-data/index.js: one compact row per scenario, used for filtering and sorting the whole run
+ * - detailed-data/chunk-*.js: step details, split by feature and capped at CHUNK_SIZE scenarios;
+ *   chunks are named after the feature's content hash, so unchanged features are not rewritten
+ * - detailed.html: a shell page that renders only the visible rows and loads chunks on demand,
+ *   with its script in assets/detailed-sharded.js
+ * Data files are JSON wrapped in a callback so they also load from file:// URLs.
+ */
+class ShardedDetailedReport {
+    static final String DATA_DIR = "detailed-data";
+    static final int CHUNK_SIZE = 500;
+    // Part of chunk file names; bump when the chunk layout changes
+    private static final String CHUNK_FORMAT = "v4";
+
+    private final Path reportsDir;
+    private final ReportTimings timings;
+
+    /**
+     * @param timings Receives the time spent writing files
+     */
+    ShardedDetailedReport(Path reportsDir, ReportTimings timings) {
+        this.reportsDir = reportsDir;
+        this.timings = timings;
+    }
+
+    /**
+     * Whether a run is large enough to need the sharded report
+     * Controlled by -Dreport.detailed.mode=single|sharded|auto and -Dreport.detailed.shardThreshold (default 2000)
+     */
+    static boolean isEnabled(ReportData data) {
+        String mode = mode();
+        if ("sharded".equals(mode)) {
+            return true;
+        }
+        if ("single".equals(mode)) {
+            return false;
+        }
+        return data.totalTests > threshold();
+    }
+
+    /**
+     * Settings that decide between the variants, for the up-to-date check of the parse cache
+     */
+    static String settings() {
+        return "detailed=" + mode() + "/" + threshold();
+    }
+
+    private static String mode() {
+        return System.getProperty("report.detailed.mode", "auto");
+    }
+
+    private static int threshold() {
+        return Integer.getInteger("report.detailed.shardThreshold", 2000);
+    }
+
+    void write(ReportData data, RegressionGate.Result regressions) throws IOException {
+        Path dataDir = reportsDir.resolve(DATA_DIR);
+        Files.createDirectories(dataDir);
+
+        // Assign scenarios to chunks: by feature, and at most CHUNK_SIZE per chunk
+        Map<String, Integer> featureIds = new LinkedHashMap<>();
+        Map<String, Integer> statusIds = new LinkedHashMap<>();
+        Map<String, String> openChunkByFeature = new HashMap<>();
+        Map<String, Integer> pagesByFeature = new HashMap<>();
+        Map<String, List<Integer>> chunks = new LinkedHashMap<>();
+        Set<String> hashedChunks = new HashSet<>();
+        String[] chunkOf = new String[data.scenarios.size()];
+        int[] offsetInChunk = new int[data.scenarios.size()];
+
+        for (int i = 0; i < data.scenarios.size(); i++) {
+            ScenarioView scenario = data.scenarios.get(i);
+            String feature = String.valueOf(scenario.featureName());
+            featureIds.putIfAbsent(feature, featureIds.size());
+            statusIds.putIfAbsent(scenario.status(), statusIds.size());
+
+            String hash = scenario.featureKey();
+            String featureKey = hash != null ? hash : "f" + featureIds.get(feature);
+            String chunkId = openChunkByFeature.get(featureKey);
+            if (chunkId == null || chunks.get(chunkId).size() >= CHUNK_SIZE) {
+                int page = pagesByFeature.merge(featureKey, 1, Integer::sum) - 1;
+                chunkId = CHUNK_FORMAT + "-" + featureKey + "-" + page;
+                chunks.put(chunkId, new ArrayList<>());
+                openChunkByFeature.put(featureKey, chunkId);
+                if (hash != null) {
+                    hashedChunks.add(chunkId);
+                }
+            }
+            List<Integer> chunk = chunks.get(chunkId);
+            chunkOf[i] = chunkId;
+            offsetInChunk[i] = chunk.size();
+            chunk.add(i);
+        }
+
+        writeIndex(dataDir.resolve("index.js"), data, featureIds, statusIds, chunkOf, offsetInChunk);
+        int written = 0;
+        for (Map.Entry<String, List<Integer>> chunk : chunks.entrySet()) {
+            Path file = dataDir.resolve("chunk-" + chunk.getKey() + ".js");
+            // A chunk named after an unchanged feature hash is already up to date
+            if (!hashedChunks.contains(chunk.getKey()) || !Files.exists(file)) {
+                writeChunk(file, chunk.getKey(), data, chunk.getValue());
+                written++;
+            }
+        }
+        removeStaleChunks(dataDir, chunks.keySet());
+        System.out.println("Detailed report: wrote " + written + " of " + chunks.size() + " data chunks");
+
+        try (HtmlWriter out = HtmlWriter.open(reportsDir.resolve("detailed.html"), timings)) {
+            writeShell(data, regressions, out);
+        }
+    }
+
+    private void removeStaleChunks(Path dataDir, Set<String> chunkIds) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir, "chunk-*.js")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String chunkId = name.substring("chunk-".length(), name.length() - ".js".length());
+                if (!chunkIds.contains(chunkId)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void writeIndex(Path file, ReportData data, Map<String, Integer> featureIds,
+                            Map<String, Integer> statusIds, String[] chunkOf, int[] offsetInChunk) throws IOException {
+        try (Writer writer = timings.newWriter(file, HtmlWriter.BUFFER_SIZE)) {
+            writer.write("DetailedReport.index(");
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("features").beginArray();
+            for (String feature : featureIds.keySet()) {
+                json.value(feature);
+            }
+            json.endArray();
+            json.name("statuses").beginArray();
+            for (String status : statusIds.keySet()) {
+                json.value(status);
+            }
+            json.endArray();
+            // Failure clusters by hash, referenced from chunk steps: [title, failed steps, example error]
+            json.name("clusters").beginObject();
+            for (FailureClusters.Cluster cluster : data.failures.clusters) {
+                json.name(cluster.hash).beginArray()
+                    .value(cluster.title)
+                    .value(cluster.size())
+                    .value(cluster.example)
+                    .endArray();
+            }
+            json.endObject();
+            // Row: [name, feature, status, duration ms, tags, chunk, offset in chunk]
+            json.name("rows").beginArray();
+            for (int i = 0; i < data.scenarios.size(); i++) {
+                ScenarioView scenario = data.scenarios.get(i);
+                json.beginArray()
+                    .value(scenario.name())
+                    .value(featureIds.get(String.valueOf(scenario.featureName())))
+                    .value(statusIds.get(scenario.status()))
+                    .value(scenario.duration())
+                    .value(String.join(" ", scenario.tags()))
+                    .value(chunkOf[i])
+                    .value(offsetInChunk[i])
+                    .endArray();
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+            writer.write(");\n");
+        }
+    }
+
+    private void writeChunk(Path file, String chunkId, ReportData data, List<Integer> scenarioIndexes) throws IOException {
+        try (Writer writer = timings.newWriter(file, HtmlWriter.BUFFER_SIZE)) {
+            // Chunk ids are made of hex digits, letters and dashes only
+            writer.write("DetailedReport.chunk(\"" + chunkId + "\",");
+            JsonWriter json = new JsonWriter(writer);
+            // Scenario: [[step...], [attachment...]]
+            // Step: [keyword, name, status, duration ms, error cluster, [attachment...], span breakdown or null,
+            //        page timings or null]
+            json.beginArray();
+            for (int index : scenarioIndexes) {
+                ScenarioView scenario = data.scenarios.get(index);
+                json.beginArray();
+                json.beginArray();
+                for (StepView step : scenario.steps()) {
+                    json.beginArray()
+                        .value(step.keyword())
+                        .value(step.name())
+                        .value(step.status())
+                        .value(step.duration())
+                        .value(clusterHash(data, step));
+                    writeAttachments(json, step.attachments());
+                    SpanBreakdown spans = step.spans();
+                    if (spans != null) {
+                        spans.writeJson(json);
+                    } else {
+                        json.nullValue();
+                    }
+                    PageTimings pages = step.pages();
+                    if (pages != null) {
+                        pages.writeJson(json);
+                    } else {
+                        json.nullValue();
+                    }
+                    json.endArray();
+                }
+                json.endArray();
+                writeAttachments(json, scenario.attachments());
+                json.endArray();
+            }
+            json.endArray();
+            json.flush();
+            writer.write(");\n");
+        }
+    }
+
+    /**
+     * Hash of the failure cluster of a step, or null for a step without error
+     * Chunks refer to clusters by their stable hash, so an unchanged chunk stays valid when
+     * other features add or remove failures.
+     */
+    private static String clusterHash(ReportData data, StepView step) {
+        FailureClusters.Cluster cluster = data.failures.of(step);
+        return cluster != null ? cluster.hash : null;
+    }
+
+    // Attachment: [name, path, is image]
+    private void writeAttachments(JsonWriter json, List<Attachment> attachments) throws IOException {
+        json.beginArray();
+        for (Attachment attachment : attachments) {
+            json.beginArray()
+                .value(attachment.name != null ? attachment.name : attachment.mimeType)
+                .value(attachment.path)
+                .value(attachment.isImage())
+                .endArray();
+        }
+        json.endArray();
+    }
+
+    private static final ReportTemplate SHELL = ReportTemplate.compile("""
+            <div class="header">
+                <h1>📋 Detailed Test Report</h1>
+                <p>Generated on: {{generatedAt}} | Total Tests: {{total}} | Passed: {{passed}} | Failed: {{failed}}</p>
+            </div>
+        {{nav}}
+        {{regressions}}
+        {{failures}}
+            <details class="latency-summary">
+                <summary>Latency Percentiles</summary>
+        {{percentiles}}
+            </details>
+            <div class="toolbar">
+                <input id="filter" type="search" placeholder="Search scenarios, steps, errors and tags...">
+                <select id="status">
+                    <option value="">All statuses</option>
+                    <option value="passed">Passed</option>
+                    <option value="failed">Failed</option>
+                </select>
+                <select id="sort">
+                    <option value="order">Execution order</option>
+                    <option value="duration">Slowest first</option>
+                    <option value="name">Name</option>
+                    <option value="status">Status</option>
+                </select>
+                <span class="count" id="count"></span>
+            </div>
+            <div class="layout">
+                <div class="viewport" id="viewport"><div id="spacer"></div></div>
+                <div class="panel" id="panel"><p class="meta">Select a scenario to see its steps.</p></div>
+            </div>
+        """, "generatedAt", "total", "passed", "failed", "nav", "regressions", "failures", "percentiles");
+
+    private void writeShell(ReportData data, RegressionGate.Result regressions, HtmlWriter out) throws IOException {
+        ReportPage.start(out, "Detailed Test Report", "detailed-sharded.css");
+        SHELL.render(out,
+            ReportTemplate.text(data.generatedAt),
+            o -> o.num(data.totalTests),
+            o -> o.num(data.passedTests),
+            o -> o.num(data.failedTests),
+            ReportPage::nav,
+            o -> HtmlReportGenerator.writeRegressionSummary(regressions, "latency-summary", o),
+            o -> HtmlReportGenerator.writeFailureClusters(data.failures, "latency-summary", true, o),
+            o -> HtmlReportGenerator.writePercentileTable(data.latency, HtmlReportGenerator.PERCENTILE_ROWS, o));
+        // The page script wires up the elements above; the index then fills the list
+        ReportPage.script(out, "search.js");
+        ReportPage.script(out, "detailed-sharded.js");
+        out.raw("<script src=\"" + DATA_DIR + "/index.js\"></script>\n");
+        out.raw("<script src=\"" + SearchIndex.FILE_NAME + "\"></script>\n<script>applyView();</script>\n");
+        ReportPage.end(out);
+    }
+}
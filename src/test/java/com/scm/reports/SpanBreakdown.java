@@ -0,0 +1,151 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.scm.utils.Span;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Time breakdown of a step: the spans the step opened, nested as they were opened
+ * Hooks attach it to each step as JSON of MEDIA_TYPE (see com.scm.utils.Span); the readers keep
+ * that JSON on the step instead of storing it as an artifact, and renderers parse it only for
+ * the steps they write.
+ */
+final class SpanBreakdown {
+    static final String MEDIA_TYPE = Span.MEDIA_TYPE;
+
+    // Null for the step itself
+    final String name;
+    // Milliseconds from the start of the step
+    final long start;
+    final long duration;
+    final List<SpanBreakdown> children = new ArrayList<>();
+
+    private SpanBreakdown(String name, long start, long duration) {
+        this.name = name;
+        this.start = start;
+        this.duration = duration;
+    }
+
+    /**
+     * Whether an attachment is a span breakdown rather than an artifact
+     */
+    static boolean isBreakdown(String mimeType) {
+        return MEDIA_TYPE.equals(mimeType);
+    }
+
+    /**
+     * @param json Breakdown as attached by Hooks, or null
+     * @return The step with its spans as children, or null when there is no readable breakdown
+     */
+    static SpanBreakdown parse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            long duration = 0;
+            List<SpanBreakdown> spans = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "duration" -> duration = reader.nextLong();
+                    case "spans" -> readSpans(reader, spans);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            SpanBreakdown step = new SpanBreakdown(null, 0, duration);
+            step.children.addAll(spans);
+            return step;
+        } catch (IOException | RuntimeException e) {
+            // A damaged breakdown is not worth failing the report for
+            return null;
+        }
+    }
+
+    private static void readSpans(JsonReader reader, List<SpanBreakdown> spans) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String name = null;
+            long start = 0;
+            long duration = 0;
+            List<SpanBreakdown> children = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name" -> {
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else {
+                            name = reader.nextString();
+                        }
+                    }
+                    case "start" -> start = reader.nextLong();
+                    case "duration" -> duration = reader.nextLong();
+                    case "children" -> readSpans(reader, children);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            SpanBreakdown span = new SpanBreakdown(name, start, duration);
+            span.children.addAll(children);
+            spans.add(span);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Write the breakdown as a collapsed tree; spans with children expand to show them
+     * Bars are positioned within the duration of the step.
+     */
+    void writeHtml(HtmlWriter out) throws IOException {
+        out.raw("<details class=\"span-breakdown\"><summary>⏱️ Time breakdown</summary>\n");
+        writeSpans(children, Math.max(duration, 1), out);
+        out.raw("</details>\n");
+    }
+
+    private static void writeSpans(List<SpanBreakdown> spans, long scale, HtmlWriter out) throws IOException {
+        for (SpanBreakdown span : spans) {
+            boolean nested = !span.children.isEmpty();
+            long start = Math.min(span.start, scale);
+            out.raw(nested ? "<details class=\"span\"><summary" : "<div class=\"span\"")
+                .raw("><span class=\"span-name\">").text(span.name)
+                .raw("</span><span class=\"span-bar\"><span class=\"span-fill\" style=\"left: ")
+                .fixed2(start * 100.0 / scale).raw("%; width: ")
+                .fixed2(Math.min(span.duration, scale - start) * 100.0 / scale).raw("%\"></span></span><span class=\"span-duration\">")
+                .duration(span.duration).raw("</span>");
+            if (nested) {
+                out.raw("</summary>\n");
+                writeSpans(span.children, scale, out);
+                out.raw("</details>\n");
+            } else {
+                out.raw("</div>\n");
+            }
+        }
+    }
+
+    /**
+     * Write the breakdown compactly for the sharded report: [duration, [span...]] with each span
+     * as [name, start, duration, [span...]]
+     */
+    void writeJson(JsonWriter json) throws IOException {
+        json.beginArray().value(duration);
+        writeSpans(children, json);
+        json.endArray();
+    }
+
+    private static void writeSpans(List<SpanBreakdown> spans, JsonWriter json) throws IOException {
+        json.beginArray();
+        for (SpanBreakdown span : spans) {
+            json.beginArray().value(span.name).value(span.start).value(span.duration);
+            writeSpans(span.children, json);
+            json.endArray();
+        }
+        json.endArray();
+    }
+}
@@ -0,0 +1,63 @@
+package com.scm.reports;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A step of ReportData, read from its columns
+ */
+final class StepView {
+    private final ReportData data;
+    final int index;
+
+    StepView(ReportData data, int index) {
+        this.data = data;
+        this.index = index;
+    }
+
+    String keyword() {
+        return data.strings.get(data.stepKeywords[index]);
+    }
+
+    String name() {
+        return data.strings.get(data.stepNames[index]);
+    }
+
+    /**
+     * Keyword and name, the identity of the step in latency statistics and regressions
+     */
+    String key() {
+        return data.strings.get(data.stepKeys[index]);
+    }
+
+    String status() {
+        return data.statuses[data.stepStatuses[index]];
+    }
+
+    long duration() {
+        return data.stepDurations[index];
+    }
+
+    String errorMessage() {
+        return data.strings.get(data.stepErrors[index]);
+    }
+
+    List<Attachment> attachments() {
+        return Arrays.asList(data.stepAttachments)
+            .subList(data.stepAttachmentOffsets[index], data.stepAttachmentOffsets[index + 1]);
+    }
+
+    /**
+     * Time breakdown of the step as attached by Hooks, null when the step opened no spans
+     */
+    SpanBreakdown spans() {
+        return SpanBreakdown.parse(data.strings.get(data.stepSpans[index]));
+    }
+
+    /**
+     * Browser timings of the pages the step captured, null when it captured none
+     */
+    PageTimings pages() {
+        return PageTimings.parse(data.strings.get(data.stepPages[index]));
+    }
+}
@@ -0,0 +1,55 @@
+package com.scm.reports;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of distinct strings, referenced by int id from the columns of ReportData
+ * Step texts, feature names, tags and workers repeat across thousands of scenarios; each distinct
+ * value is stored once. Id 0 stands for null. The lookup map is only needed while building and
+ * is dropped by freeze(), after which the table is read-only and safe to share between threads.
+ */
+final class StringTable {
+    private String[] strings = new String[1024];
+    private int size = 1;
+    private Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Id of a string, adding it to the table when it is new
+     */
+    int intern(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        strings[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    String get(int id) {
+        return strings[id];
+    }
+
+    /**
+     * Number of ids, including 0 for null
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Trim the table and drop the lookup map; intern() may not be called afterwards
+     */
+    void freeze() {
+        strings = Arrays.copyOf(strings, size);
+        ids = null;
+    }
+}
@@ -0,0 +1,286 @@
+package com.scm.reports;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Generates synthetic test results of a given shape, as Cucumber JSON or as a result log
+ * Output is deterministic for a given seed. Scenarios of a feature run back to back on one of
+ * WORKERS workers; durations vary per step, and failed scenarios carry a stack trace.
+ * Shape from system properties: bench.features (20), bench.scenarios per feature (50),
+ * bench.steps per scenario (6), bench.attachments per scenario (1), bench.attachmentKB (8),
+ * bench.failureRate (0.1), bench.seed (1).
+ * Usage: SyntheticResults <output file> (a name ending in .ndjson.gz writes a result log)
+ */
+public class SyntheticResults {
+    private static final int WORKERS = 4;
+    private static final long RUN_START = Instant.parse("2025-01-01T08:00:00Z").toEpochMilli();
+    private static final String[] KEYWORDS = {"Given ", "When ", "And ", "Then "};
+
+    final int features;
+    final int scenariosPerFeature;
+    final int stepsPerScenario;
+    final int attachmentsPerScenario;
+    final int attachmentBytes;
+    final double failureRate;
+    final long seed;
+
+    SyntheticResults(int features, int scenariosPerFeature, int stepsPerScenario, int attachmentsPerScenario,
+                     int attachmentBytes, double failureRate, long seed) {
+        this.features = features;
+        this.scenariosPerFeature = scenariosPerFeature;
+        this.stepsPerScenario = stepsPerScenario;
+        this.attachmentsPerScenario = attachmentsPerScenario;
+        this.attachmentBytes = attachmentBytes;
+        this.failureRate = failureRate;
+        this.seed = seed;
+    }
+
+    /**
+     * Shape from the bench.* system properties
+     */
+    static SyntheticResults fromProperties() {
+        return new SyntheticResults(
+            Integer.getInteger("bench.features", 20),
+            Integer.getInteger("bench.scenarios", 50),
+            Integer.getInteger("bench.steps", 6),
+            Integer.getInteger("bench.attachments", 1),
+            Integer.getInteger("bench.attachmentKB", 8) * 1024,
+            Double.parseDouble(System.getProperty("bench.failureRate", "0.1")),
+            Long.getLong("bench.seed", 1));
+    }
+
+    int scenarioCount() {
+        return features * scenariosPerFeature;
+    }
+
+    @Override
+    public String toString() {
+        return features + " features x " + scenariosPerFeature + " scenarios x " + stepsPerScenario + " steps, "
+            + attachmentsPerScenario + " attachments of " + attachmentBytes / 1024 + " KB per scenario, "
+            + Math.round(failureRate * 100) + "% failing, seed " + seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SyntheticResults <output file>");
+            System.exit(2);
+        }
+        SyntheticResults results = fromProperties();
+        Path file = Paths.get(args[0]);
+        if (ResultLogReader.isResultLog(file)) {
+            results.writeResultLog(file);
+        } else {
+            results.writeCucumberJson(file);
+        }
+        System.out.println("Wrote " + results + " to " + file + " (" + Files.size(file) / 1024 + " KB)");
+    }
+
+    /**
+     * Write the results in the format of Cucumber's json formatter
+     */
+    void writeCucumberJson(Path file) throws IOException {
+        Random random = new Random(seed);
+        try (Writer writer = new OutputStreamWriter(
+                new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024), StandardCharsets.UTF_8)) {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginArray();
+            long[] workerClock = new long[WORKERS];
+            for (int f = 0; f < features; f++) {
+                json.beginObject();
+                json.name("uri").value(featureUri(f));
+                json.name("name").value(featureName(f));
+                json.name("keyword").value("Feature");
+                json.name("elements").beginArray();
+                int worker = f % WORKERS;
+                for (int s = 0; s < scenariosPerFeature; s++) {
+                    Scenario scenario = new Scenario(random, f, s, worker, workerClock);
+                    json.beginObject();
+                    json.name("type").value("scenario");
+                    json.name("keyword").value("Scenario");
+                    json.name("name").value(scenario.name);
+                    json.name("line").value(scenario.line);
+                    json.name("start_timestamp").value(Instant.ofEpochMilli(scenario.start).toString());
+                    json.name("tags").beginArray();
+                    for (String tag : scenario.tags) {
+                        json.beginObject().name("name").value(tag).endObject();
+                    }
+                    json.endArray();
+                    json.name("before").beginArray().beginObject();
+                    json.name("output").beginArray().value(CucumberJsonReader.WORKER_PREFIX + scenario.worker).endArray();
+                    writeJsonResult(json, "passed", scenario.setup, null);
+                    json.endObject().endArray();
+                    json.name("steps").beginArray();
+                    for (int i = 0; i < stepsPerScenario; i++) {
+                        json.beginObject();
+                        json.name("keyword").value(scenario.keywords[i]);
+                        json.name("name").value(scenario.stepNames[i]);
+                        json.name("line").value(scenario.line + 1 + i);
+                        writeJsonResult(json, scenario.stepStatuses[i], scenario.stepDurations[i],
+                            i == scenario.failedStep ? scenario.error : null);
+                        json.endObject();
+                    }
+                    json.endArray();
+                    json.name("after").beginArray().beginObject();
+                    json.name("embeddings").beginArray();
+                    for (int a = 0; a < attachmentsPerScenario; a++) {
+                        json.beginObject();
+                        json.name("mime_type").value("image/png");
+                        json.name("name").value("screenshot_" + a);
+                        json.name("data").value(attachment(random));
+                        json.endObject();
+                    }
+                    json.endArray();
+                    writeJsonResult(json, "passed", scenario.teardown, null);
+                    json.endObject().endArray();
+                    json.endObject();
+                }
+                json.endArray();
+                json.endObject();
+            }
+            json.endArray();
+            json.flush();
+        }
+    }
+
+    /**
+     * Write the same results as a result log, as ResultLogPlugin would
+     */
+    void writeResultLog(Path file) throws IOException {
+        Random random = new Random(seed);
+        try (ResultLogBlocks blocks = new ResultLogBlocks(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+            long[] workerClock = new long[WORKERS];
+            for (int f = 0; f < features; f++) {
+                int worker = f % WORKERS;
+                for (int s = 0; s < scenariosPerFeature; s++) {
+                    Scenario scenario = new Scenario(random, f, s, worker, workerClock);
+                    StringWriter record = new StringWriter();
+                    JsonWriter json = new JsonWriter(record);
+                    json.beginObject();
+                    json.name("feature").value(featureName(f));
+                    json.name("uri").value(featureUri(f));
+                    json.name("line").value(scenario.line);
+                    json.name("name").value(scenario.name);
+                    json.name("start").value(scenario.start);
+                    json.name("worker").value(scenario.worker);
+                    json.name("status").value(scenario.failedStep >= 0 ? "failed" : "passed");
+                    json.name("setup").value(scenario.setup);
+                    json.name("teardown").value(scenario.teardown);
+                    json.name("tags").beginArray();
+                    for (String tag : scenario.tags) {
+                        json.value(tag);
+                    }
+                    json.endArray();
+                    json.name("steps").beginArray();
+                    for (int i = 0; i < stepsPerScenario; i++) {
+                        json.beginObject();
+                        json.name("keyword").value(scenario.keywords[i]);
+                        json.name("name").value(scenario.stepNames[i]);
+                        json.name("status").value(scenario.stepStatuses[i]);
+                        json.name("duration").value(scenario.stepDurations[i]);
+                        if (i == scenario.failedStep) {
+                            json.name("error").value(scenario.error);
+                        }
+                        json.endObject();
+                    }
+                    json.endArray();
+                    json.name("attachments").beginArray();
+                    for (int a = 0; a < attachmentsPerScenario; a++) {
+                        json.beginObject();
+                        json.name("name").value("screenshot_" + a);
+                        json.name("mime_type").value("image/png");
+                        json.name("data").value(attachment(random));
+                        json.endObject();
+                    }
+                    json.endArray();
+                    json.endObject();
+                    json.flush();
+                    record.write('\n');
+                    blocks.append(featureUri(f), record.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * One generated scenario; the random draws are the same for both output formats
+     */
+    private final class Scenario {
+        final String name;
+        final int line;
+        final long start;
+        final String worker;
+        final String[] tags;
+        final long setup;
+        final long teardown;
+        final String[] keywords = new String[stepsPerScenario];
+        final String[] stepNames = new String[stepsPerScenario];
+        final String[] stepStatuses = new String[stepsPerScenario];
+        final long[] stepDurations = new long[stepsPerScenario];
+        final int failedStep;
+        final String error;
+
+        Scenario(Random random, int feature, int index, int workerIndex, long[] workerClock) {
+            name = "Scenario " + feature + "-" + index + " <login & \"verify\">";
+            line = 3 + index * (stepsPerScenario + 2);
+            worker = "worker-" + workerIndex;
+            tags = index % 3 == 0 ? new String[] {"@smoke", "@imds"} : new String[] {"@imds"};
+            setup = 20 + random.nextInt(200);
+            teardown = 10 + random.nextInt(100);
+            failedStep = random.nextDouble() < failureRate ? random.nextInt(stepsPerScenario) : -1;
+            long duration = 0;
+            for (int i = 0; i < stepsPerScenario; i++) {
+                keywords[i] = KEYWORDS[Math.min(i, KEYWORDS.length - 1)];
+                // Step texts repeat across scenarios so per-step statistics have several samples
+                stepNames[i] = "I perform action " + (i + index % 5) + " on terminal \"T-" + feature + "\"";
+                stepStatuses[i] = failedStep < 0 || i < failedStep ? "passed" : i == failedStep ? "failed" : "skipped";
+                // Log-normal-ish durations with an occasional slow outlier
+                stepDurations[i] = "skipped".equals(stepStatuses[i]) ? 0
+                    : (long) (Math.exp(4 + random.nextGaussian() * 0.8) + (random.nextInt(50) == 0 ? 5000 : 0));
+                duration += stepDurations[i];
+            }
+            error = failedStep < 0 ? null
+                : "org.openqa.selenium.TimeoutException: Expected condition failed: waiting for element <#dashboard>"
+                + " (tried for 15 second(s))\n\tat com.scm.steps.ImdsLoginSteps.step" + failedStep
+                + "(ImdsLoginSteps.java:" + (100 + failedStep) + ")\n\tat com.scm.steps.Hooks.run(Hooks.java:42)";
+            start = RUN_START + workerClock[workerIndex];
+            workerClock[workerIndex] += setup + duration + teardown;
+        }
+    }
+
+    private void writeJsonResult(JsonWriter json, String status, long millis, String error) throws IOException {
+        json.name("result").beginObject();
+        json.name("status").value(status);
+        json.name("duration").value(millis * 1_000_000);
+        if (error != null) {
+            json.name("error_message").value(error);
+        }
+        json.endObject();
+    }
+
+    private String attachment(Random random) {
+        byte[] data = new byte[attachmentBytes];
+        random.nextBytes(data);
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    private static String featureUri(int feature) {
+        return "classpath:features/synthetic_" + feature + ".feature";
+    }
+
+    private static String featureName(int feature) {
+        return "Synthetic feature " + feature;
+    }
+}
@@ -0,0 +1,38 @@
+package com.scm.reports;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single executed scenario with its steps
+ */
+class TestScenario {
+    String featureName;
+    String featureUri;
+    int line;
+    // Epoch milliseconds from Cucumber's start_timestamp, 0 when not reported
+    long startTimestamp;
+    // Time spent in before and after hooks, in milliseconds
+    long setupDuration;
+    long teardownDuration;
+    // Thread that ran the scenario, as logged by Hooks; null for older results
+    String worker;
+    // Content hash of the feature this scenario was parsed from; not cached
+    transient String featureKey;
+    // Result file (shard) this scenario was read from; not cached
+    transient String shard;
+    String name;
+    String status = "passed";
+    long duration = 0;
+    List<String> tags = new ArrayList<>();
+    List<TestStep> steps = new ArrayList<>();
+    // Attachments made by before/after hooks, e.g. failure screenshots
+    List<Attachment> attachments = new ArrayList<>();
+
+    /**
+     * Identity of the scenario across retries and shards: feature file and line
+     */
+    String key() {
+        return featureUri != null ? featureUri + ":" + line : featureName + ":" + name;
+    }
+}
@@ -0,0 +1,22 @@
+package com.scm.reports;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single executed step of a scenario
+ */
+class TestStep {
+    String keyword;
+    String name;
+    String status = "passed";
+    long duration = 0;
+    String errorMessage;
+    List<Attachment> attachments = new ArrayList<>();
+    // Span breakdown JSON, see SpanBreakdown
+    String spans;
+    // WebDriver command log JSON, see DriverCommandStats
+    String commands;
+    // Page performance JSON, see PageTimings
+    String pages;
+}
@@ -0,0 +1,160 @@
+package com.scm.reports;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Wall-clock layout of a run for the Gantt timeline: one lane per worker
+ * Scenarios are placed at their Cucumber start_timestamp. Lanes come from the worker logged by
+ * Hooks, per shard, since the JVMs of merged shards reuse the same thread names; results without
+ * a worker are packed greedily into the fewest non-overlapping lanes.
+ * Without start timestamps scenarios are laid out back to back in a single lane.
+ */
+final class TimelineLayout {
+
+    /**
+     * One scenario placed on the time axis, in milliseconds since the start of the run
+     */
+    static final class Bar {
+        final ScenarioView scenario;
+        final long start;
+        final long end;
+
+        Bar(ScenarioView scenario, long start, long end) {
+            this.scenario = scenario;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    static final class Lane {
+        final String worker;
+        final List<Bar> bars = new ArrayList<>();
+        long busy;
+
+        Lane(String worker) {
+            this.worker = worker;
+        }
+    }
+
+    final List<Lane> lanes = new ArrayList<>();
+    // True when start timestamps were reported, false for the sequential fallback
+    final boolean wallClock;
+    final long span;
+    final long busy;
+    // Longest single scenario: the wall time of the run with unlimited workers
+    final long criticalPath;
+
+    private TimelineLayout(boolean wallClock, List<Bar> bars, Map<String, Lane> lanesByWorker) {
+        this.wallClock = wallClock;
+        long end = 0;
+        long longest = 0;
+        long totalBusy = 0;
+        for (Bar bar : bars) {
+            end = Math.max(end, bar.end);
+            longest = Math.max(longest, bar.end - bar.start);
+            totalBusy += bar.end - bar.start;
+        }
+        this.span = end;
+        this.criticalPath = longest;
+        this.busy = totalBusy;
+        this.lanes.addAll(lanesByWorker.values());
+    }
+
+    /**
+     * Share of the lanes' wall time spent running scenarios, 0 to 1
+     */
+    double utilization() {
+        return lanes.isEmpty() || span == 0 ? 0 : busy / ((double) span * lanes.size());
+    }
+
+    double utilization(Lane lane) {
+        return span == 0 ? 0 : lane.busy / (double) span;
+    }
+
+    /**
+     * Lane time not spent running scenarios, in milliseconds
+     */
+    long idle() {
+        return span * lanes.size() - busy;
+    }
+
+    /**
+     * Best achievable wall time with the same workers and perfect balancing
+     */
+    long balancedSpan() {
+        return lanes.isEmpty() ? 0 : Math.max(criticalPath, busy / lanes.size());
+    }
+
+    static TimelineLayout of(List<ScenarioView> scenarios) {
+        long runStart = Long.MAX_VALUE;
+        for (ScenarioView scenario : scenarios) {
+            if (scenario.startTimestamp() > 0) {
+                runStart = Math.min(runStart, scenario.startTimestamp());
+            }
+        }
+
+        List<Bar> bars = new ArrayList<>(scenarios.size());
+        if (runStart == Long.MAX_VALUE) {
+            long offset = 0;
+            for (ScenarioView scenario : scenarios) {
+                long length = wallTime(scenario);
+                bars.add(new Bar(scenario, offset, offset + length));
+                offset += length;
+            }
+            Map<String, Lane> lanes = new LinkedHashMap<>();
+            Lane lane = new Lane("sequential");
+            for (Bar bar : bars) {
+                lane.bars.add(bar);
+                lane.busy += bar.end - bar.start;
+            }
+            lanes.put(lane.worker, lane);
+            return new TimelineLayout(false, bars, lanes);
+        }
+
+        for (ScenarioView scenario : scenarios) {
+            // Scenarios without a timestamp in an otherwise timed run are placed at the start
+            long start = scenario.startTimestamp() > 0 ? scenario.startTimestamp() - runStart : 0;
+            bars.add(new Bar(scenario, start, start + wallTime(scenario)));
+        }
+        bars.sort(Comparator.comparingLong(bar -> bar.start));
+
+        Map<String, Lane> lanes = new LinkedHashMap<>();
+        // Untagged bars: reuse the lane that became free first, if it is free at the bar's start
+        PriorityQueue<Lane> freeAt = new PriorityQueue<>(Comparator.comparingLong(TimelineLayout::laneEnd));
+        for (Bar bar : bars) {
+            Lane lane;
+            String worker = bar.scenario.worker();
+            if (worker != null) {
+                String shard = bar.scenario.shard();
+                lane = lanes.computeIfAbsent(shard != null ? shard + "/" + worker : worker, Lane::new);
+            } else if (!freeAt.isEmpty() && laneEnd(freeAt.peek()) <= bar.start) {
+                lane = freeAt.poll();
+            } else {
+                lane = new Lane("lane " + (freeAt.size() + 1));
+                lanes.put(lane.worker, lane);
+            }
+            lane.bars.add(bar);
+            lane.busy += bar.end - bar.start;
+            if (worker == null) {
+                freeAt.add(lane);
+            }
+        }
+        return new TimelineLayout(true, bars, lanes);
+    }
+
+    /**
+     * Hooks, then steps: the time the scenario occupied its worker
+     */
+    static long wallTime(ScenarioView scenario) {
+        return scenario.setupDuration() + scenario.duration() + scenario.teardownDuration();
+    }
+
+    private static long laneEnd(Lane lane) {
+        return lane.bars.isEmpty() ? 0 : lane.bars.get(lane.bars.size() - 1).end;
+    }
+}
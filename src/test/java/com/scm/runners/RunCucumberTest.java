@@ -11,7 +11,7 @@ import static io.cucumber.junit.platform.engine.Constants.GLUE_PROPERTY_NAME;
 @Suite
 @IncludeEngines("cucumber")
 @SelectClasspathResource("features")
-@ConfigurationParameter(key = PLUGIN_PROPERTY_NAME, value = "pretty, html:target/cucumber-reports/cucumber.html, json:target/cucumber-reports/cucumber.json, junit:target/cucumber-reports/cucumber.xml")
+@ConfigurationParameter(key = PLUGIN_PROPERTY_NAME, value = "pretty, html:target/cucumber-reports/cucumber.html, com.scm.reports.ResultLogPlugin, junit:target/cucumber-reports/cucumber.xml, com.scm.reports.LiveReportPlugin:target/html-reports, com.scm.reports.ReportGenerationPlugin")
 @ConfigurationParameter(key = GLUE_PROPERTY_NAME, value = "com.scm.steps")
 public class RunCucumberTest {
 }
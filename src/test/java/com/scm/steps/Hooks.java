@@ -1,34 +1,65 @@
 package com.scm.steps;
 
+import com.scm.utils.DriverCommandListener;
 import com.scm.utils.DriverManager;
+import com.scm.utils.PagePerformance;
+import com.scm.utils.Span;
 import com.scm.utils.TestTiming;
 import io.cucumber.java.After;
+import io.cucumber.java.AfterAll;
+import io.cucumber.java.AfterStep;
 import io.cucumber.java.Before;
+import io.cucumber.java.BeforeStep;
 import io.cucumber.java.Scenario;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 public class Hooks {
     private WebDriver driver;
-    private String scenarioId;
-    private long scenarioStartTime;
+    private Span scenarioSpan;
+    private Span stepSpan;
 
     @Before
     public void setUp(Scenario scenario) {
-        scenarioId = UUID.randomUUID().toString();
-        scenarioStartTime = System.currentTimeMillis();
-        TestTiming.startStep(scenarioId, scenario.getName());
+        scenarioSpan = Span.startScenario(scenario.getId(), scenario.getName());
+        // Lets the timeline report put parallel scenarios in one lane per thread
+        scenario.log("worker=" + Thread.currentThread().getName());
         driver = DriverManager.getDriver();
     }
 
+    @BeforeStep
+    public void startStep() {
+        stepSpan = Span.startStep();
+        // Commands and pages of the hooks are not attributed to the step
+        DriverCommandListener.clear();
+        PagePerformance.clear();
+    }
+
+    @AfterStep
+    public void endStep(Scenario scenario) {
+        stepSpan.close();
+        System.out.println("Step completed in: " + TestTiming.formatDuration(stepSpan.getDurationMillis()));
+        // The time breakdown of the step in the detailed report
+        if (!stepSpan.getChildren().isEmpty()) {
+            scenario.attach(stepSpan.toJson(), Span.MEDIA_TYPE, "spans");
+        }
+        // WebDriver commands of the step, recorded with -Dwebdriver.instrument=true
+        if (DriverCommandListener.hasCalls()) {
+            scenario.attach(DriverCommandListener.takeJson(scenario.getId()), DriverCommandListener.MEDIA_TYPE, "commands");
+        }
+        // Browser timings of the pages the step captured
+        if (PagePerformance.hasPages()) {
+            scenario.attach(PagePerformance.takeJson(scenario.getId()), PagePerformance.MEDIA_TYPE, "pages");
+        }
+    }
+
     @After
     public void tearDown(Scenario scenario) {
-        long scenarioDuration = System.currentTimeMillis() - scenarioStartTime;
-        TestTiming.endStep(scenarioId);
+        scenarioSpan.close();
+        long scenarioDuration = scenarioSpan.getDurationMillis();
         
         // Attach timing information to the scenario
         String timingInfo = String.format("Scenario: %s\nDuration: %s\nTimestamp: %s", 
@@ -44,4 +75,10 @@ public class Hooks {
         }
         DriverManager.quitDriver();
     }
+
+    @AfterAll
+    public static void printTimings() {
+        // Named spans and WebDriver commands of this JVM, slowest first
+        TestTiming.printSummary(20);
+    }
 }
@@ -1,7 +1,8 @@
 package com.scm.steps;
 
 import com.scm.utils.DriverManager;
-import com.scm.utils.TestTiming;
+import com.scm.utils.PagePerformance;
+import com.scm.utils.Span;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
@@ -15,7 +16,6 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.UUID;
 
 public class ImdsLoginSteps {
     private WebDriver driver;
@@ -27,12 +27,10 @@ public class ImdsLoginSteps {
     }
 
     @Given("I navigate to the IMDS login page")
+    @SuppressWarnings("try") // Phase spans only time the block they open
     public void i_navigate_to_the_imds_login_page() {
-        String stepId = UUID.randomUUID().toString();
-        TestTiming.startStep(stepId, "Navigate to IMDS login page");
-        try {
-            // Check system property first, then environment variable, then use default
-            String imdsUrl = System.getProperty("imds.url");
+        // Check system property first, then environment variable, then use default
+        String imdsUrl = System.getProperty("imds.url");
         if (imdsUrl == null || imdsUrl.isEmpty()) {
             imdsUrl = System.getenv("IMDS_URL");
         }
@@ -41,73 +39,77 @@ public class ImdsLoginSteps {
             imdsUrl = "SMD_URL";
         }
         
-        // Add delay before navigation to avoid rate limiting
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-        }
+        try (Span phase = Span.start("Open login page")) {
+            // Add delay before navigation to avoid rate limiting
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
         
-        // Navigate directly to the URL first (this will trigger certificate warning)
-        System.out.println("Navigating to: " + imdsUrl);
-        driver.get(imdsUrl);
+            // Navigate directly to the URL first (this will trigger certificate warning)
+            System.out.println("Navigating to: " + imdsUrl);
+            driver.get(imdsUrl);
         
-        // Wait a bit for page/certificate warning to appear
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
+            // Wait a bit for page/certificate warning to appear
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
         }
         
-        // Handle certificate security warning - try multiple times with longer waits
-        boolean certificateHandled = false;
-        for (int attempt = 0; attempt < 5 && !certificateHandled; attempt++) {
-            try {
-                // Try to find and click the details button
-                WebDriverWait certWait = new WebDriverWait(driver, Duration.ofSeconds(5));
-                WebElement detailsButton = certWait.until(ExpectedConditions.elementToBeClickable(
-                    By.xpath("//*[@id='details-button']")));
+        try (Span phase = Span.start("Handle certificate warning")) {
+            // Handle certificate security warning - try multiple times with longer waits
+            boolean certificateHandled = false;
+            for (int attempt = 0; attempt < 5 && !certificateHandled; attempt++) {
+                try {
+                    // Try to find and click the details button
+                    WebDriverWait certWait = new WebDriverWait(driver, Duration.ofSeconds(5));
+                    WebElement detailsButton = certWait.until(ExpectedConditions.elementToBeClickable(
+                        By.xpath("//*[@id='details-button']")));
                 
-                if (detailsButton != null && detailsButton.isDisplayed()) {
-                    System.out.println("Found certificate details button, clicking...");
-                    detailsButton.click();
-                    Thread.sleep(2000);
+                    if (detailsButton != null && detailsButton.isDisplayed()) {
+                        System.out.println("Found certificate details button, clicking...");
+                        detailsButton.click();
+                        Thread.sleep(2000);
                     
-                    // Now try to find and click the proceed link
-                    try {
-                        WebElement proceedLink = certWait.until(ExpectedConditions.elementToBeClickable(
-                            By.xpath("//*[@id='proceed-link']")));
+                        // Now try to find and click the proceed link
+                        try {
+                            WebElement proceedLink = certWait.until(ExpectedConditions.elementToBeClickable(
+                                By.xpath("//*[@id='proceed-link']")));
                         
-                        if (proceedLink != null && proceedLink.isDisplayed()) {
-                            System.out.println("Found proceed link, clicking...");
-                            proceedLink.click();
-                            Thread.sleep(3000);
-                            certificateHandled = true;
-                            System.out.println("Certificate warning handled successfully");
+                            if (proceedLink != null && proceedLink.isDisplayed()) {
+                                System.out.println("Found proceed link, clicking...");
+                                proceedLink.click();
+                                Thread.sleep(3000);
+                                certificateHandled = true;
+                                System.out.println("Certificate warning handled successfully");
+                            }
+                        } catch (Exception e2) {
+                            System.out.println("Proceed link not found on attempt " + (attempt + 1) + ", retrying...");
+                            try {
+                                Thread.sleep(2000);
+                            } catch (InterruptedException ie) {
+                                Thread.currentThread().interrupt();
+                            }
                         }
-                    } catch (Exception e2) {
-                        System.out.println("Proceed link not found on attempt " + (attempt + 1) + ", retrying...");
+                    }
+                } catch (Exception e) {
+                    // Details button not found, might already be past certificate warning
+                    System.out.println("Certificate details button not found on attempt " + (attempt + 1) + 
+                        " (this might be OK if already past certificate warning): " + e.getMessage());
+                    if (attempt < 4) {
                         try {
                             Thread.sleep(2000);
                         } catch (InterruptedException ie) {
                             Thread.currentThread().interrupt();
                         }
+                    } else {
+                        // If we've tried multiple times and no certificate warning, assume we're past it
+                        certificateHandled = true;
                     }
                 }
-            } catch (Exception e) {
-                // Details button not found, might already be past certificate warning
-                System.out.println("Certificate details button not found on attempt " + (attempt + 1) + 
-                    " (this might be OK if already past certificate warning): " + e.getMessage());
-                if (attempt < 4) {
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                    }
-                } else {
-                    // If we've tried multiple times and no certificate warning, assume we're past it
-                    certificateHandled = true;
-                }
             }
         }
         
@@ -117,20 +119,27 @@ public class ImdsLoginSteps {
             throw new RuntimeException("Rate limited. Please wait before trying again.");
         }
         
-        // Wait for page to fully load (wait for JavaScript to execute)
-        WebDriverWait pageLoadWait = new WebDriverWait(driver, Duration.ofSeconds(30));
-        try {
-            // Wait for document.readyState to be complete
-            pageLoadWait.until(webDriver -> {
-                JavascriptExecutor js = (JavascriptExecutor) webDriver;
-                return "complete".equals(js.executeScript("return document.readyState"));
-            });
+        try (Span phase = Span.start("Wait for page load")) {
+            // Wait for page to fully load (wait for JavaScript to execute)
+            WebDriverWait pageLoadWait = new WebDriverWait(driver, Duration.ofSeconds(30));
+            try {
+                // Wait for document.readyState to be complete
+                pageLoadWait.until(webDriver -> {
+                    JavascriptExecutor js = (JavascriptExecutor) webDriver;
+                    return "complete".equals(js.executeScript("return document.readyState"));
+                });
             
-            // Additional wait for any dynamic content to load
-            Thread.sleep(5000);
-        } catch (Exception e) {
-            System.out.println("Warning: Page load wait completed with exception: " + e.getMessage());
-            // Continue anyway
+                // Additional wait for any dynamic content to load
+                Thread.sleep(5000);
+            } catch (Exception e) {
+                System.out.println("Warning: Page load wait completed with exception: " + e.getMessage());
+                // Continue anyway
+            }
+        }
+
+        // Browser-side timings of the login page, separate from the waits above
+        try (Span phase = Span.start("Capture page performance")) {
+            PagePerformance.capture(driver, "IMDS login page");
         }
         
         String pageTitle = driver.getTitle();
@@ -147,120 +156,124 @@ public class ImdsLoginSteps {
                           (pageSource.contains("does not exist") && pageSource.contains("IMDS CDB"));
         
         if (hasError) {
-            // Wait a bit more and check again - sometimes JavaScript loads content after initial render
-            System.out.println("Error detected, waiting additional time for JavaScript to load content...");
-            try {
-                Thread.sleep(10000); // Wait 10 more seconds
-                pageSource = driver.getPageSource();
-                pageTitle = driver.getTitle();
-                hasError = pageSource.contains("Transaction Failed") || 
-                          pageSource.contains("The requested resource does not exist") ||
-                          (pageSource.contains("does not exist") && pageSource.contains("IMDS CDB"));
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-            }
+            try (Span phase = Span.start("Recheck error page")) {
+                // Wait a bit more and check again - sometimes JavaScript loads content after initial render
+                System.out.println("Error detected, waiting additional time for JavaScript to load content...");
+                try {
+                    Thread.sleep(10000); // Wait 10 more seconds
+                    pageSource = driver.getPageSource();
+                    pageTitle = driver.getTitle();
+                    hasError = pageSource.contains("Transaction Failed") || 
+                              pageSource.contains("The requested resource does not exist") ||
+                              (pageSource.contains("does not exist") && pageSource.contains("IMDS CDB"));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
             
-            if (hasError) {
-                // Print current URL to help debug
-                String currentUrl = driver.getCurrentUrl();
-                System.out.println("Current URL after navigation: " + currentUrl);
-                System.out.println("Expected URL: " + imdsUrl);
+                if (hasError) {
+                    // Print current URL to help debug
+                    String currentUrl = driver.getCurrentUrl();
+                    System.out.println("Current URL after navigation: " + currentUrl);
+                    System.out.println("Expected URL: " + imdsUrl);
                 
-                throw new RuntimeException(
-                    "IMDS returned an error page. The URL '" + imdsUrl + "' appears to be invalid or the resource does not exist.\n" +
-                    "Current URL: " + currentUrl + "\n" +
-                    "Page title: " + pageTitle + "\n" +
-                    "Error message: 'Transaction Failed - The requested resource does not exist.'\n" +
-                    "\nThis might be due to:\n" +
-                    "1. The page detecting automation and blocking access\n" +
-                    "2. The URL being incorrect or needing a different entry point\n" +
-                    "3. The page requiring authentication, cookies, or specific headers\n" +
-                    "4. The page needing to be accessed through a parent frame\n" +
-                    "\nTroubleshooting:\n" +
-                    "- Please verify the exact URL that works in manual Chrome\n" +
-                    "- Check if you need to access it through a different URL first\n" +
-                    "- Verify if cookies or session data are required\n" +
-                    "- The page source shows 'fs = window.parent;' suggesting it expects to be in a frame"
-                );
+                    throw new RuntimeException(
+                        "IMDS returned an error page. The URL '" + imdsUrl + "' appears to be invalid or the resource does not exist.\n" +
+                        "Current URL: " + currentUrl + "\n" +
+                        "Page title: " + pageTitle + "\n" +
+                        "Error message: 'Transaction Failed - The requested resource does not exist.'\n" +
+                        "\nThis might be due to:\n" +
+                        "1. The page detecting automation and blocking access\n" +
+                        "2. The URL being incorrect or needing a different entry point\n" +
+                        "3. The page requiring authentication, cookies, or specific headers\n" +
+                        "4. The page needing to be accessed through a parent frame\n" +
+                        "\nTroubleshooting:\n" +
+                        "- Please verify the exact URL that works in manual Chrome\n" +
+                        "- Check if you need to access it through a different URL first\n" +
+                        "- Verify if cookies or session data are required\n" +
+                        "- The page source shows 'fs = window.parent;' suggesting it expects to be in a frame"
+                    );
+                }
             }
         }
         
-        // Check for iframes that might contain the login form
-        // We need to find the iframe that contains the TerminalId field
-        boolean switchedToFrame = false;
-        try {
-            java.util.List<WebElement> iframes = driver.findElements(By.tagName("iframe"));
-            System.out.println("Found " + iframes.size() + " iframe(s) on the page");
+        try (Span phase = Span.start("Find login iframe")) {
+            // Check for iframes that might contain the login form
+            // We need to find the iframe that contains the TerminalId field
+            boolean switchedToFrame = false;
+            try {
+                java.util.List<WebElement> iframes = driver.findElements(By.tagName("iframe"));
+                System.out.println("Found " + iframes.size() + " iframe(s) on the page");
             
-            // Try each iframe to find the one with the login form
-            for (int i = 0; i < iframes.size(); i++) {
-                try {
-                    WebElement iframe = iframes.get(i);
-                    String iframeSrc = iframe.getAttribute("src");
-                    System.out.println("Checking iframe " + i + " with src: " + iframeSrc);
+                // Try each iframe to find the one with the login form
+                for (int i = 0; i < iframes.size(); i++) {
+                    try {
+                        WebElement iframe = iframes.get(i);
+                        String iframeSrc = iframe.getAttribute("src");
+                        System.out.println("Checking iframe " + i + " with src: " + iframeSrc);
                     
-                    // Skip empty or tracking iframes
-                    if (iframeSrc == null || iframeSrc.isEmpty() || 
-                        iframeSrc.equals("javascript:void(0)") ||
-                        iframeSrc.contains("boomerang") ||
-                        iframeSrc.contains("matomo")) {
-                        continue;
-                    }
+                        // Skip empty or tracking iframes
+                        if (iframeSrc == null || iframeSrc.isEmpty() || 
+                            iframeSrc.equals("javascript:void(0)") ||
+                            iframeSrc.contains("boomerang") ||
+                            iframeSrc.contains("matomo")) {
+                            continue;
+                        }
                     
-                    // Switch to this iframe
-                    driver.switchTo().defaultContent(); // Make sure we're at root first
-                    driver.switchTo().frame(i);
-                    System.out.println("Switched to iframe " + i);
+                        // Switch to this iframe
+                        driver.switchTo().defaultContent(); // Make sure we're at root first
+                        driver.switchTo().frame(i);
+                        System.out.println("Switched to iframe " + i);
                     
-                    // Wait for iframe content to load
-                    Thread.sleep(3000);
+                        // Wait for iframe content to load
+                        Thread.sleep(3000);
                     
-                    // Check if this iframe contains the TerminalId field
+                        // Check if this iframe contains the TerminalId field
+                        try {
+                            WebDriverWait iframeWait = new WebDriverWait(driver, Duration.ofSeconds(5));
+                            WebElement terminalIdCheck = iframeWait.until(ExpectedConditions.presenceOfElementLocated(
+                                By.xpath("//*[@id='TerminalId']")));
+                            if (terminalIdCheck != null) {
+                                System.out.println("Found TerminalId field in iframe " + i + " - this is the correct iframe!");
+                                switchedToFrame = true;
+                                break;
+                            }
+                        } catch (Exception e) {
+                            // TerminalId not found in this iframe, try next one
+                            System.out.println("TerminalId not found in iframe " + i + ", trying next iframe...");
+                            driver.switchTo().defaultContent(); // Go back to root before trying next iframe
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        System.out.println("Error checking iframe " + i + ": " + e.getMessage());
+                        driver.switchTo().defaultContent(); // Make sure we're back at root
+                        continue;
+                    }
+                }
+            
+                // If we didn't find TerminalId in any iframe, check the main content
+                if (!switchedToFrame) {
+                    driver.switchTo().defaultContent();
+                    System.out.println("TerminalId not found in any iframe, checking main content");
                     try {
-                        WebDriverWait iframeWait = new WebDriverWait(driver, Duration.ofSeconds(5));
-                        WebElement terminalIdCheck = iframeWait.until(ExpectedConditions.presenceOfElementLocated(
+                        Thread.sleep(2000);
+                        WebElement terminalIdCheck = wait.until(ExpectedConditions.presenceOfElementLocated(
                             By.xpath("//*[@id='TerminalId']")));
                         if (terminalIdCheck != null) {
-                            System.out.println("Found TerminalId field in iframe " + i + " - this is the correct iframe!");
+                            System.out.println("Found TerminalId in main content");
                             switchedToFrame = true;
-                            break;
                         }
                     } catch (Exception e) {
-                        // TerminalId not found in this iframe, try next one
-                        System.out.println("TerminalId not found in iframe " + i + ", trying next iframe...");
-                        driver.switchTo().defaultContent(); // Go back to root before trying next iframe
-                        continue;
+                        System.out.println("TerminalId not found in main content either");
                     }
-                } catch (Exception e) {
-                    System.out.println("Error checking iframe " + i + ": " + e.getMessage());
-                    driver.switchTo().defaultContent(); // Make sure we're back at root
-                    continue;
                 }
+            } catch (Exception e) {
+                System.out.println("Error handling iframes: " + e.getMessage());
+                driver.switchTo().defaultContent(); // Make sure we're at root
             }
-            
-            // If we didn't find TerminalId in any iframe, check the main content
+        
             if (!switchedToFrame) {
-                driver.switchTo().defaultContent();
-                System.out.println("TerminalId not found in any iframe, checking main content");
-                try {
-                    Thread.sleep(2000);
-                    WebElement terminalIdCheck = wait.until(ExpectedConditions.presenceOfElementLocated(
-                        By.xpath("//*[@id='TerminalId']")));
-                    if (terminalIdCheck != null) {
-                        System.out.println("Found TerminalId in main content");
-                        switchedToFrame = true;
-                    }
-                } catch (Exception e) {
-                    System.out.println("TerminalId not found in main content either");
-                }
+                System.out.println("Warning: Could not find TerminalId field. Staying in current context.");
             }
-        } catch (Exception e) {
-            System.out.println("Error handling iframes: " + e.getMessage());
-            driver.switchTo().defaultContent(); // Make sure we're at root
-        }
-        
-        if (!switchedToFrame) {
-            System.out.println("Warning: Could not find TerminalId field. Staying in current context.");
         }
         
         // Additional wait for page to fully load
@@ -269,19 +282,12 @@ public class ImdsLoginSteps {
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
         }
-        } finally {
-            long duration = TestTiming.endStep(stepId);
-            System.out.println("Navigation step completed in: " + TestTiming.formatDuration(duration));
-        }
     }
 
     @When("I enter terminal ID {string}")
     public void i_enter_terminal_id(String terminalId) {
-        String stepId = UUID.randomUUID().toString();
-        TestTiming.startStep(stepId, "Enter terminal ID: " + terminalId);
-        try {
-            // Wait a bit more for page to fully load
-            WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(20));
+        // Wait a bit more for page to fully load
+        WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(20));
         
         // Find the terminal ID input field using the correct selector
         WebElement terminalIdField;
@@ -331,20 +337,13 @@ public class ImdsLoginSteps {
         terminalIdField.clear();
         terminalIdField.sendKeys(terminalId);
         System.out.println("Entered terminal ID: " + terminalId);
-        } finally {
-            long duration = TestTiming.endStep(stepId);
-            System.out.println("Enter terminal ID step completed in: " + TestTiming.formatDuration(duration));
-        }
     }
 
     @When("I click the IMDS login button")
     public void i_click_the_imds_login_button() {
-        String stepId = UUID.randomUUID().toString();
-        TestTiming.startStep(stepId, "Click IMDS login button");
-        try {
-            // Find the login button using the correct selector: //*[@id="TerminalLogon"]
-            WebElement loginButton;
-            WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(20));
+        // Find the login button using the correct selector: //*[@id="TerminalLogon"]
+        WebElement loginButton;
+        WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(20));
         
         try {
             // Try the correct selector first: //*[@id="TerminalLogon"]
@@ -372,20 +371,13 @@ public class ImdsLoginSteps {
         
         loginButton.click();
         System.out.println("Clicked TerminalLogon button");
-        } finally {
-            long duration = TestTiming.endStep(stepId);
-            System.out.println("Click login button step completed in: " + TestTiming.formatDuration(duration));
-        }
     }
 
     @Then("I should be logged into IMDS successfully")
     public void i_should_be_logged_into_imds_successfully() {
-        String stepId = UUID.randomUUID().toString();
-        TestTiming.startStep(stepId, "Verify login success");
-        try {
-            // Wait for navigation after login
-            // TODO: Update to check for actual success indicator (e.g., URL change, success message)
-            WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(15));
+        // Wait for navigation after login
+        // TODO: Update to check for actual success indicator (e.g., URL change, success message)
+        WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(15));
         
         try {
             // Wait for URL to change from login page
@@ -397,19 +389,12 @@ public class ImdsLoginSteps {
             extendedWait.until(ExpectedConditions.presenceOfElementLocated(
                 By.id("dashboard")));
         }
-        } finally {
-            long duration = TestTiming.endStep(stepId);
-            System.out.println("Verify login success step completed in: " + TestTiming.formatDuration(duration));
-        }
     }
 
     @Then("I should see the IMDS dashboard or home page")
     public void i_should_see_the_imds_dashboard_or_home_page() {
-        String stepId = UUID.randomUUID().toString();
-        TestTiming.startStep(stepId, "Verify dashboard visibility");
-        try {
-            // TODO: Update selector to match actual dashboard/home page element
-            WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(15));
+        // TODO: Update selector to match actual dashboard/home page element
+        WebDriverWait extendedWait = new WebDriverWait(driver, Duration.ofSeconds(15));
         
         // Check for dashboard or home page indicators
         boolean dashboardVisible = false;
@@ -434,60 +419,49 @@ public class ImdsLoginSteps {
         
         Assert.assertTrue("IMDS dashboard or home page should be visible after login", 
                 dashboardVisible);
-        } finally {
-            long duration = TestTiming.endStep(stepId);
-            System.out.println("Verify dashboard visibility step completed in: " + TestTiming.formatDuration(duration));
-        }
     }
  @Then("I log off from IMDS")
 public void i_log_off_from_imds() {
-    String stepId = UUID.randomUUID().toString();
-    TestTiming.startStep(stepId, "Log off from IMDS");
+    WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
+
     try {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
+        driver.switchTo().defaultContent();
+        List<WebElement> iframes = driver.findElements(By.tagName("iframe"));
+        System.out.println("Found " + iframes.size() + " iframes on page.");
 
-        try {
+        boolean found = false;
+        for (int i = 0; i < iframes.size(); i++) {
             driver.switchTo().defaultContent();
-            List<WebElement> iframes = driver.findElements(By.tagName("iframe"));
-            System.out.println("Found " + iframes.size() + " iframes on page.");
-
-            boolean found = false;
-            for (int i = 0; i < iframes.size(); i++) {
-                driver.switchTo().defaultContent();
-                driver.switchTo().frame(i);
-                try {
-                    WebElement logoffButton = wait.until(ExpectedConditions.presenceOfElementLocated(
-                        By.xpath("//*[@id='div1']/table[1]/tbody/tr[2]/td[5]/input")
-                    ));
-                    if (logoffButton.isDisplayed()) {
-                        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", logoffButton);
-                        Thread.sleep(500);
-                        logoffButton.click();
-                        System.out.println("✅ Clicked Logoff button inside iframe index " + i);
-                        found = true;
-                        break;
-                    }
-                } catch (Exception ignored) {}
-            }
-
-            if (!found) {
-                // Try in main content
-                driver.switchTo().defaultContent();
-                WebElement logoffButton = wait.until(ExpectedConditions.elementToBeClickable(
+            driver.switchTo().frame(i);
+            try {
+                WebElement logoffButton = wait.until(ExpectedConditions.presenceOfElementLocated(
                     By.xpath("//*[@id='div1']/table[1]/tbody/tr[2]/td[5]/input")
                 ));
-                ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", logoffButton);
-                logoffButton.click();
-                System.out.println("✅ Clicked Logoff button in main content (fallback).");
-            }
+                if (logoffButton.isDisplayed()) {
+                    ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", logoffButton);
+                    Thread.sleep(500);
+                    logoffButton.click();
+                    System.out.println("✅ Clicked Logoff button inside iframe index " + i);
+                    found = true;
+                    break;
+                }
+            } catch (Exception ignored) {}
+        }
 
-        } catch (Exception e) {
-            System.out.println("❌ Could not find or click Logoff button: " + e.getMessage());
-            throw e;
+        if (!found) {
+            // Try in main content
+            driver.switchTo().defaultContent();
+            WebElement logoffButton = wait.until(ExpectedConditions.elementToBeClickable(
+                By.xpath("//*[@id='div1']/table[1]/tbody/tr[2]/td[5]/input")
+            ));
+            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", logoffButton);
+            logoffButton.click();
+            System.out.println("✅ Clicked Logoff button in main content (fallback).");
         }
-    } finally {
-        long duration = TestTiming.endStep(stepId);
-        System.out.println("Log off step completed in: " + TestTiming.formatDuration(duration));
+
+    } catch (Exception e) {
+        System.out.println("❌ Could not find or click Logoff button: " + e.getMessage());
+        throw e;
     }
 }
-}
\ No newline at end of file
+}
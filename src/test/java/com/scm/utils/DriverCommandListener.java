@@ -0,0 +1,226 @@
+package com.scm.utils;
+
+import com.google.gson.stream.JsonWriter;
+import org.openqa.selenium.By;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every WebDriver command made through a driver decorated with Selenium's EventFiringDecorator
+ * Each call is recorded in TestTiming under its command, e.g. "WebDriver.findElement", and kept
+ * with its payload size in a log of the calling thread; Hooks attaches that log to each step, so
+ * the reports can break a slow step down into the commands it made. Enable with
+ * -Dwebdriver.instrument=true (see DriverManager).
+ * The payload counts characters of text sent and received (URLs, scripts, keys, page source) and
+ * bytes of screenshots. Typed keys are counted but never logged.
+ */
+public class DriverCommandListener implements WebDriverListener {
+    // Media type of the command logs attached to steps, read by the HTML reports
+    public static final String MEDIA_TYPE = "application/vnd.scm.commands+json";
+    // Calls kept per step; later calls are still recorded in TestTiming
+    private static final int MAX_CALLS = 10_000;
+    // Commands a call can be nested in, e.g. by a listener that calls the driver itself
+    private static final int MAX_OPEN = 8;
+    private static final int MAX_DETAIL = 120;
+    // Methods that only return another view of the driver and make no remote call
+    private static final Set<String> ACCESSORS = Set.of(
+        "manage", "navigate", "switchTo", "timeouts", "window", "logs", "getWrappedDriver", "getWrappedElement");
+
+    private static final ThreadLocal<CallLog> log = ThreadLocal.withInitial(CallLog::new);
+
+    /**
+     * Commands of one thread: the ones running and the ones finished since the log was last taken
+     */
+    private static final class CallLog {
+        final long[] openStarts = new long[MAX_OPEN];
+        final long[] openPayloads = new long[MAX_OPEN];
+        final String[] openCommands = new String[MAX_OPEN];
+        final String[] openDetails = new String[MAX_OPEN];
+        int open;
+
+        String[] commands = new String[64];
+        long[] durations = new long[64];
+        long[] payloads = new long[64];
+        String[] details = new String[64];
+        int count;
+
+        void finished(int slot, long duration, long payload) {
+            if (count == MAX_CALLS) {
+                return;
+            }
+            if (count == commands.length) {
+                int capacity = count * 2;
+                commands = Arrays.copyOf(commands, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                payloads = Arrays.copyOf(payloads, capacity);
+                details = Arrays.copyOf(details, capacity);
+            }
+            commands[count] = openCommands[slot];
+            durations[count] = duration;
+            payloads[count] = payload;
+            details[count] = openDetails[slot];
+            count++;
+        }
+
+        void clear() {
+            Arrays.fill(commands, 0, count, null);
+            Arrays.fill(details, 0, count, null);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        CallLog calls = log.get();
+        // Every call takes a level, so that its end finds the slot again
+        int slot = calls.open++;
+        if (slot >= MAX_OPEN) {
+            return;
+        }
+        if (isAccessor(method)) {
+            calls.openCommands[slot] = null;
+            return;
+        }
+        String command = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        calls.openCommands[slot] = command;
+        calls.openDetails[slot] = detail(method, args);
+        calls.openPayloads[slot] = payload(args);
+        calls.openStarts[slot] = System.nanoTime();
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        end(result);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        end(null);
+    }
+
+    private static void end(Object result) {
+        long end = System.nanoTime();
+        CallLog calls = log.get();
+        if (calls.open == 0) {
+            return;
+        }
+        int slot = --calls.open;
+        if (slot >= MAX_OPEN || calls.openCommands[slot] == null) {
+            return;
+        }
+        long duration = TimeUnit.NANOSECONDS.toMillis(end - calls.openStarts[slot]);
+        TestTiming.record(calls.openCommands[slot], duration);
+        calls.finished(slot, duration, calls.openPayloads[slot] + size(result));
+        calls.openCommands[slot] = null;
+        calls.openDetails[slot] = null;
+    }
+
+    /**
+     * Forget the commands this thread made so far, e.g. in hooks before a step starts
+     */
+    public static void clear() {
+        log.get().clear();
+    }
+
+    /**
+     * Whether this thread made commands since the log was last taken or cleared
+     */
+    public static boolean hasCalls() {
+        return log.get().count > 0;
+    }
+
+    /**
+     * Take the commands this thread made since the log was last taken or cleared, as JSON of MEDIA_TYPE
+     * e.g. {"scenario":"..","calls":[["WebDriver.findElement",42,0,"By.id: TerminalId"]]}
+     * Each call is [command, duration ms, payload, detail or null].
+     * @param scenarioId Cucumber scenario id the calls belong to
+     */
+    public static String takeJson(String scenarioId) {
+        CallLog calls = log.get();
+        StringWriter text = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(text);
+            json.beginObject();
+            json.name("scenario").value(scenarioId);
+            json.name("calls").beginArray();
+            for (int i = 0; i < calls.count; i++) {
+                json.beginArray()
+                    .value(calls.commands[i])
+                    .value(calls.durations[i])
+                    .value(calls.payloads[i])
+                    .value(calls.details[i])
+                    .endArray();
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        calls.clear();
+        return text.toString();
+    }
+
+    private static boolean isAccessor(Method method) {
+        return method.getDeclaringClass() == Object.class || ACCESSORS.contains(method.getName());
+    }
+
+    /**
+     * What the command acted on: the locator, URL or script; null for other commands
+     */
+    private static String detail(Method method, Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        String detail;
+        if (args[0] instanceof By || args[0] instanceof URL) {
+            detail = args[0].toString();
+        } else if (args[0] instanceof String text
+                && (method.getName().equals("get") || method.getName().equals("to") || method.getName().startsWith("execute"))) {
+            detail = text;
+        } else {
+            return null;
+        }
+        return detail.length() > MAX_DETAIL ? detail.substring(0, MAX_DETAIL) + "…" : detail;
+    }
+
+    private static long payload(Object[] args) {
+        long size = 0;
+        if (args != null) {
+            for (Object arg : args) {
+                size += size(arg);
+            }
+        }
+        return size;
+    }
+
+    private static long size(Object value) {
+        if (value instanceof CharSequence text) {
+            return text.length();
+        } else if (value instanceof byte[] bytes) {
+            return bytes.length;
+        } else if (value instanceof CharSequence[] keys) {
+            long size = 0;
+            for (CharSequence key : keys) {
+                size += key != null ? key.length() : 0;
+            }
+            return size;
+        } else if (value instanceof Object[] values) {
+            long size = 0;
+            for (Object element : values) {
+                size += element instanceof CharSequence text ? text.length() : 0;
+            }
+            return size;
+        }
+        return 0;
+    }
+}
@@ -9,6 +9,7 @@ import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.support.events.EventFiringDecorator;
 
 import java.time.Duration;
 
@@ -17,6 +18,8 @@ public class DriverManager {
     private static String browserName = System.getProperty("browser", "chrome").toLowerCase();
     private static boolean attachToDebugging = Boolean.parseBoolean(System.getProperty("attachDebug", "false"));
     private static String debugPort = System.getProperty("debugPort", "9222"); // default debugging port
+    // Time every WebDriver command, see DriverCommandListener
+    private static boolean instrument = Boolean.parseBoolean(System.getProperty("webdriver.instrument", "false"));
 
     public static WebDriver getDriver() {
         if (driver == null) {
@@ -92,7 +95,12 @@ public class DriverManager {
         webDriver.manage().window().maximize();
         webDriver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
         webDriver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(30));
+        // Web vitals of every page, read by steps through PagePerformance.capture
+        PagePerformance.install(webDriver);
 
+        if (instrument) {
+            webDriver = new EventFiringDecorator<>(new DriverCommandListener()).decorate(webDriver);
+        }
         return webDriver;
     }
 
@@ -0,0 +1,158 @@
+package com.scm.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory latency histogram with log-linear buckets
+ * Values below 32 are counted exactly; above that every power of two is split into 32 buckets,
+ * so a reported percentile is within about 3% of the true value whatever the range.
+ * Histograms of the same kind of value can be merged, e.g. to combine parallel test shards.
+ * Recording and reading are lock-free and safe from multiple threads. A LatencySnapshot is the
+ * compact read-only form of the same buckets, for keeping many histograms once recording is done.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Exponents SUB_BUCKET_BITS..62 each get SUB_BUCKETS buckets after the linear range
+    static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Record one value; negative values are recorded as 0
+     * @param value Value to record, e.g. a duration in milliseconds
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(v));
+        totalCount.incrementAndGet();
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Add all values of another histogram to this one
+     * @param other Histogram to merge; it is not modified
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        min.accumulateAndGet(other.min.get(), Math::min);
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Add all values of a snapshot to this histogram
+     * @param snapshot Snapshot to merge, e.g. of a test shard
+     */
+    public void add(LatencySnapshot snapshot) {
+        if (snapshot.count == 0) {
+            return;
+        }
+        for (int i = 0; i < snapshot.buckets.length; i++) {
+            counts.addAndGet(snapshot.buckets[i], snapshot.counts[i]);
+        }
+        totalCount.addAndGet(snapshot.count);
+        min.accumulateAndGet(snapshot.min, Math::min);
+        max.accumulateAndGet(snapshot.max, Math::max);
+    }
+
+    /**
+     * @return The used buckets of this histogram; values recorded meanwhile may be left out
+     */
+    public LatencySnapshot snapshot() {
+        int used = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts.get(i) != 0) {
+                used++;
+            }
+        }
+        int[] buckets = new int[used];
+        long[] sparse = new long[used];
+        long count = 0;
+        used = 0;
+        for (int i = 0; i < BUCKET_COUNT && used < buckets.length; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount != 0) {
+                buckets[used] = i;
+                sparse[used++] = bucketCount;
+                count += bucketCount;
+            }
+        }
+        return count == 0 ? LatencySnapshot.EMPTY : new LatencySnapshot(buckets, sparse, count, getMin(), getMax());
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return Smallest recorded value, or 0 if nothing was recorded
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the value at a percentile
+     * @param percentile Percentile between 0 and 100, e.g. 99.0
+     * @return Upper bound of the bucket holding the percentile, capped at the recorded maximum;
+     *         0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = rank(percentile, count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.max(getMin(), Math.min(getMax(), bucketUpperBound(i)));
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return Nearest rank of a percentile among count values, from 1 to count
+     */
+    static long rank(double percentile, long count) {
+        double clamped = Math.min(100.0, Math.max(0.0, percentile));
+        return Math.max(1, (long) Math.ceil(clamped / 100.0 * count));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        // Top SUB_BUCKET_BITS + 1 bits of the value, in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        int mantissa = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
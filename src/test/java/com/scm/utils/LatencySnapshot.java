@@ -0,0 +1,89 @@
+package com.scm.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable latency histogram that only stores the buckets it uses, in order
+ * Uses the buckets of LatencyHistogram, so the two convert into each other without loss: a
+ * histogram is snapshotted once recording is done, and snapshots are merged by adding them to a
+ * histogram. Keeping a snapshot per name costs a few buckets rather than a full histogram each.
+ */
+public final class LatencySnapshot {
+    static final LatencySnapshot EMPTY = new LatencySnapshot(new int[0], new long[0], 0, 0, 0);
+
+    final int[] buckets;
+    final long[] counts;
+    final long count;
+    final long min;
+    final long max;
+
+    LatencySnapshot(int[] buckets, long[] counts, long count, long min, long max) {
+        this.buckets = buckets;
+        this.counts = counts;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @param sorted Values sorted in ascending order in [from, to); negative values count as 0
+     */
+    public static LatencySnapshot of(long[] sorted, int from, int to) {
+        if (from == to) {
+            return EMPTY;
+        }
+        // Sorted values fill the buckets in order, so each bucket is one run of values
+        int[] buckets = new int[Math.min(to - from, LatencyHistogram.BUCKET_COUNT)];
+        long[] counts = new long[buckets.length];
+        int used = 0;
+        for (int i = from; i < to; i++) {
+            int bucket = LatencyHistogram.bucketIndex(Math.max(0, sorted[i]));
+            if (used == 0 || buckets[used - 1] != bucket) {
+                buckets[used++] = bucket;
+            }
+            counts[used - 1]++;
+        }
+        return new LatencySnapshot(Arrays.copyOf(buckets, used), Arrays.copyOf(counts, used), to - from,
+            Math.max(0, sorted[from]), Math.max(0, sorted[to - 1]));
+    }
+
+    /**
+     * Combine snapshots, e.g. of several names or of separate shards; the inputs are not modified
+     */
+    public static LatencySnapshot merge(Collection<LatencySnapshot> snapshots) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (LatencySnapshot snapshot : snapshots) {
+            histogram.add(snapshot);
+        }
+        return histogram.snapshot();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100, e.g. 99.0
+     * @return Upper bound of the bucket holding the nearest rank, kept within the recorded
+     *         minimum and maximum; 0 when empty
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = LatencyHistogram.rank(percentile, count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, LatencyHistogram.bucketUpperBound(buckets[i])));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,205 @@
+package com.scm.utils;
+
+import com.google.gson.stream.JsonWriter;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Browser-side timing of the page a step navigated to
+ * capture reads the page's Navigation and Resource Timing entries, its largest contentful paint,
+ * cumulative layout shift and long tasks, and on Chromium browsers the DevTools Performance
+ * metrics. Pages are kept in a log of the calling thread that Hooks attaches to each step, so the
+ * detailed report can show time to first byte, DOM complete and a resource waterfall next to the
+ * step's wall time, which includes the test's own waits.
+ * Capturing never fails a step: when the browser cannot report timings, the page is skipped.
+ */
+public final class PagePerformance {
+    // Media type of the page logs attached to steps, read by the HTML reports
+    public static final String MEDIA_TYPE = "application/vnd.scm.pages+json";
+    // Resources kept per page, in the order they started
+    private static final int MAX_RESOURCES = 150;
+    // DevTools metrics kept, from Performance.getMetrics
+    private static final Set<String> METRICS = Set.of(
+        "TaskDuration", "ScriptDuration", "LayoutDuration", "RecalcStyleDuration", "JSHeapUsedSize", "Nodes");
+
+    // Accumulates web vitals from the start of every document; installed through DevTools
+    private static final String OBSERVERS = """
+        (() => {
+            const perf = window.__scmPerf = {lcp: null, cls: 0, longTasks: 0, longTaskTime: 0};
+            const observe = (type, handle) => {
+                try {
+                    new PerformanceObserver(list => list.getEntries().forEach(handle)).observe({type, buffered: true});
+                } catch (e) {
+                    // Entry type not supported by this browser
+                }
+            };
+            observe('largest-contentful-paint', e => perf.lcp = e.renderTime || e.loadTime || e.startTime);
+            observe('layout-shift', e => { if (!e.hadRecentInput) perf.cls += e.value; });
+            observe('longtask', e => { perf.longTasks++; perf.longTaskTime += e.duration; });
+        })();
+        """;
+
+    // Reads the timings of the current document; without the installed observers, buffered
+    // observers report what the browser kept of the web vitals
+    private static final String CAPTURE = """
+        const done = arguments[arguments.length - 1];
+        const maxResources = arguments[0];
+        if (!window.__scmPerf) {
+            %s
+        }
+        setTimeout(() => {
+            const ms = v => Math.round(v || 0);
+            const n = performance.getEntriesByType('navigation')[0];
+            const navigation = n && {
+                type: n.type,
+                redirect: ms(n.redirectEnd - n.redirectStart),
+                dns: ms(n.domainLookupEnd - n.domainLookupStart),
+                connect: ms(n.connectEnd - n.connectStart),
+                tls: n.secureConnectionStart > 0 ? ms(n.connectEnd - n.secureConnectionStart) : 0,
+                ttfb: ms(n.responseStart),
+                responseEnd: ms(n.responseEnd),
+                domInteractive: ms(n.domInteractive),
+                domContentLoaded: ms(n.domContentLoadedEventEnd),
+                domComplete: ms(n.domComplete),
+                load: ms(n.loadEventEnd),
+                transferSize: n.transferSize || 0
+            };
+            const resources = performance.getEntriesByType('resource').slice(0, maxResources).map(r => [
+                r.name, r.initiatorType, ms(r.startTime), ms(r.duration),
+                r.responseStart > 0 ? ms(r.responseStart - r.startTime) : 0, r.transferSize || 0]);
+            const v = window.__scmPerf;
+            done(JSON.stringify({
+                url: location.href,
+                navigation: navigation || null,
+                vitals: {lcp: v.lcp == null ? null : ms(v.lcp), cls: Math.round(v.cls * 1000) / 1000,
+                    longTasks: v.longTasks, longTaskTime: ms(v.longTaskTime)},
+                resources: resources
+            }));
+        }, 100);
+        """.formatted(OBSERVERS);
+
+    private static final ThreadLocal<List<String>> pages = ThreadLocal.withInitial(ArrayList::new);
+
+    private PagePerformance() {
+    }
+
+    /**
+     * Observe web vitals from the start of every document the driver loads (Chromium browsers only)
+     * Long tasks are only reported from the moment they are observed, so installing the observers
+     * before navigating gives complete counts.
+     */
+    public static void install(WebDriver driver) {
+        if (!(driver instanceof HasCdp cdp)) {
+            return;
+        }
+        try {
+            cdp.executeCdpCommand("Page.addScriptToEvaluateOnNewDocument", Map.of("source", OBSERVERS));
+            cdp.executeCdpCommand("Performance.enable", Map.of());
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Page performance observers could not be installed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record the timings of the page the driver is on, for the step that is running
+     * @param page Name of the page in the report, e.g. "IMDS login page"
+     */
+    public static void capture(WebDriver driver, String page) {
+        try {
+            Object timings = ((JavascriptExecutor) driver).executeAsyncScript(CAPTURE, MAX_RESOURCES);
+            if (!(timings instanceof String captured)) {
+                return;
+            }
+            StringWriter text = new StringWriter();
+            JsonWriter json = new JsonWriter(text);
+            json.beginObject();
+            json.name("page").value(page);
+            json.name("timings").jsonValue(captured);
+            json.name("metrics");
+            writeMetrics(driver, json);
+            json.endObject();
+            json.flush();
+            pages.get().add(text.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Page performance of " + page + " could not be captured: " + e.getMessage());
+        }
+    }
+
+    /**
+     * DevTools Performance metrics, durations in milliseconds; null on other browsers
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeMetrics(WebDriver driver, JsonWriter json) throws IOException {
+        if (!(driver instanceof HasCdp cdp)) {
+            json.nullValue();
+            return;
+        }
+        Map<String, Object> result;
+        try {
+            result = cdp.executeCdpCommand("Performance.getMetrics", Map.of());
+        } catch (RuntimeException e) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        for (Map<String, Object> metric : (List<Map<String, Object>>) result.getOrDefault("metrics", List.of())) {
+            String name = String.valueOf(metric.get("name"));
+            if (METRICS.contains(name) && metric.get("value") instanceof Number value) {
+                // Durations are reported in seconds
+                json.name(name).value(name.endsWith("Duration") ? Math.round(value.doubleValue() * 1000) : value.longValue());
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * Forget the pages this thread captured so far, e.g. in hooks before a step starts
+     */
+    public static void clear() {
+        pages.get().clear();
+    }
+
+    /**
+     * Whether this thread captured pages since the log was last taken or cleared
+     */
+    public static boolean hasPages() {
+        return !pages.get().isEmpty();
+    }
+
+    /**
+     * Take the pages this thread captured since the log was last taken or cleared, as JSON of MEDIA_TYPE
+     * e.g. {"scenario":"..","pages":[{"page":"IMDS login page","timings":{..},"metrics":{..}}]}
+     * @param scenarioId Cucumber scenario id the pages belong to
+     */
+    public static String takeJson(String scenarioId) {
+        List<String> captured = pages.get();
+        StringWriter text = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(text);
+            json.beginObject();
+            json.name("scenario").value(scenarioId);
+            json.name("pages").beginArray();
+            for (String page : captured) {
+                json.jsonValue(page);
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        captured.clear();
+        return text.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package com.scm.utils;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed section of a scenario, nested under the section that was open when it started
+ * Spans are opened in try-with-resources, so the nesting follows the code:
+ * <pre>
+ * try (Span span = Span.start("Wait for page load")) {
+ *     ...
+ * }
+ * </pre>
+ * Each thread keeps its own stack of open spans: a scenario span opened by Hooks, a step span
+ * per Cucumber step and any spans the step definitions open within it. Named spans are also
+ * recorded in TestTiming under their name. A span must be closed on the thread that started it;
+ * closing it also closes any of its children still open.
+ */
+public final class Span implements AutoCloseable {
+    // Media type of step span attachments, read by the HTML reports
+    public static final String MEDIA_TYPE = "application/vnd.scm.spans+json";
+
+    private static final ThreadLocal<Span> current = new ThreadLocal<>();
+
+    private final String name;
+    private final String scenarioId;
+    private final Span parent;
+    // Whether the duration is recorded in TestTiming under the span's name
+    private final boolean timed;
+    private final long startNanos = System.nanoTime();
+    private long endNanos;
+    private boolean closed;
+    private final List<Span> children = new ArrayList<>(2);
+
+    private Span(String name, String scenarioId, Span parent, boolean timed) {
+        this.name = name;
+        this.scenarioId = scenarioId;
+        this.parent = parent;
+        this.timed = timed;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+        current.set(this);
+    }
+
+    /**
+     * Start a span within the span currently open on this thread, or a root span if none is
+     * @param name Name shown in the time breakdown and used for TestTiming
+     */
+    public static Span start(String name) {
+        Span parent = current.get();
+        return new Span(name, parent != null ? parent.scenarioId : null, parent, true);
+    }
+
+    /**
+     * Start the root span of a scenario, dropping any spans a previous scenario left open
+     * @param scenarioId Cucumber scenario id, written with every step's spans
+     * @param name Scenario name
+     */
+    public static Span startScenario(String scenarioId, String name) {
+        return new Span(name, scenarioId, null, true);
+    }
+
+    /**
+     * Start the span of a Cucumber step within the current scenario
+     * Hooks do not see the step text, so the step span is not recorded in TestTiming; Cucumber
+     * reports the step's duration itself.
+     */
+    public static Span startStep() {
+        Span parent = current.get();
+        return new Span("step", parent != null ? parent.scenarioId : null, parent, false);
+    }
+
+    /**
+     * End the span and any of its children still open; closing it again has no effect
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        for (Span child : children) {
+            child.close();
+        }
+        endNanos = System.nanoTime();
+        closed = true;
+        if (timed) {
+            TestTiming.record(name, getDurationMillis());
+        }
+        if (current.get() == this) {
+            if (parent != null) {
+                current.set(parent);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getScenarioId() {
+        return scenarioId;
+    }
+
+    /**
+     * Duration in milliseconds, up to now while the span is open
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((closed ? endNanos : System.nanoTime()) - startNanos);
+    }
+
+    public List<Span> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Time breakdown of this span for a report attachment of MEDIA_TYPE
+     * e.g. {"scenario":"..","duration":812,"spans":[{"name":"Wait for page load","start":3,"duration":640,"children":[]}]}
+     * Starts are milliseconds from the start of this span.
+     */
+    public String toJson() {
+        StringWriter text = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(text);
+            json.beginObject();
+            json.name("scenario").value(scenarioId);
+            json.name("duration").value(getDurationMillis());
+            json.name("spans");
+            writeChildren(json, this, startNanos);
+            json.endObject();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    private static void writeChildren(JsonWriter json, Span span, long originNanos) throws IOException {
+        json.beginArray();
+        for (Span child : span.children) {
+            json.beginObject();
+            json.name("name").value(child.name);
+            json.name("start").value(TimeUnit.NANOSECONDS.toMillis(child.startNanos - originNanos));
+            json.name("duration").value(child.getDurationMillis());
+            json.name("children");
+            writeChildren(json, child, originNanos);
+            json.endObject();
+        }
+        json.endArray();
+    }
+}
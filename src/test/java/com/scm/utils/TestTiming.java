@@ -1,98 +1,185 @@
 package com.scm.utils;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility class to track test execution timing and response times
+ * Steps are timed with System.nanoTime and identified by a long id. Each thread keeps its open
+ * steps and a fixed-size buffer of finished ones to itself, so timing adds no contention under
+ * parallel execution. Buffers are drained into one LatencyHistogram per step name when they fill
+ * up and whenever latencies are read, so memory stays constant however long the run is.
+ * A step must be ended on the thread that started it. Spans and WebDriver commands time themselves
+ * and hand their durations to record, so nothing is timed twice.
  */
 public class TestTiming {
-    private static final Map<String, Long> stepStartTimes = new ConcurrentHashMap<>();
-    private static final Map<String, Long> stepDurations = new ConcurrentHashMap<>();
-    private static final Map<String, LocalDateTime> stepTimestamps = new ConcurrentHashMap<>();
-    private static final Map<String, String> stepNames = new ConcurrentHashMap<>();
-    
+    // Steps a thread can have open at once, e.g. a scenario and its current step; when more are
+    // started, the oldest open step is forgotten
+    private static final int MAX_OPEN = 16;
+    // Finished steps buffered per thread before they are drained
+    private static final int BUFFER_SIZE = 256;
+
+    private static final Map<String, LatencyHistogram> stepLatencies = new ConcurrentHashMap<>();
+    private static final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(() -> {
+        Recorder created = new Recorder(Thread.currentThread());
+        recorders.add(created);
+        return created;
+    });
+
+    /**
+     * Open and finished steps of one thread
+     * Only the owner writes; finished steps are published through written and drained by any
+     * thread holding the recorder's monitor.
+     */
+    private static final class Recorder {
+        final Thread owner;
+        // Open steps in slot id % MAX_OPEN
+        final long[] openIds = new long[MAX_OPEN];
+        final long[] openStarts = new long[MAX_OPEN];
+        final String[] openNames = new String[MAX_OPEN];
+        long lastId;
+        // Finished steps in slot index % BUFFER_SIZE, from drained (inclusive) to written (exclusive)
+        final String[] names = new String[BUFFER_SIZE];
+        final long[] durations = new long[BUFFER_SIZE];
+        final AtomicLong written = new AtomicLong();
+        volatile long drained;
+
+        Recorder(Thread owner) {
+            this.owner = owner;
+        }
+
+        void finished(String name, long milliseconds) {
+            long index = written.get();
+            if (index - drained == BUFFER_SIZE) {
+                drain(this);
+            }
+            int slot = (int) (index % BUFFER_SIZE);
+            names[slot] = name;
+            durations[slot] = milliseconds;
+            written.lazySet(index + 1);
+        }
+    }
+
     /**
      * Start timing for a test step
-     * @param stepId Unique identifier for the step
-     * @param stepName Human-readable name of the step
+     * @param stepName Human-readable name of the step; durations are aggregated per name
+     * @return Id to pass to endStep
      */
-    public static void startStep(String stepId, String stepName) {
-        long startTime = System.currentTimeMillis();
-        stepStartTimes.put(stepId, startTime);
-        stepNames.put(stepId, stepName);
-        stepTimestamps.put(stepId, LocalDateTime.now());
+    public static long startStep(String stepName) {
+        Recorder steps = recorder.get();
+        long id = ++steps.lastId;
+        int slot = (int) (id % MAX_OPEN);
+        steps.openIds[slot] = id;
+        steps.openNames[slot] = stepName;
+        steps.openStarts[slot] = System.nanoTime();
+        return id;
     }
-    
+
     /**
      * End timing for a test step
-     * @param stepId Unique identifier for the step
-     * @return Duration in milliseconds
+     * @param stepId Id returned by startStep on this thread
+     * @return Duration in milliseconds, or 0 if the step is not open
      */
-    public static long endStep(String stepId) {
-        Long startTime = stepStartTimes.get(stepId);
-        if (startTime != null) {
-            long duration = System.currentTimeMillis() - startTime;
-            stepDurations.put(stepId, duration);
-            return duration;
+    public static long endStep(long stepId) {
+        long end = System.nanoTime();
+        Recorder steps = recorder.get();
+        int slot = (int) (stepId % MAX_OPEN);
+        if (stepId <= 0 || steps.openIds[slot] != stepId) {
+            return 0;
         }
-        return 0;
+        long duration = TimeUnit.NANOSECONDS.toMillis(end - steps.openStarts[slot]);
+        String name = steps.openNames[slot];
+        steps.openIds[slot] = 0;
+        steps.openNames[slot] = null;
+        steps.finished(name, duration);
+        return duration;
     }
-    
+
     /**
-     * Get duration for a step in milliseconds
-     * @param stepId Unique identifier for the step
-     * @return Duration in milliseconds, or 0 if not found
+     * Record a duration that was measured elsewhere, e.g. by a Span or a WebDriver command listener
+     * @param name Name to aggregate the duration under
+     * @param milliseconds Duration in milliseconds
      */
-    public static long getStepDuration(String stepId) {
-        return stepDurations.getOrDefault(stepId, 0L);
+    public static void record(String name, long milliseconds) {
+        recorder.get().finished(name, milliseconds);
     }
-    
+
     /**
-     * Get step name
-     * @param stepId Unique identifier for the step
-     * @return Step name, or null if not found
+     * Get the durations of all finished steps, in milliseconds
+     * @return Histogram per step name, including the steps still buffered by running threads
      */
-    public static String getStepName(String stepId) {
-        return stepNames.get(stepId);
+    public static Map<String, LatencyHistogram> getStepLatencies() {
+        drainAll();
+        return Collections.unmodifiableMap(stepLatencies);
     }
-    
+
     /**
-     * Get step timestamp
-     * @param stepId Unique identifier for the step
-     * @return Timestamp, or null if not found
+     * Print the names with the highest p95, with their count and p50/p95/p99/max
+     * @param limit Maximum number of names printed
      */
-    public static LocalDateTime getStepTimestamp(String stepId) {
-        return stepTimestamps.get(stepId);
+    public static void printSummary(int limit) {
+        Map<String, LatencyHistogram> latencies = getStepLatencies();
+        if (latencies.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, LatencyHistogram>> slowest = new ArrayList<>(latencies.entrySet());
+        slowest.sort(Comparator.comparingLong(
+            (Map.Entry<String, LatencyHistogram> entry) -> entry.getValue().getPercentile(95)).reversed());
+        System.out.println("⏱️ Slowest timed sections by p95:");
+        for (Map.Entry<String, LatencyHistogram> entry : slowest.subList(0, Math.min(limit, slowest.size()))) {
+            LatencyHistogram histogram = entry.getValue();
+            System.out.printf("  %-50s %6d× p50 %8s p95 %8s p99 %8s max %8s%n", entry.getKey(), histogram.getCount(),
+                formatDuration(histogram.getPercentile(50)), formatDuration(histogram.getPercentile(95)),
+                formatDuration(histogram.getPercentile(99)), formatDuration(histogram.getMax()));
+        }
     }
-    
+
     /**
-     * Get all step durations
-     * @return Map of step IDs to durations
+     * Clear all timing data of finished steps
      */
-    public static Map<String, Long> getAllStepDurations() {
-        return new ConcurrentHashMap<>(stepDurations);
+    public static void clear() {
+        drainAll();
+        stepLatencies.clear();
     }
-    
+
     /**
-     * Get all step names
-     * @return Map of step IDs to names
+     * Drain the buffers of all threads; recorders of finished threads are dropped once drained
      */
-    public static Map<String, String> getAllStepNames() {
-        return new ConcurrentHashMap<>(stepNames);
+    private static void drainAll() {
+        for (Recorder steps : recorders) {
+            drain(steps);
+            if (!steps.owner.isAlive()) {
+                recorders.remove(steps);
+            }
+        }
     }
-    
-    /**
-     * Clear all timing data
-     */
-    public static void clear() {
-        stepStartTimes.clear();
-        stepDurations.clear();
-        stepTimestamps.clear();
-        stepNames.clear();
+
+    private static void drain(Recorder steps) {
+        synchronized (steps) {
+            long end = steps.written.get();
+            for (long index = steps.drained; index < end; index++) {
+                int slot = (int) (index % BUFFER_SIZE);
+                String name = String.valueOf(steps.names[slot]);
+                LatencyHistogram histogram = stepLatencies.get(name);
+                if (histogram == null) {
+                    histogram = stepLatencies.computeIfAbsent(name, key -> new LatencyHistogram());
+                }
+                histogram.record(steps.durations[slot]);
+                steps.names[slot] = null;
+            }
+            steps.drained = end;
+        }
     }
-    
+
     /**
      * Format duration in a human-readable format
      * @param milliseconds Duration in milliseconds
@@ -107,4 +194,3 @@ public class TestTiming {
         }
     }
 }
-
@@ -0,0 +1,160 @@
+const ROW_HEIGHT = 44, OVERSCAN = 10;
+const DetailedReport = {
+    data: null, view: [], chunks: {}, waiting: {}, selected: -1,
+    index(data) { this.data = data; },
+    chunk(n, scenarios) {
+        this.chunks[n] = scenarios;
+        (this.waiting[n] || []).forEach(cb => cb(scenarios));
+        delete this.waiting[n];
+    }
+};
+function esc(s) {
+    return s == null ? '' : String(s).replace(/[&<>"']/g, c =>
+        ({'&': '&amp;', '<': '&lt;', '>': '&gt;', '"': '&quot;', "'": '&#39;'})[c]);
+}
+function fmt(ms) { return ms < 1000 ? ms + 'ms' : (ms / 1000).toFixed(2) + 's'; }
+function loadChunk(n, cb) {
+    const R = DetailedReport;
+    if (R.chunks[n]) { cb(R.chunks[n]); return; }
+    if (!R.waiting[n]) {
+        R.waiting[n] = [];
+        const script = document.createElement('script');
+        script.src = 'detailed-data/chunk-' + n + '.js';
+        document.body.appendChild(script);
+    }
+    R.waiting[n].push(cb);
+}
+function applyView() {
+    const d = DetailedReport.data;
+    const text = document.getElementById('filter').value.toLowerCase();
+    const status = document.getElementById('status').value;
+    const sort = document.getElementById('sort').value;
+    // Searches steps and errors through the index; without it only names, features and tags
+    const mask = ReportSearch.match(text);
+    const view = [];
+    for (let i = 0; i < d.rows.length; i++) {
+        const r = d.rows[i];
+        if (status && d.statuses[r[2]] !== status) continue;
+        if (mask ? !mask[i] : text && !(r[0] + ' ' + d.features[r[1]] + ' ' + r[4]).toLowerCase().includes(text)) continue;
+        view.push(i);
+    }
+    const rows = d.rows;
+    if (sort === 'duration') view.sort((a, b) => rows[b][3] - rows[a][3]);
+    else if (sort === 'name') view.sort((a, b) => rows[a][0].localeCompare(rows[b][0]));
+    else if (sort === 'status') view.sort((a, b) => d.statuses[rows[a][2]].localeCompare(d.statuses[rows[b][2]]));
+    DetailedReport.view = view;
+    document.getElementById('count').textContent = view.length + ' of ' + rows.length + ' scenarios';
+    document.getElementById('spacer').style.height = (view.length * ROW_HEIGHT) + 'px';
+    document.getElementById('viewport').scrollTop = 0;
+    renderRows();
+}
+function renderRows() {
+    const R = DetailedReport, d = R.data;
+    const viewport = document.getElementById('viewport');
+    const first = Math.max(0, Math.floor(viewport.scrollTop / ROW_HEIGHT) - OVERSCAN);
+    const last = Math.min(R.view.length, Math.ceil((viewport.scrollTop + viewport.clientHeight) / ROW_HEIGHT) + OVERSCAN);
+    let html = '';
+    for (let v = first; v < last; v++) {
+        const i = R.view[v], r = d.rows[i], status = d.statuses[r[2]];
+        html += '<div class="row ' + esc(status) + (i === R.selected ? ' selected' : '') + '" data-i="' + i
+            + '" style="top:' + (v * ROW_HEIGHT) + 'px"><span class="name">' + esc(r[0])
+            + '</span><span class="feature">' + esc(d.features[r[1]])
+            + '</span><span class="duration">' + fmt(r[3]) + '</span></div>';
+    }
+    document.getElementById('spacer').innerHTML = html;
+}
+function attachmentsHtml(list) {
+    if (!list.length) return '';
+    return '<div class="attachments">' + list.map(a => '<a class="attachment" target="_blank" href="' + esc(a[1]) + '">'
+        + (a[2] ? '<img loading="lazy" src="' + esc(a[1]) + '" alt="' + esc(a[0]) + '">' : '')
+        + '📎 ' + esc(a[0]) + '</a>').join('') + '</div>';
+}
+// Error of a step: the complete error when it occurred once, otherwise a link to its cluster
+function errorHtml(cluster, hash) {
+    if (!cluster) return '';
+    if (cluster[1] === 1) return '<div class="step-error">❌ ' + esc(cluster[2]) + '</div>';
+    return '<div class="step-error">❌ <a href="#cluster-' + esc(hash) + '">' + esc(cluster[0]) + '</a>'
+        + ' (same failure in ' + cluster[1] + ' steps)</div>';
+}
+// Time breakdown of a step: [duration, [span...]], span: [name, start ms, duration ms, [span...]]
+function spansHtml(breakdown) {
+    if (!breakdown) return '';
+    const scale = Math.max(breakdown[0], 1);
+    const rows = spans => spans.map(s => {
+        const start = Math.min(s[1], scale), width = Math.min(s[2], scale - start);
+        const row = '<span class="span-name">' + esc(s[0]) + '</span><span class="span-bar"><span class="span-fill" style="left: '
+            + (start * 100 / scale).toFixed(2) + '%; width: ' + (width * 100 / scale).toFixed(2) + '%"></span></span>'
+            + '<span class="span-duration">' + fmt(s[2]) + '</span>';
+        return s[3].length ? '<details class="span"><summary>' + row + '</summary>' + rows(s[3]) + '</details>'
+            : '<div class="span">' + row + '</div>';
+    }).join('');
+    return '<details class="span-breakdown"><summary>⏱️ Time breakdown</summary>' + rows(breakdown[1]) + '</details>';
+}
+// Browser timings of the pages a step captured, see PageTimings.writeJson for the layout
+function pagesHtml(pages, stepDuration) {
+    if (!pages) return '';
+    const METRICS = [['TaskDuration', 'Main thread'], ['ScriptDuration', 'Script'], ['LayoutDuration', 'Layout'],
+        ['RecalcStyleDuration', 'Style'], ['JSHeapUsedSize', 'JS heap'], ['Nodes', 'DOM nodes']];
+    const shortName = url => {
+        const path = url.split('?')[0], slash = path.lastIndexOf('/');
+        return (slash >= 0 && slash < path.length - 1 ? path.substring(slash + 1) : path) || url;
+    };
+    const row = (name, title, start, duration, ttfb, mark, scale) => {
+        const wait = Math.min(ttfb, duration), pct = v => (v * 100 / scale).toFixed(2) + '%';
+        return '<div class="span"><span class="span-name" title="' + esc(title) + '">' + esc(name) + '</span>'
+            + '<span class="span-bar"><span class="span-fill span-wait" style="left: ' + pct(start) + '; width: ' + pct(wait) + '"></span>'
+            + '<span class="span-fill" style="left: ' + pct(start + wait) + '; width: ' + pct(duration - wait) + '"></span>'
+            + (mark >= 0 ? '<span class="span-mark" style="left: ' + pct(Math.min(mark, scale)) + '" title="DOM complete"></span>' : '')
+            + '</span><span class="span-duration">' + fmt(duration) + '</span></div>';
+    };
+    return pages.map(p => {
+        const n = p[2], v = p[3], m = p[4], resources = p[5];
+        let html = '<details class="span-breakdown page-timings"><summary>🌐 ' + esc(p[0] || p[1]);
+        if (n) html += ' · TTFB ' + fmt(n[4]) + ' · DOM complete ' + fmt(n[8]) + ' · Load ' + fmt(n[9]) + ' of step ' + fmt(stepDuration);
+        if (v[0] !== null) html += ' · LCP ' + fmt(v[0]);
+        html += ' · CLS ' + v[1].toFixed(2);
+        if (v[2] > 0) html += ' · ' + v[2] + ' long tasks (' + fmt(v[3]) + ')';
+        html += '</summary><div class="page-details">' + esc(p[1]);
+        if (n) html += '<br>Redirect ' + fmt(n[0]) + ' · DNS ' + fmt(n[1]) + ' · Connect ' + fmt(n[2]) + ' (TLS ' + fmt(n[3])
+            + ') · Response ' + fmt(n[5] - n[4]) + ' · DOM interactive ' + fmt(n[6]) + ' · DOMContentLoaded ' + fmt(n[7])
+            + ' · Document ' + Math.floor(n[10] / 1024) + ' KB';
+        const metrics = METRICS.filter(k => k[0] in m).map(k => k[1] + ' '
+            + (k[0].endsWith('Duration') ? fmt(m[k[0]]) : k[0].endsWith('Size') ? Math.floor(m[k[0]] / 1048576) + ' MB' : m[k[0]]));
+        if (metrics.length) html += '<br>' + metrics.join(' · ');
+        html += '</div>';
+        let end = n ? Math.max(n[9], n[8]) : 0;
+        for (const r of resources) end = Math.max(end, r[2] + r[3]);
+        const scale = Math.max(end, 1);
+        if (n) html += row('Document', 'Document', 0, n[5], n[4], n[8], scale);
+        for (const r of resources) html += row(shortName(r[0]), r[0], r[2], r[3], r[4], -1, scale);
+        return html + '</details>';
+    }).join('');
+}
+function showScenario(i) {
+    const R = DetailedReport, d = R.data, r = d.rows[i];
+    R.selected = i;
+    renderRows();
+    const panel = document.getElementById('panel');
+    panel.innerHTML = '<p class="meta">Loading…</p>';
+    loadChunk(r[5], scenarios => {
+        if (R.selected !== i) return;
+        const scenario = scenarios[r[6]], status = d.statuses[r[2]];
+        let html = '<h3>' + esc(r[0]) + '</h3><p class="meta">📁 ' + esc(d.features[r[1]]) + ' | ' + esc(r[4])
+            + ' | <span class="step-status status-' + esc(status) + '">' + esc(status.toUpperCase()) + '</span>'
+            + ' | ⏱️ ' + fmt(r[3]) + '</p>';
+        for (const s of scenario[0]) {
+            html += '<div class="step-item"><span class="step-keyword">' + esc(s[0]) + '</span>' + esc(s[1])
+                + '<span class="step-status status-' + esc(s[2]) + '">' + esc(String(s[2]).toUpperCase()) + '</span>'
+                + '<span class="step-duration">' + fmt(s[3]) + '</span>'
+                + errorHtml(d.clusters[s[4]], s[4])
+                + spansHtml(s[6]) + pagesHtml(s[7], s[3]) + attachmentsHtml(s[5]) + '</div>';
+        }
+        panel.innerHTML = html + attachmentsHtml(scenario[1]);
+    });
+}
+document.getElementById('viewport').addEventListener('scroll', () => requestAnimationFrame(renderRows));
+document.getElementById('spacer').addEventListener('click', e => {
+    const row = e.target.closest('.row');
+    if (row) showScenario(Number(row.dataset.i));
+});
+['filter', 'status', 'sort'].forEach(id => document.getElementById(id).addEventListener('input', applyView));
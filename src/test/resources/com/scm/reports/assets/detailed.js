@@ -0,0 +1,16 @@
+// Search and status filter for the single-page detailed report; cards are in scenario id order
+const cards = document.querySelectorAll('.scenario-card');
+function applyFilter() {
+    const mask = ReportSearch.match(document.getElementById('filter').value);
+    const status = document.getElementById('status').value;
+    let shown = 0;
+    cards.forEach((card, i) => {
+        const visible = (!mask || mask[i]) && (!status || card.classList.contains(status));
+        card.style.display = visible ? '' : 'none';
+        if (visible) shown++;
+    });
+    document.getElementById('count').textContent = shown + ' of ' + cards.length + ' scenarios';
+}
+['filter', 'status'].forEach(id => document.getElementById(id).addEventListener('input', applyFilter));
+ReportSearch.onLoad(applyFilter);
+applyFilter();
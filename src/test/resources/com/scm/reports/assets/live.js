@@ -0,0 +1,103 @@
+const POLL_MS = 2000;
+const RECENT = 50;
+const scenarios = [];
+const steps = new Map();
+let loaded = 0;
+let loading = false;
+let head = null;
+
+function formatDuration(ms) {
+    return ms < 1000 ? ms + 'ms' : (ms / 1000).toFixed(2) + 's';
+}
+function escapeHtml(text) {
+    return String(text == null ? '' : text).replace(/[&<>"']/g, c => ({
+        '&': '&amp;', '<': '&lt;', '>': '&gt;', '"': '&quot;', "'": '&#39;'
+    })[c]);
+}
+function percentile(sorted, p) {
+    return sorted.length ? sorted[Math.max(0, Math.ceil(p / 100 * sorted.length) - 1)] : 0;
+}
+function loadScript(src, onDone) {
+    const script = document.createElement('script');
+    script.src = src;
+    script.onload = script.onerror = () => { script.remove(); if (onDone) onDone(); };
+    document.body.appendChild(script);
+}
+
+const LiveReport = {
+    head(state) {
+        head = state;
+        loadSegments();
+    },
+    add(rows) {
+        const failures = document.getElementById('failures');
+        for (const row of rows) {
+            const [name, uri, line, status, duration, start, worker, error, stepRows] = row;
+            scenarios.push({name, status, duration, worker});
+            for (const [text, stepStatus, ms] of stepRows) {
+                let entry = steps.get(text);
+                if (!entry) steps.set(text, entry = []);
+                entry.push(ms);
+            }
+            if (status === 'failed') {
+                if (failures.querySelector('.muted')) failures.innerHTML = '';
+                const item = document.createElement('div');
+                item.className = 'failure';
+                item.innerHTML = '<b>' + escapeHtml(name) + '</b> <span class="muted">' + escapeHtml(uri)
+                    + ':' + line + ' · ' + escapeHtml(worker) + '</span><div class="error">'
+                    + escapeHtml(error) + '</div>';
+                failures.prepend(item);
+            }
+        }
+    }
+};
+
+function loadSegments() {
+    if (loading) return;
+    if (loaded < head.segments) {
+        loading = true;
+        loadScript('live/segment-' + loaded + '.js', () => {
+            loaded++;
+            loading = false;
+            loadSegments();
+        });
+        return;
+    }
+    render();
+}
+
+function render() {
+    const durations = scenarios.map(s => s.duration).sort((a, b) => a - b);
+    document.getElementById('total').textContent = scenarios.length;
+    document.getElementById('passed').textContent = head.passed;
+    document.getElementById('failed').textContent = head.failed;
+    document.getElementById('p95').textContent = durations.length ? formatDuration(percentile(durations, 95)) : '-';
+    const elapsed = Date.now() - head.started;
+    document.getElementById('state').textContent = head.finished
+        ? 'Run finished: ' + scenarios.length + ' scenarios'
+        : 'Running for ' + formatDuration(Math.max(0, elapsed)) + ' · updated ' + new Date().toLocaleTimeString();
+
+    const stepRows = [];
+    for (const [text, values] of steps) {
+        const sorted = values.slice().sort((a, b) => a - b);
+        const mean = Math.round(sorted.reduce((a, b) => a + b, 0) / sorted.length);
+        stepRows.push([text, sorted.length, mean, percentile(sorted, 95), sorted[sorted.length - 1]]);
+    }
+    stepRows.sort((a, b) => b[3] - a[3]);
+    document.getElementById('steps').innerHTML = stepRows.map(r => '<tr><td>' + escapeHtml(r[0])
+        + '</td><td class="num">' + r[1] + '</td><td class="num">' + formatDuration(r[2])
+        + '</td><td class="num">' + formatDuration(r[3]) + '</td><td class="num">'
+        + formatDuration(r[4]) + '</td></tr>').join('');
+
+    document.getElementById('recent').innerHTML = scenarios.slice(-RECENT).reverse().map(s => '<tr><td>'
+        + escapeHtml(s.name) + '</td><td class="status-' + escapeHtml(s.status) + '">'
+        + escapeHtml(s.status.toUpperCase()) + '</td><td>' + escapeHtml(s.worker)
+        + '</td><td class="num">' + formatDuration(s.duration) + '</td></tr>').join('');
+}
+
+function poll() {
+    loadScript('live/head.js?t=' + Date.now(), () => {
+        if (!head || !head.finished) setTimeout(poll, POLL_MS);
+    });
+}
+poll();
@@ -0,0 +1,48 @@
+// Search over the prebuilt index in search-index.js (see SearchIndex.java)
+const ReportSearch = {
+    index: null, decoded: {}, cache: {}, listeners: [],
+    load(index) {
+        this.index = index;
+        this.listeners.forEach(cb => cb());
+    },
+    onLoad(cb) {
+        if (this.index) cb(); else this.listeners.push(cb);
+    },
+    // Query words as the index splits text: runs of letters and digits, lower-cased
+    words(text) {
+        return text.toLowerCase().match(/[\p{L}\p{Nd}]+/gu) || [];
+    },
+    // Scenario ids of the term at position t, decoded from base-36 gaps on first use
+    postings(t) {
+        let ids = this.decoded[t];
+        if (!ids) {
+            const gaps = this.index.postings[t].split(',');
+            ids = new Int32Array(gaps.length);
+            let id = 0;
+            for (let i = 0; i < gaps.length; i++) ids[i] = id += parseInt(gaps[i], 36);
+            this.decoded[t] = ids;
+        }
+        return ids;
+    },
+    // Mask of scenarios with a term containing the word; the term list is small next to the scenarios
+    matchWord(word) {
+        if (this.cache[word]) return this.cache[word];
+        const terms = this.index.terms, mask = new Uint8Array(this.index.scenarios);
+        for (let t = 0; t < terms.length; t++) {
+            if (terms[t].includes(word)) this.postings(t).forEach(id => mask[id] = 1);
+        }
+        return this.cache[word] = mask;
+    },
+    // Mask of scenarios matching every word of the query, or null for an empty query or before the index loaded
+    match(text) {
+        const words = this.words(text);
+        if (!this.index || !words.length) return null;
+        let result = null;
+        for (const word of words) {
+            const mask = this.matchWord(word);
+            if (!result) result = mask.slice();
+            else for (let i = 0; i < result.length; i++) result[i] &= mask[i];
+        }
+        return result;
+    }
+};